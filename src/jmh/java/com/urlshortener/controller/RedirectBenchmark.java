@@ -0,0 +1,180 @@
+package com.urlshortener.controller;
+
+import com.urlshortener.cache.CacheInvalidationBus;
+import com.urlshortener.cache.LocalUrlCache;
+import com.urlshortener.cache.ShortCodeFilter;
+import com.urlshortener.cdn.CdnPurgeClient;
+import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.repository.ShortUrlRepository;
+import com.urlshortener.service.ClickCounterBuffer;
+import com.urlshortener.service.ClickEventPublisher;
+import com.urlshortener.service.HotKeyTracker;
+import com.urlshortener.service.RabbitMQService;
+import com.urlshortener.service.RedirectPolicy;
+import com.urlshortener.service.ShortUrlService;
+import com.urlshortener.shortcode.RandomShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный путь редиректа через RedirectController с хранилищами в памяти.
+ * Уровень, на котором находится ссылка, задаётся параметром source:
+ * LOCAL - локальный кэш, REDIS - промах L1, MONGO - промах L1 и Redis.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectBenchmark {
+
+    static final String SHORT_CODE = "abc1234";
+    static final String ORIGINAL_URL = "https://example.com/campaign/spring?utm_source=newsletter";
+
+    @Param({"LOCAL", "REDIS", "MONGO"})
+    public String source;
+
+    private RedirectController redirectController;
+    private LocalUrlCache localUrlCache;
+    private Map<String, String> redisStore;
+    private MockServerHttpRequest request;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        redisStore = new ConcurrentHashMap<>();
+        localUrlCache = new LocalUrlCache(meterRegistry, 10_000, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        ShortUrlService shortUrlService = inMemoryShortUrlService(localUrlCache, redisStore, meterRegistry);
+        redirectController = new RedirectController(shortUrlService, meterRegistry);
+
+        request = MockServerHttpRequest.get("/" + SHORT_CODE)
+                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/120.0.0.0 Safari/537.36")
+                .header("X-Forwarded-For", "203.0.113.7")
+                .build();
+    }
+
+    @Setup(Level.Invocation)
+    public void evict() {
+        if (!"LOCAL".equals(source)) {
+            localUrlCache.invalidate(SHORT_CODE);
+        }
+        if ("MONGO".equals(source)) {
+            redisStore.clear();
+        }
+    }
+
+    @Benchmark
+    public MockServerHttpResponse redirect() {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        redirectController.redirect(SHORT_CODE, request, response).block();
+        return response;
+    }
+
+    /**
+     * ShortUrlService с хранилищами в памяти и одной ссылкой SHORT_CODE -> ORIGINAL_URL
+     */
+    static ShortUrlService inMemoryShortUrlService(LocalUrlCache localUrlCache, Map<String, String> redisStore,
+                                                   SimpleMeterRegistry meterRegistry) {
+        InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate(redisStore);
+        // Фильтр кодов не построен и пропускает все коды, как до подписки на шину
+        ShortCodeFilter shortCodeFilter = new ShortCodeFilter(null, meterRegistry, true, 1000, 0.01);
+
+        ShortUrl shortUrl = ShortUrl.builder()
+                .id("65f1c0a2e4b0a1b2c3d4e5f6")
+                .shortCode(SHORT_CODE)
+                .originalUrl(ORIGINAL_URL)
+                .userId("user1")
+                .active(true)
+                .expiresAt(LocalDateTime.now().plusDays(30))
+                .build();
+
+        // Публикатор без фонового потока: буфер заполняется и вытесняет старые события
+        ClickEventPublisher clickEventPublisher = new ClickEventPublisher(new RabbitTemplate(), meterRegistry,
+                65536, ClickEventPublisher.OverflowPolicy.DROP_OLDEST, 10, 500,
+                Duration.ofMillis(50), Duration.ofSeconds(5), ClickEventPublisher.Format.BINARY);
+
+        ShortUrlService shortUrlService = new ShortUrlService(
+                inMemoryRepository(Map.of(SHORT_CODE, shortUrl)),
+                redisTemplate,
+                new RabbitMQService(new RabbitTemplate(), clickEventPublisher),
+                localUrlCache,
+                new CacheInvalidationBus(redisTemplate, localUrlCache, shortCodeFilter, "benchmark"),
+                new ClickCounterBuffer(null, meterRegistry),
+                new RandomShortCodeGenerator(7),
+                shortCodeFilter,
+                new RedirectPolicy(302, Duration.ZERO, Duration.ofMinutes(10)),
+                new CdnPurgeClient(WebClient.builder(), "", "Fastly-Key", "", Duration.ofSeconds(2)),
+                new HotKeyTracker(localUrlCache, meterRegistry, true, 20, 1, 65536, 65536, Duration.ofMinutes(1)),
+                meterRegistry);
+        // Настройки, которые в приложении приходят из @Value
+        ReflectionTestUtils.setField(shortUrlService, "localTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(shortUrlService, "negativeTtl", Duration.ofSeconds(30));
+        return shortUrlService;
+    }
+
+    private static ShortUrlRepository inMemoryRepository(Map<String, ShortUrl> store) {
+        return (ShortUrlRepository) Proxy.newProxyInstance(
+                ShortUrlRepository.class.getClassLoader(),
+                new Class<?>[]{ShortUrlRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByShortCode" -> Mono.justOrEmpty(store.get((String) args[0]));
+                    case "toString" -> "InMemoryShortUrlRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Шаблон Redis поверх Map: реализованы только операции значений, используемые при редиректе
+     */
+    private static final class InMemoryRedisTemplate extends ReactiveRedisTemplate<String, String> {
+
+        private final ReactiveValueOperations<String, String> valueOperations;
+
+        @SuppressWarnings("unchecked")
+        private InMemoryRedisTemplate(Map<String, String> store) {
+            super((ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                            ReactiveRedisConnectionFactory.class.getClassLoader(),
+                            new Class<?>[]{ReactiveRedisConnectionFactory.class},
+                            (proxy, method, args) -> {
+                                throw new UnsupportedOperationException(method.getName());
+                            }),
+                    RedisSerializationContext.string());
+            this.valueOperations = (ReactiveValueOperations<String, String>) Proxy.newProxyInstance(
+                    ReactiveValueOperations.class.getClassLoader(),
+                    new Class<?>[]{ReactiveValueOperations.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "get" -> Mono.justOrEmpty(store.get((String) args[0]));
+                        case "set" -> {
+                            store.put((String) args[0], (String) args[1]);
+                            yield Mono.just(true);
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        public ReactiveValueOperations<String, String> opsForValue() {
+            return valueOperations;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.urlshortener.controller;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.urlshortener.cache.LocalUrlCache;
+import com.urlshortener.config.SecurityConfig;
+import com.urlshortener.service.ShortUrlService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность редиректа из L1 через весь веб-стек: WebHttpHandlerBuilder,
+ * цепочка Spring Security из SecurityConfig и DispatcherHandler.
+ * mode: CONTROLLER - аннотированный RedirectController, FILTER - RedirectWebFilter до Security.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectDispatchBenchmark {
+
+    @Param({"CONTROLLER", "FILTER"})
+    public String mode;
+
+    private AnnotationConfigApplicationContext context;
+    private HttpHandler httpHandler;
+
+    @EnableWebFlux
+    static class WebConfig {
+    }
+
+    @Setup
+    public void setUp() {
+        // Без Spring Boot уровень логов по умолчанию DEBUG: журнал каждого запроса исказит замер
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LocalUrlCache localUrlCache = new LocalUrlCache(meterRegistry, 10_000, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        ShortUrlService shortUrlService = RedirectBenchmark.inMemoryShortUrlService(
+                localUrlCache, new ConcurrentHashMap<>(), meterRegistry);
+
+        context = new AnnotationConfigApplicationContext();
+        context.register(WebConfig.class, SecurityConfig.class);
+        context.registerBean(RedirectController.class, () -> new RedirectController(shortUrlService, meterRegistry));
+        if ("FILTER".equals(mode)) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                    Map.of("url-shortener.fast-redirect.enabled", "true")));
+            context.registerBean(RedirectWebFilter.class, () -> new RedirectWebFilter(shortUrlService, meterRegistry, 20));
+        }
+        context.refresh();
+        httpHandler = WebHttpHandlerBuilder.applicationContext(context).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MockServerHttpResponse redirect() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/" + RedirectBenchmark.SHORT_CODE)
+                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/120.0.0.0 Safari/537.36")
+                .header("X-Forwarded-For", "203.0.113.7")
+                .build();
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        httpHandler.handle(request, response).block();
+        return response;
+    }
+}
@@ -0,0 +1,54 @@
+package com.urlshortener.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.entity.ShortUrl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг сущности в DTO и сериализация ответа API (настройки ObjectMapper как у Spring Boot)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseMappingBenchmark {
+
+    private static final String BASE_URL = "http://localhost:8090";
+
+    private ShortUrl shortUrl;
+    private ApiResponse<ShortUrlResponse> apiResponse;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        shortUrl = ShortUrl.builder()
+                .id("65f1c0a2e4b0a1b2c3d4e5f6")
+                .shortCode("abc1234")
+                .originalUrl("https://example.com/campaign/spring?utm_source=newsletter&utm_medium=email")
+                .userId("user1")
+                .clickCount(42L)
+                .active(true)
+                .expiresAt(LocalDateTime.of(2026, 12, 31, 23, 59))
+                .createdAt(LocalDateTime.of(2026, 1, 1, 0, 0))
+                .build();
+        apiResponse = ApiResponse.success(ShortUrlResponse.fromEntity(shortUrl, BASE_URL), "Ссылка создана");
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public ShortUrlResponse fromEntity() {
+        return ShortUrlResponse.fromEntity(shortUrl, BASE_URL);
+    }
+
+    @Benchmark
+    public byte[] serializeApiResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(apiResponse);
+    }
+}
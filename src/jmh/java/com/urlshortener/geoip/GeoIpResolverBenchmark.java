@@ -0,0 +1,67 @@
+package com.urlshortener.geoip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по базе GeoIP из 1 млн диапазонов: двоичный поиск в отображённом файле и попадание в кэш
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoIpResolverBenchmark {
+
+    private static final int RANGES = 1_000_000;
+
+    private Path databasePath;
+    private GeoIpDatabase database;
+    private GeoIpResolver resolver;
+    private int[] addresses;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<GeoIpRange> ranges = new ArrayList<>(RANGES);
+        int step = (int) ((1L << 32) / RANGES);
+        for (int i = 0; i < RANGES; i++) {
+            int start = i * step;
+            ranges.add(new GeoIpRange(start, start + step - 2, "C" + (i % 250), "City" + (i % 50_000)));
+        }
+        databasePath = Files.createTempFile("geoip", ".ugeo");
+        GeoIpDatabaseWriter.write(ranges, databasePath);
+        database = GeoIpDatabase.open(databasePath);
+        resolver = new GeoIpResolver(new SimpleMeterRegistry(), databasePath.toString(), 100_000);
+
+        SplittableRandom random = new SplittableRandom(42);
+        addresses = new int[1 << 16];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = random.nextInt();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(databasePath);
+    }
+
+    @Benchmark
+    public GeoLocation lookupUncached() {
+        return database.lookup(addresses[cursor++ & (addresses.length - 1)]);
+    }
+
+    @Benchmark
+    public GeoLocation resolveCached() {
+        return resolver.resolve("203.0.113.7");
+    }
+}
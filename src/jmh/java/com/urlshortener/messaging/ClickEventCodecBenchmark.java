@@ -0,0 +1,59 @@
+package com.urlshortener.messaging;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и разбор события клика: двоичный ClickEventCodec против JSON прежнего формата.
+ * Разбор идёт через тот же ContentTypeDelegatingMessageConverter, что и у потребителя,
+ * JSON включает перевод словаря в ClickEventMessage. Размер тела сообщения печатается при подготовке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClickEventCodecBenchmark {
+
+    @Param({"BINARY", "JSON"})
+    public String format;
+
+    private ClickEventMessage event;
+    private MessageConverter converter;
+    private MessageConverter encoder;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        event = new ClickEventMessage("abc1234", "65f1c0a2e4b0a1b2c3d4e5f6", "203.0.113.7",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36",
+                "https://www.google.com/", LocalDateTime.now());
+        ContentTypeDelegatingMessageConverter delegating =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter());
+        delegating.addDelegate(ClickEventMessageConverter.CONTENT_TYPE, new ClickEventMessageConverter());
+        converter = delegating;
+        encoder = "BINARY".equals(format) ? new ClickEventMessageConverter() : new Jackson2JsonMessageConverter();
+        message = encode();
+        System.out.printf("%n%s: %d байт в теле сообщения%n", format, message.getBody().length);
+    }
+
+    @Benchmark
+    public Message encode() {
+        return encoder.toMessage("BINARY".equals(format) ? event : event.toLegacyMap(), new MessageProperties());
+    }
+
+    @Benchmark
+    public ClickEventMessage decode() {
+        Object payload = converter.fromMessage(message);
+        return payload instanceof ClickEventMessage decoded ? decoded : ClickEventMessage.fromLegacyMap((Map<?, ?>) payload);
+    }
+}
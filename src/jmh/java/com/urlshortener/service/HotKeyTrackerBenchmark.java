@@ -0,0 +1,74 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.LocalUrlCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Затраты учёта перехода на пути редиректа при 4 потоках: HotKeyTracker.record
+ * (буфер разбирается фоновым потоком, как по расписанию в приложении) и, для сравнения,
+ * уже выполняемый на каждый переход ClickCounterBuffer.increment.
+ * Коды распределены по Ципфу: немного горячих и длинный хвост.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class HotKeyTrackerBenchmark {
+
+    private static final int CODES = 100_000;
+
+    @Param({"1", "8"})
+    public int sampleRate;
+
+    private String[] codes;
+    private HotKeyTracker tracker;
+    private ClickCounterBuffer clickCounterBuffer;
+    private ScheduledExecutorService drainer;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LocalUrlCache localUrlCache = new LocalUrlCache(meterRegistry, 10_000, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        tracker = new HotKeyTracker(localUrlCache, meterRegistry, true, 20, sampleRate, 65536, 65536, Duration.ofMinutes(1));
+        clickCounterBuffer = new ClickCounterBuffer(null, meterRegistry);
+
+        // Код с рангом r встречается с частотой ~1/r
+        codes = new String[1 << 16];
+        for (int i = 0; i < codes.length; i++) {
+            double u = ThreadLocalRandom.current().nextDouble();
+            codes[i] = "c" + (int) Math.pow(CODES, u);
+        }
+        drainer = Executors.newSingleThreadScheduledExecutor();
+        drainer.scheduleWithFixedDelay(tracker::drain, 100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        drainer.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = ThreadLocalRandom.current().nextInt();
+    }
+
+    @Benchmark
+    public void record(Cursor cursor) {
+        tracker.record(codes[cursor.next++ & (codes.length - 1)]);
+    }
+
+    @Benchmark
+    public void clickCounterIncrement(Cursor cursor) {
+        clickCounterBuffer.increment(codes[cursor.next++ & (codes.length - 1)]);
+    }
+}
@@ -0,0 +1,37 @@
+package com.urlshortener.shortcode;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация коротких кодов: случайный генератор и кодирование идентификатора счётчика
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortCodeGeneratorBenchmark {
+
+    private RandomShortCodeGenerator randomGenerator;
+    private CounterShortCodeGenerator counterGenerator;
+    private long id;
+
+    @Setup
+    public void setUp() {
+        randomGenerator = new RandomShortCodeGenerator(7);
+        counterGenerator = new CounterShortCodeGenerator(null, 7, 1000, true, "benchmark-scramble-key");
+    }
+
+    @Benchmark
+    public String random() {
+        return randomGenerator.generate();
+    }
+
+    @Benchmark
+    public String counterScrambled() {
+        return counterGenerator.encode(id++ & 0xFFFFFFFFL);
+    }
+}
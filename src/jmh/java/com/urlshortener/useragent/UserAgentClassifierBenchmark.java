@@ -0,0 +1,58 @@
+package com.urlshortener.useragent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Классификация User-Agent: кэшированный путь, однопроходный автомат без кэша
+ * и прежняя цепочка String.contains в качестве базовой линии
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserAgentClassifierBenchmark {
+
+    @Param({
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36 Edg/120.0.2210.91",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Mobile/15E148 Safari/604.1",
+            "Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0",
+            "curl/8.4.0"
+    })
+    public String userAgent;
+
+    private UserAgentClassifier classifier;
+
+    @Setup
+    public void setUp() {
+        classifier = new UserAgentClassifier(new SimpleMeterRegistry(), 10_000);
+    }
+
+    @Benchmark
+    public UserAgentInfo cached() {
+        return classifier.classify(userAgent);
+    }
+
+    @Benchmark
+    public UserAgentInfo uncached() {
+        return UserAgentClassifier.classifyUncached(userAgent);
+    }
+
+    @Benchmark
+    public void legacyContains(Blackhole blackhole) {
+        String lower = userAgent.toLowerCase();
+        blackhole.consume(lower.contains("mobile") || lower.contains("android") || lower.contains("iphone") ? "Mobile"
+                : lower.contains("tablet") || lower.contains("ipad") ? "Tablet" : "Desktop");
+        blackhole.consume(userAgent.contains("Chrome") ? "Chrome" : userAgent.contains("Firefox") ? "Firefox"
+                : userAgent.contains("Safari") ? "Safari" : userAgent.contains("Edge") ? "Edge"
+                : userAgent.contains("Opera") ? "Opera" : "Other");
+        blackhole.consume(userAgent.contains("Windows") ? "Windows" : userAgent.contains("Mac") ? "macOS"
+                : userAgent.contains("Linux") ? "Linux" : userAgent.contains("Android") ? "Android"
+                : userAgent.contains("iOS") || userAgent.contains("iPhone") ? "iOS" : "Other");
+    }
+}
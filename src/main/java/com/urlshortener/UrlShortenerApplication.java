@@ -2,11 +2,13 @@ package com.urlshortener;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Главный класс реактивного сервиса сокращения ссылок
  */
 @SpringBootApplication
+@EnableScheduling
 public class UrlShortenerApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,87 @@
+package com.urlshortener.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Шина инвалидации локального кэша между инстансами сервиса через Redis pub/sub.
+ * Каждый инстанс подписан на канал и удаляет полученные короткие коды из своего L1 кэша
+ * (вместе с надгробиями) и добавляет их в фильтр существующих кодов.
+ * При установке подписки фильтр строится заново, при её потере — приостанавливается.
+ */
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private final LocalUrlCache localUrlCache;
+    private final ShortCodeFilter shortCodeFilter;
+    private final String channel;
+
+    private Disposable subscription;
+
+    public CacheInvalidationBus(ReactiveRedisTemplate<String, String> redisTemplate,
+                                LocalUrlCache localUrlCache,
+                                ShortCodeFilter shortCodeFilter,
+                                @Value("${url-shortener.local-cache.invalidation-channel:url-shortener:cache-invalidation}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.localUrlCache = localUrlCache;
+        this.shortCodeFilter = shortCodeFilter;
+        this.channel = channel;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        // defer: контейнер подписки подключается к Redis сразу при создании,
+        // ошибка подключения должна уйти в retry, а не сорвать старт приложения
+        subscription = Mono.defer(() -> redisTemplate.listenToChannelLater(channel))
+                .flatMapMany(messages -> {
+                    log.info("Подписка на канал инвалидации кэша: {}", channel);
+                    // Подписка установлена: сообщения о новых кодах больше не теряются
+                    shortCodeFilter.rebuild().subscribe();
+                    return messages;
+                })
+                .doOnNext(message -> onInvalidation(message.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> {
+                            shortCodeFilter.suspend();
+                            log.warn("Переподписка на канал инвалидации кэша: {}", signal.failure().getMessage());
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Удаление кода из локального кэша этого инстанса и рассылка инвалидации остальным.
+     * Используется и для новых кодов: рассылка снимает надгробия и добавляет код в фильтры.
+     */
+    public Mono<Void> publish(String shortCode) {
+        onInvalidation(shortCode);
+        return redisTemplate.convertAndSend(channel, shortCode)
+                .doOnError(error -> log.error("Ошибка рассылки инвалидации кэша {}: {}", shortCode, error.getMessage()))
+                .then();
+    }
+
+    private void onInvalidation(String shortCode) {
+        localUrlCache.invalidate(shortCode);
+        shortCodeFilter.put(shortCode);
+    }
+}
@@ -0,0 +1,93 @@
+package com.urlshortener.cache;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Готовый ответ редиректа в L1 и Redis: статус, Location в ASCII-кодировке, заголовки кэширования
+ * (Cache-Control, Expires, ETag) и момент истечения ссылки (epoch millis). Ответ строится один раз
+ * политикой редиректов при заполнении кэша, на горячем пути остаётся поиск и запись готовых строк в заголовки.
+ * Надгробие (status == null) хранит в location отметку несуществующего, деактивированного
+ * или истёкшего кода.
+ */
+public record CachedRedirect(HttpStatus status, String location, String cacheControl,
+                             String expires, String etag, long expiresAt) {
+
+    /**
+     * Префикс надгробий; оригинальный URL проходит валидацию @URL и с него начинаться не может
+     */
+    public static final String TOMBSTONE_PREFIX = "!";
+
+    /**
+     * Срок действия бессрочной ссылки
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * Версия формата в Redis; значения других форматов считаются промахом и перечитываются из MongoDB
+     */
+    private static final String FORMAT = "v2";
+    private static final char SEPARATOR = '|';
+    private static final int FIELDS = 7;
+
+    public static CachedRedirect tombstone(String marker) {
+        return new CachedRedirect(null, marker, null, null, null, NEVER);
+    }
+
+    public boolean isTombstone() {
+        return status == null;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt <= nowMillis;
+    }
+
+    /**
+     * Строка для Redis: "v2|статус|истечение|Cache-Control|Expires|ETag|Location" или отметка надгробия.
+     * Location последний: он единственный может содержать разделитель.
+     */
+    public String encode() {
+        if (isTombstone()) {
+            return location;
+        }
+        return FORMAT + SEPARATOR + status.value() + SEPARATOR + expiresAt
+                + SEPARATOR + nullToEmpty(cacheControl) + SEPARATOR + nullToEmpty(expires)
+                + SEPARATOR + nullToEmpty(etag) + SEPARATOR + location;
+    }
+
+    /**
+     * Разбор значения из Redis; null для значений, записанных в прежнем формате до смены версии:
+     * вызывающий перечитывает ссылку из MongoDB и перезаписывает ключ
+     */
+    public static CachedRedirect decode(String value) {
+        if (value.startsWith(TOMBSTONE_PREFIX)) {
+            return tombstone(value);
+        }
+        if (!value.startsWith(FORMAT) || value.length() <= FORMAT.length() || value.charAt(FORMAT.length()) != SEPARATOR) {
+            return null;
+        }
+        int[] ends = new int[FIELDS - 1];
+        int from = 0;
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = value.indexOf(SEPARATOR, from);
+            if (ends[i] < 0) {
+                return null;
+            }
+            from = ends[i] + 1;
+        }
+        return new CachedRedirect(
+                HttpStatus.valueOf(Integer.parseInt(value, ends[0] + 1, ends[1], 10)),
+                value.substring(ends[5] + 1),
+                emptyToNull(value.substring(ends[2] + 1, ends[3])),
+                emptyToNull(value.substring(ends[3] + 1, ends[4])),
+                emptyToNull(value.substring(ends[4] + 1, ends[5])),
+                Long.parseLong(value, ends[1] + 1, ends[2], 10));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
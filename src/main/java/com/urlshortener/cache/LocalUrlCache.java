@@ -0,0 +1,97 @@
+package com.urlshortener.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Локальный (L1) кэш редиректов перед Redis.
+ * Ограничен по размеру и времени жизни записи, метрики попаданий/промахов/вытеснений
+ * публикуются в Micrometer под именем кэша "redirect-local".
+ * Хранит готовые ответы редиректа и "надгробия" — отметки о несуществующих, деактивированных
+ * и истёкших кодах с коротким временем жизни negative-ttl.
+ * Горячие коды (топ HotKeyTracker) закреплены: их записи имеют нулевой вес и не вытесняются по размеру,
+ * но истекают по ttl и удаляются инвалидацией как обычно.
+ */
+@Component
+public class LocalUrlCache {
+
+    static final String CACHE_NAME = "redirect-local";
+
+    private final Cache<String, CachedRedirect> cache;
+    private volatile Set<String> pinned = Set.of();
+
+    public LocalUrlCache(MeterRegistry meterRegistry,
+                         @Value("${url-shortener.local-cache.max-size:10000}") long maxSize,
+                         @Value("${url-shortener.local-cache.ttl:60s}") Duration ttl,
+                         @Value("${url-shortener.local-cache.negative-ttl:30s}") Duration negativeTtl) {
+        long ttlNanos = ttl.toNanos();
+        long negativeTtlNanos = negativeTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, CachedRedirect value) -> !value.isTombstone() && pinned.contains(key) ? 0 : 1)
+                .expireAfter(new Expiry<String, CachedRedirect>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedRedirect value, long currentTime) {
+                        return value.isTombstone() ? negativeTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedRedirect value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedRedirect value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Редирект или надгробие из локального кэша, null при промахе
+     */
+    public CachedRedirect get(String shortCode) {
+        return cache.getIfPresent(shortCode);
+    }
+
+    public void put(String shortCode, CachedRedirect redirect) {
+        cache.put(shortCode, redirect);
+    }
+
+    public void invalidate(String shortCode) {
+        cache.invalidate(shortCode);
+    }
+
+    /**
+     * Замена набора закреплённых кодов; вес пересчитывается для записей, вошедших в набор или покинувших его
+     */
+    public void pin(Set<String> shortCodes) {
+        Set<String> previous = pinned;
+        pinned = Set.copyOf(shortCodes);
+        for (String shortCode : shortCodes) {
+            if (!previous.contains(shortCode)) {
+                reweigh(shortCode);
+            }
+        }
+        for (String shortCode : previous) {
+            if (!shortCodes.contains(shortCode)) {
+                reweigh(shortCode);
+            }
+        }
+    }
+
+    private void reweigh(String shortCode) {
+        cache.asMap().computeIfPresent(shortCode, (key, value) -> value);
+    }
+}
@@ -0,0 +1,214 @@
+package com.urlshortener.cache;
+
+import com.urlshortener.entity.ShortUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума всех существующих коротких кодов.
+ * Код, которого нет в фильтре, гарантированно не существует — такой запрос отклоняется без обращения
+ * к Redis и MongoDB. Новые коды добавляются локально и на остальных инстансах через шину инвалидации.
+ * Фильтр строится заново из MongoDB при подписке на шину и периодически (удалённые коды из фильтра
+ * не убрать). Пока фильтр не построен или подписка на шину потеряна, он пропускает все коды.
+ */
+@Component
+public class ShortCodeFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortCodeFilter.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final long expectedCodes;
+    private final double falsePositiveRate;
+    private final Counter rejectedCounter;
+
+    /**
+     * Поколение меняется при потере подписки на шину: перестроение, начатое до этого, не включает фильтр
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private volatile boolean ready;
+
+    public ShortCodeFilter(ReactiveMongoTemplate mongoTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${url-shortener.short-code-filter.enabled:true}") boolean enabled,
+                           @Value("${url-shortener.short-code-filter.expected-codes:10000000}") long expectedCodes,
+                           @Value("${url-shortener.short-code-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.expectedCodes = expectedCodes;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rejectedCounter = Counter.builder("url.short-code-filter.rejected")
+                .description("Запросы несуществующих кодов, отклонённые фильтром Блума без обращения к хранилищам")
+                .register(meterRegistry);
+        Gauge.builder("url.short-code-filter.ready", this, filter -> filter.ready ? 1 : 0)
+                .description("Фильтр построен и отклоняет несуществующие коды")
+                .register(meterRegistry);
+    }
+
+    /**
+     * false, если кода точно нет; true, если код может существовать или фильтр не готов
+     */
+    public boolean mightContain(String shortCode) {
+        BloomFilter filter = current;
+        if (!ready || filter == null || filter.mightContain(shortCode)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    public void put(String shortCode) {
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(shortCode);
+        }
+        // Коды, созданные во время перестроения, попадают и в новый фильтр
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(shortCode);
+        }
+    }
+
+    /**
+     * Подписка на шину потеряна: добавления с других инстансов могли быть пропущены
+     */
+    public void suspend() {
+        if (ready) {
+            log.warn("Фильтр коротких кодов отключён до перестроения");
+        }
+        generation.incrementAndGet();
+        ready = false;
+    }
+
+    /**
+     * Построение фильтра по всем кодам из MongoDB (покрывающий запрос по уникальному индексу shortCode).
+     * Размер рассчитывается по числу ссылок с запасом, но не меньше expected-codes.
+     */
+    public Mono<Void> rebuild() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        long startedGeneration = generation.get();
+        Query query = new Query().withHint(new Document("shortCode", 1));
+        query.fields().include("shortCode").exclude("_id");
+
+        return mongoTemplate.estimatedCount(ShortUrl.class)
+                .flatMap(count -> {
+                    BloomFilter next = new BloomFilter(Math.max(expectedCodes, count * 2), falsePositiveRate);
+                    building = next;
+                    return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(ShortUrl.class))
+                            .doOnNext(document -> next.put(document.getString("shortCode")))
+                            .count()
+                            .doOnNext(loaded -> {
+                                current = next;
+                                ready = generation.get() == startedGeneration;
+                                log.info("Фильтр коротких кодов построен: {} кодов, {} КБ", loaded, next.sizeInBytes() / 1024);
+                            });
+                })
+                .doOnError(error -> log.error("Не удалось построить фильтр коротких кодов: {}", error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> building = null)
+                .then();
+    }
+
+    /**
+     * Периодическое перестроение убирает удалённые коды; приостановленный фильтр остаётся выключенным
+     * до восстановления подписки на шину
+     */
+    @Scheduled(fixedDelayString = "${url-shortener.short-code-filter.rebuild-interval:PT6H}",
+            initialDelayString = "${url-shortener.short-code-filter.rebuild-interval:PT6H}")
+    public Mono<Void> scheduledRebuild() {
+        return ready ? rebuild() : Mono.empty();
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Фильтр Блума на AtomicLongArray: установка битов без блокировок, k индексов по схеме двойного хеширования
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash = hash(value);
+            long h1 = hash;
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long existing = bits.get(word);
+                if ((existing & mask) == 0) {
+                    bits.accumulateAndGet(word, mask, (a, b) -> a | b);
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            long h1 = hash;
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long sizeInBytes() {
+            return bitCount / 8;
+        }
+
+        /**
+         * FNV-1a по символам строки с финальным перемешиванием murmur3, без выделения памяти
+         */
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
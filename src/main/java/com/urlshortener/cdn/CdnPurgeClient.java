@@ -0,0 +1,63 @@
+package com.urlshortener.cdn;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Очистка кэша CDN по Surrogate-Key (коду ссылки) при деактивации и удалении.
+ * purge-url - шаблон адреса API очистки с подстановкой {key}, например
+ * https://api.fastly.com/service/SERVICE_ID/purge/{key}; пустой адрес отключает очистку.
+ * Ошибки CDN только логируются: кэш CDN в любом случае истечёт через edge-max-age.
+ */
+@Component
+public class CdnPurgeClient {
+
+    private static final Logger log = LoggerFactory.getLogger(CdnPurgeClient.class);
+
+    private final WebClient webClient;
+    private final String purgeUrl;
+    private final Duration timeout;
+
+    public CdnPurgeClient(WebClient.Builder webClientBuilder,
+                          @Value("${url-shortener.cdn.purge-url:}") String purgeUrl,
+                          @Value("${url-shortener.cdn.token-header:Fastly-Key}") String tokenHeader,
+                          @Value("${url-shortener.cdn.token:}") String token,
+                          @Value("${url-shortener.cdn.timeout:2s}") Duration timeout) {
+        if (!token.isEmpty()) {
+            webClientBuilder = webClientBuilder.clone().defaultHeader(tokenHeader, token);
+        }
+        this.webClient = webClientBuilder.build();
+        this.purgeUrl = purgeUrl;
+        this.timeout = timeout;
+    }
+
+    public boolean isEnabled() {
+        return !purgeUrl.isEmpty();
+    }
+
+    /**
+     * Очистка ответов с данным Surrogate-Key; без настроенного адреса - пустая операция
+     */
+    public Mono<Void> purge(String surrogateKey) {
+        if (!isEnabled()) {
+            return Mono.empty();
+        }
+        return webClient.post()
+                .uri(purgeUrl, surrogateKey)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .doOnSuccess(response -> log.debug("Кэш CDN очищен: {}", surrogateKey))
+                .onErrorResume(error -> {
+                    log.warn("Не удалось очистить кэш CDN для {}: {}", surrogateKey, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
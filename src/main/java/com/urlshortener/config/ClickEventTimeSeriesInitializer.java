@@ -0,0 +1,259 @@
+package com.urlshortener.config;
+
+import com.mongodb.MongoNamespace;
+import com.urlshortener.entity.ClickEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Режим хранения событий кликов в коллекции временных рядов MongoDB.
+ * click_events создаётся с timeField clickedAt и metaField shortCode: события одной ссылки
+ * укладываются в общие сжатые бакеты, а запросы по (shortCode, clickedAt) читают бакеты вместо документов.
+ * Выполняется до запуска слушателей RabbitMQ, чтобы первая вставка не создала обычную коллекцию.
+ * Перенос существующей обычной коллекции - analytics.click-events.migrate=true.
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.click-events.storage", havingValue = "time-series")
+public class ClickEventTimeSeriesInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickEventTimeSeriesInitializer.class);
+
+    static final String COLLECTION = "click_events";
+    static final String LEGACY_COLLECTION = "click_events_legacy";
+    static final String MIGRATIONS_COLLECTION = "migrations";
+    static final String MIGRATION_ID = "click-events-time-series";
+    private static final int COPY_BATCH_SIZE = 1000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Granularity granularity;
+    private final boolean migrate;
+    private final Duration startupTimeout;
+
+    public ClickEventTimeSeriesInitializer(ReactiveMongoTemplate mongoTemplate,
+                                           @Value("${analytics.click-events.granularity:MINUTES}") Granularity granularity,
+                                           @Value("${analytics.click-events.migrate:false}") boolean migrate,
+                                           @Value("${analytics.click-events.startup-timeout:30s}") Duration startupTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.granularity = granularity;
+        this.migrate = migrate;
+        this.startupTimeout = startupTimeout;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (migrate) {
+            // Миграция - разовая команда: запуск ждёт её завершения без ограничения по времени
+            Long copied = migrate().block();
+            log.info("Миграция click_events в коллекцию временных рядов завершена, перенесено событий: {}", copied);
+            return;
+        }
+        try {
+            ensureTimeSeries().block(startupTimeout);
+        } catch (RuntimeException e) {
+            log.error("Не удалось подготовить коллекцию временных рядов click_events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Создание коллекции временных рядов при старте.
+     * Пустую обычную коллекцию (её могло создать автосоздание индексов) пересоздаём,
+     * непустую оставляем как есть до явной миграции.
+     */
+    Mono<Void> ensureTimeSeries() {
+        return collectionType(COLLECTION)
+                .flatMap(type -> {
+                    if ("timeseries".equals(type)) {
+                        return Mono.<Void>empty();
+                    }
+                    return mongoTemplate.exists(new Query(), COLLECTION)
+                            .flatMap(hasEvents -> {
+                                if (hasEvents) {
+                                    log.warn("Коллекция click_events обычная и содержит события; " +
+                                            "для перехода на временные ряды запустите с analytics.click-events.migrate=true");
+                                    return Mono.<Void>empty();
+                                }
+                                return mongoTemplate.dropCollection(COLLECTION).then(createTimeSeries());
+                            });
+                })
+                .switchIfEmpty(Mono.defer(this::createTimeSeries));
+    }
+
+    /**
+     * Перенос обычной коллекции: переименование в click_events_legacy, создание коллекции временных рядов
+     * и потоковое копирование пачками в порядке _id. Исходная коллекция сохраняется и удаляется вручную после проверки.
+     * После каждой пачки число скопированных событий записывается в migrations: прерванный перенос
+     * при следующем запуске продолжается с этого места, а первая пачка сверяется с уже вставленными событиями.
+     */
+    Mono<Long> migrate() {
+        return Mono.zip(collectionType(COLLECTION).defaultIfEmpty(""), mongoTemplate.collectionExists(LEGACY_COLLECTION))
+                .flatMap(state -> {
+                    String type = state.getT1();
+                    boolean legacyExists = state.getT2();
+                    if ("timeseries".equals(type)) {
+                        if (!legacyExists) {
+                            log.info("click_events уже является коллекцией временных рядов");
+                            return Mono.just(0L);
+                        }
+                        return resumeCopy();
+                    }
+                    if (type.isEmpty()) {
+                        // Новая установка либо сбой между переименованием и созданием коллекции
+                        return legacyExists ? createTimeSeries().then(resumeCopy()) : createTimeSeries().thenReturn(0L);
+                    }
+                    if (legacyExists) {
+                        // Пустую обычную коллекцию после переименования могло создать автосоздание индексов
+                        return mongoTemplate.exists(new Query(), COLLECTION)
+                                .flatMap(hasEvents -> hasEvents
+                                        ? Mono.error(new IllegalStateException("Коллекции " + COLLECTION + " и "
+                                                + LEGACY_COLLECTION + " обе содержат события, миграция прервана"))
+                                        : mongoTemplate.dropCollection(COLLECTION)
+                                                .then(createTimeSeries())
+                                                .then(resumeCopy()));
+                    }
+                    return mongoTemplate.remove(query(where("_id").is(MIGRATION_ID)), MIGRATIONS_COLLECTION)
+                            .then(renameToLegacy())
+                            .then(createTimeSeries())
+                            .then(copyLegacyEvents(0, false));
+                });
+    }
+
+    private Mono<Long> resumeCopy() {
+        return mongoTemplate.findById(MIGRATION_ID, Document.class, MIGRATIONS_COLLECTION)
+                .defaultIfEmpty(new Document())
+                .flatMap(checkpoint -> {
+                    if (checkpoint.getBoolean("completed", false)) {
+                        log.info("click_events уже перенесена в коллекцию временных рядов, {} остаётся до ручного удаления",
+                                LEGACY_COLLECTION);
+                        return Mono.just(0L);
+                    }
+                    long copied = checkpoint.get("copied", Number.class) != null
+                            ? checkpoint.get("copied", Number.class).longValue() : 0L;
+                    log.warn("Продолжение прерванного переноса click_events: пропускается {} уже скопированных событий",
+                            copied);
+                    return copyLegacyEvents(copied, true);
+                });
+    }
+
+    private Mono<Void> renameToLegacy() {
+        return mongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.getCollection(COLLECTION)
+                        .renameCollection(new MongoNamespace(database.getName(), LEGACY_COLLECTION))))
+                .doOnSuccess(ignored -> log.info("click_events переименована в {}", LEGACY_COLLECTION));
+    }
+
+    /**
+     * Копирование событий исходной коллекции, начиная с позиции skip в порядке _id
+     * (исходная коллекция после переименования не меняется, поэтому позиция устойчива).
+     * Возвращает число вставленных событий.
+     */
+    private Mono<Long> copyLegacyEvents(long skip, boolean resuming) {
+        // Поле времени обязательно для коллекции временных рядов
+        Query query = new Query(where("clickedAt").exists(true)).with(Sort.by("_id")).skip(skip);
+        AtomicLong copied = new AtomicLong(skip);
+        return mongoTemplate.find(query, Document.class, LEGACY_COLLECTION)
+                .buffer(COPY_BATCH_SIZE)
+                .index()
+                .concatMap(indexed -> {
+                    List<Document> batch = indexed.getT2();
+                    // Пачка, на которой перенос прервался, могла успеть вставиться целиком или частично
+                    Mono<List<Document>> toInsert = resuming && indexed.getT1() == 0
+                            ? withoutInserted(batch)
+                            : Mono.just(batch);
+                    return toInsert
+                            .flatMap(documents -> documents.isEmpty()
+                                    ? Mono.just(0L)
+                                    : mongoTemplate.insert(documents, COLLECTION).count())
+                            .flatMap(inserted -> saveCheckpoint(copied.addAndGet(batch.size()), false)
+                                    .thenReturn(inserted));
+                })
+                .reduce(0L, Long::sum)
+                .flatMap(inserted -> saveCheckpoint(copied.get(), true).thenReturn(inserted));
+    }
+
+    /**
+     * События пачки, которых ещё нет в коллекции временных рядов.
+     * Поиск ограничен ссылками и интервалом времени пачки, чтобы читались только её бакеты.
+     */
+    private Mono<List<Document>> withoutInserted(List<Document> batch) {
+        List<Object> ids = new ArrayList<>(batch.size());
+        Set<Object> shortCodes = new HashSet<>();
+        Date from = null;
+        Date to = null;
+        for (Document event : batch) {
+            ids.add(event.get("_id"));
+            shortCodes.add(event.get("shortCode"));
+            Date clickedAt = event.getDate("clickedAt");
+            from = from == null || clickedAt.before(from) ? clickedAt : from;
+            to = to == null || clickedAt.after(to) ? clickedAt : to;
+        }
+        Query query = query(where("shortCode").in(shortCodes).and("clickedAt").gte(from).lte(to).and("_id").in(ids));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, COLLECTION)
+                .map(document -> document.get("_id"))
+                .collect(Collectors.toSet())
+                .map(inserted -> batch.stream().filter(event -> !inserted.contains(event.get("_id"))).toList());
+    }
+
+    private Mono<Void> saveCheckpoint(long copied, boolean completed) {
+        Update update = new Update().set("copied", copied).set("completed", completed).set("updatedAt", new Date());
+        return mongoTemplate.upsert(query(where("_id").is(MIGRATION_ID)), update, MIGRATIONS_COLLECTION).then();
+    }
+
+    private Mono<Void> createTimeSeries() {
+        CollectionOptions options = CollectionOptions.empty()
+                .timeSeries(CollectionOptions.TimeSeriesOptions.timeSeries("clickedAt")
+                        .metaField("shortCode")
+                        .granularity(granularity));
+        return mongoTemplate.createCollection(COLLECTION, options)
+                .doOnSuccess(collection -> log.info("Создана коллекция временных рядов click_events (гранулярность {})",
+                        granularity))
+                .thenMany(ensureIndexes())
+                .then();
+    }
+
+    /**
+     * Индексы сущности заново: автосоздание индексов могло отработать на удалённой обычной коллекции
+     */
+    private Flux<String> ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        return Flux.fromIterable(resolver.resolveIndexFor(ClickEvent.class))
+                .concatMap(index -> mongoTemplate.indexOps(COLLECTION).ensureIndex(index));
+    }
+
+    /**
+     * Тип коллекции (collection, timeseries, view) или пусто, если её нет
+     */
+    private Mono<String> collectionType(String name) {
+        Document command = new Document("listCollections", 1).append("filter", new Document("name", name));
+        return mongoTemplate.executeCommand(command)
+                .flatMapIterable(result -> result.get("cursor", Document.class).getList("firstBatch", Document.class))
+                .next()
+                .map(info -> info.getString("type"));
+    }
+}
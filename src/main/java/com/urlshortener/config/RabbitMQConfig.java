@@ -1,14 +1,20 @@
 package com.urlshortener.config;
 
+import com.urlshortener.messaging.ClickEventMessageConverter;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Конфигурация RabbitMQ
  */
@@ -30,6 +36,15 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-keys.created}")
     private String createdRoutingKey;
 
+    @Value("${rabbitmq.consumer.batch-size:500}")
+    private int consumerBatchSize;
+
+    @Value("${rabbitmq.consumer.receive-timeout:200ms}")
+    private Duration consumerReceiveTimeout;
+
+    @Value("${rabbitmq.publisher.observation-enabled:true}")
+    private boolean publisherObservationEnabled;
+
     @Bean
     public Queue analyticsQueue() {
         return QueueBuilder.durable(analyticsQueue).build();
@@ -55,15 +70,46 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(analyticsQueue).to(analyticsExchange).with(createdRoutingKey);
     }
 
+    /**
+     * Выбор конвертера по типу содержимого: события кликов в двоичном формате,
+     * остальные сообщения и клики прежнего формата - JSON
+     */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter() {
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter());
+        converter.addDelegate(ClickEventMessageConverter.CONTENT_TYPE, new ClickEventMessageConverter());
+        return converter;
     }
 
+    /**
+     * Шаблон отправки; с наблюдением публикация попадает в трассировку,
+     * а контекст трассы уходит в заголовках сообщения к потребителю
+     */
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter());
+        rabbitTemplate.setObservationEnabled(publisherObservationEnabled);
         return rabbitTemplate;
     }
+
+    /**
+     * Фабрика пакетных слушателей: сообщения накапливаются до batch-size
+     * или пока очередь молчит дольше receive-timeout, и подтверждаются после обработки всей пачки.
+     * receive-timeout - пауза между соседними сообщениями, а не предел ожидания пачки:
+     * при редком, но непрерывном потоке пачка собирается до batch-size × receive-timeout.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(consumerBatchSize);
+        factory.setPrefetchCount(consumerBatchSize * 2);
+        factory.setReceiveTimeout(consumerReceiveTimeout.toMillis());
+        return factory;
+    }
 }
@@ -1,8 +1,12 @@
 package com.urlshortener.controller;
 
+import com.urlshortener.cache.CachedRedirect;
 import com.urlshortener.service.ShortUrlService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
@@ -11,7 +15,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
-import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Контроллер для редиректов по коротким ссылкам
@@ -20,10 +24,24 @@ import java.net.URI;
 @Tag(name = "Redirect", description = "Редирект по коротким ссылкам")
 public class RedirectController {
 
+    static final String SURROGATE_KEY = "Surrogate-Key";
+
     private final ShortUrlService shortUrlService;
+    private final Timer redirectLatency;
 
-    public RedirectController(ShortUrlService shortUrlService) {
+    public RedirectController(ShortUrlService shortUrlService, MeterRegistry meterRegistry) {
         this.shortUrlService = shortUrlService;
+        this.redirectLatency = redirectLatency(meterRegistry, "controller");
+    }
+
+    /**
+     * Время успешного редиректа от получения кода до записи ответа; path - controller или быстрый путь filter
+     */
+    static Timer redirectLatency(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("url.redirect.latency")
+                .description("Поиск готового редиректа в кэшах или MongoDB и запись ответа")
+                .tag("path", path)
+                .register(meterRegistry);
     }
 
     @GetMapping("/{shortCode}")
@@ -33,23 +51,47 @@ public class RedirectController {
             ServerHttpRequest request,
             ServerHttpResponse response) {
         
-        String ipAddress = getClientIp(request);
+        String ipAddress = clientIp(request);
         String userAgent = request.getHeaders().getFirst("User-Agent");
         String referer = request.getHeaders().getFirst("Referer");
 
-        return shortUrlService.getOriginalUrl(shortCode)
-                .flatMap(originalUrl -> {
+        long started = System.nanoTime();
+        return shortUrlService.getRedirect(shortCode)
+                .flatMap(redirect -> {
                     // Асинхронно записываем клик
                     shortUrlService.recordClick(shortCode, ipAddress, userAgent, referer).subscribe();
                     
                     // Выполняем редирект
-                    response.setStatusCode(HttpStatus.MOVED_PERMANENTLY);
-                    response.getHeaders().setLocation(URI.create(originalUrl));
-                    return response.setComplete();
-                });
+                    return write(shortCode, redirect, request, response);
+                })
+                .doOnSuccess(done -> redirectLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Запись готового редиректа: статус и заголовки из кэша, без разбора URL.
+     * Surrogate-Key (код ссылки) позволяет очистить кэш CDN при деактивации и удалении;
+     * совпавший If-None-Match (перепроверка браузером или CDN) получает 304 без Location.
+     */
+    static Mono<Void> write(String shortCode, CachedRedirect redirect,
+                            ServerHttpRequest request, ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.CACHE_CONTROL, redirect.cacheControl());
+        headers.set(HttpHeaders.EXPIRES, redirect.expires());
+        headers.set(HttpHeaders.ETAG, redirect.etag());
+        headers.set(SURROGATE_KEY, shortCode);
+        if (redirect.etag().equals(request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        } else {
+            response.setStatusCode(redirect.status());
+            headers.set(HttpHeaders.LOCATION, redirect.location());
+        }
+        return response.setComplete();
     }
 
-    private String getClientIp(ServerHttpRequest request) {
+    /**
+     * IP клиента с учётом прокси (используется и быстрым путём редиректа)
+     */
+    static String clientIp(ServerHttpRequest request) {
         String xForwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
             return xForwardedFor.split(",")[0].trim();
@@ -0,0 +1,97 @@
+package com.urlshortener.controller;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.service.ShortUrlService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Быстрый путь редиректа: GET /{shortCode} обрабатывается фильтром до цепочки Spring Security
+ * и диспетчеризации аннотированных контроллеров. Ответ записывается из готового редиректа в кэше.
+ * Коды с другими символами (алиасы не ограничены алфавитом) обслуживает контроллер.
+ * Ошибки (несуществующий, деактивированный код, недоступные хранилища) не обрабатываются здесь:
+ * запрос передаётся дальше по цепочке, и ответ формирует RedirectController с GlobalExceptionHandler.
+ * Включается url-shortener.fast-redirect.enabled=true.
+ */
+@Component
+@Order(-200) // раньше WebFilterChainProxy Spring Security (-100)
+@ConditionalOnProperty(name = "url-shortener.fast-redirect.enabled", havingValue = "true")
+public class RedirectWebFilter implements WebFilter {
+
+    /**
+     * Односегментные пути приложения, которые не являются короткими кодами
+     */
+    private static final Set<String> RESERVED_PATHS = Set.of("api", "api-docs", "actuator", "webjars", "swagger-ui");
+
+    private final ShortUrlService shortUrlService;
+    private final int maxCodeLength;
+    private final Timer redirectLatency;
+
+    public RedirectWebFilter(ShortUrlService shortUrlService,
+                             MeterRegistry meterRegistry,
+                             @Value("${url-shortener.max-custom-alias-length:20}") int maxCodeLength) {
+        this.shortUrlService = shortUrlService;
+        this.maxCodeLength = maxCodeLength;
+        this.redirectLatency = RedirectController.redirectLatency(meterRegistry, "filter");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String shortCode = request.getMethod() == HttpMethod.GET ? shortCode(request.getPath().value()) : null;
+        if (shortCode == null) {
+            return chain.filter(exchange);
+        }
+
+        long started = System.nanoTime();
+        return shortUrlService.getRedirect(shortCode)
+                .map(redirect -> redirect(exchange, shortCode, redirect, started))
+                // Только ошибки поиска ссылки: после записи ответа передавать запрос дальше нельзя
+                .onErrorResume(error -> Mono.just(chain.filter(exchange)))
+                .flatMap(Function.identity());
+    }
+
+    private Mono<Void> redirect(ServerWebExchange exchange, String shortCode, CachedRedirect redirect, long started) {
+        ServerHttpRequest request = exchange.getRequest();
+        shortUrlService.recordClick(shortCode, RedirectController.clientIp(request),
+                request.getHeaders().getFirst(HttpHeaders.USER_AGENT),
+                request.getHeaders().getFirst(HttpHeaders.REFERER)).subscribe();
+        return RedirectController.write(shortCode, redirect, request, exchange.getResponse())
+                .doOnSuccess(done -> redirectLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Код из пути вида /{shortCode} без выделения памяти на регулярные выражения; null - не редирект
+     */
+    String shortCode(String path) {
+        int length = path.length();
+        if (length < 2 || length > maxCodeLength + 1 || path.charAt(0) != '/') {
+            return null;
+        }
+        for (int i = 1; i < length; i++) {
+            char c = path.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            if (!allowed) {
+                return null;
+            }
+        }
+        String shortCode = path.substring(1);
+        return RESERVED_PATHS.contains(shortCode) ? null : shortCode;
+    }
+}
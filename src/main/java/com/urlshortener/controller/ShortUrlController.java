@@ -1,20 +1,25 @@
 package com.urlshortener.controller;
 
 import com.urlshortener.dto.ApiResponse;
+import com.urlshortener.dto.BulkCreateResult;
 import com.urlshortener.dto.CreateShortUrlRequest;
 import com.urlshortener.dto.ShortUrlResponse;
 import com.urlshortener.dto.UrlStatsResponse;
 import com.urlshortener.service.AnalyticsService;
+import com.urlshortener.service.BulkShortUrlService;
 import com.urlshortener.service.ShortUrlService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Реактивный REST контроллер для управления короткими ссылками
  */
@@ -23,12 +28,17 @@ import reactor.core.publisher.Mono;
 @Tag(name = "URL Shortener", description = "API для сокращения ссылок")
 public class ShortUrlController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ShortUrlService shortUrlService;
     private final AnalyticsService analyticsService;
+    private final BulkShortUrlService bulkShortUrlService;
 
-    public ShortUrlController(ShortUrlService shortUrlService, AnalyticsService analyticsService) {
+    public ShortUrlController(ShortUrlService shortUrlService, AnalyticsService analyticsService,
+                              BulkShortUrlService bulkShortUrlService) {
         this.shortUrlService = shortUrlService;
         this.analyticsService = analyticsService;
+        this.bulkShortUrlService = bulkShortUrlService;
     }
 
     @PostMapping
@@ -45,6 +55,19 @@ public class ShortUrlController {
                         .body(ApiResponse.success(response, "Ссылка создана")));
     }
 
+    @PostMapping(value = "/bulk",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Пакетное создание коротких ссылок (NDJSON на входе и выходе)")
+    public Flux<BulkCreateResult> createShortUrls(
+            @RequestBody Flux<CreateShortUrlRequest> requests,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+
+        String effectiveUserId = userId != null ? userId : "anonymous";
+
+        return bulkShortUrlService.createShortUrls(requests, effectiveUserId);
+    }
+
     @GetMapping("/{shortCode}")
     @Operation(summary = "Получение информации о ссылке")
     public Mono<ResponseEntity<ApiResponse<ShortUrlResponse>>> getShortUrl(@PathVariable String shortCode) {
@@ -59,10 +82,28 @@ public class ShortUrlController {
                 .map(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 
-    @GetMapping("/user/{userId}")
-    @Operation(summary = "Получение всех ссылок пользователя")
-    public Flux<ShortUrlResponse> getUserUrls(@PathVariable String userId) {
-        return shortUrlService.getUserUrls(userId);
+    @GetMapping(value = "/user/{userId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Получение ссылок пользователя постранично (курсор следующей страницы в X-Next-Cursor)")
+    public Mono<ResponseEntity<List<ShortUrlResponse>>> getUserUrls(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return shortUrlService.getUserUrls(userId, cursor, limit)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.nextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+                    }
+                    return response.body(page.items());
+                });
+    }
+
+    @GetMapping(value = "/user/{userId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Потоковая выдача всех ссылок пользователя (NDJSON)")
+    public Flux<ShortUrlResponse> streamUserUrls(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor) {
+        return shortUrlService.streamUserUrls(userId, cursor);
     }
 
     @DeleteMapping("/{shortCode}")
@@ -0,0 +1,42 @@
+package com.urlshortener.dto;
+
+/**
+ * Результат создания одной ссылки в пакетном импорте (одна строка NDJSON-ответа).
+ * index - номер строки во входном потоке, начиная с нуля.
+ */
+public class BulkCreateResult {
+
+    private long index;
+    private boolean success;
+    private ShortUrlResponse url;
+    private String error;
+
+    public BulkCreateResult() {}
+
+    public BulkCreateResult(long index, boolean success, ShortUrlResponse url, String error) {
+        this.index = index;
+        this.success = success;
+        this.url = url;
+        this.error = error;
+    }
+
+    public static BulkCreateResult created(long index, ShortUrlResponse url) {
+        return new BulkCreateResult(index, true, url, null);
+    }
+
+    public static BulkCreateResult failed(long index, String error) {
+        return new BulkCreateResult(index, false, null, error);
+    }
+
+    // Getters
+    public long getIndex() { return index; }
+    public boolean isSuccess() { return success; }
+    public ShortUrlResponse getUrl() { return url; }
+    public String getError() { return error; }
+
+    // Setters
+    public void setIndex(long index) { this.index = index; }
+    public void setSuccess(boolean success) { this.success = success; }
+    public void setUrl(ShortUrlResponse url) { this.url = url; }
+    public void setError(String error) { this.error = error; }
+}
@@ -1,5 +1,8 @@
 package com.urlshortener.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.urlshortener.service.RedirectPolicy;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.hibernate.validator.constraints.URL;
@@ -18,6 +21,11 @@ public class CreateShortUrlRequest {
 
     private Integer expirationDays;
 
+    /**
+     * Код ответа редиректа: 301, 302, 307 или 308; не задан - глобальная политика
+     */
+    private Integer redirectStatus;
+
     public CreateShortUrlRequest() {}
 
     public CreateShortUrlRequest(String originalUrl, String customAlias, Integer expirationDays) {
@@ -32,4 +40,18 @@ public class CreateShortUrlRequest {
     public void setCustomAlias(String customAlias) { this.customAlias = customAlias; }
     public Integer getExpirationDays() { return expirationDays; }
     public void setExpirationDays(Integer expirationDays) { this.expirationDays = expirationDays; }
+    public Integer getRedirectStatus() { return redirectStatus; }
+    public void setRedirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; }
+
+    @JsonIgnore
+    @AssertTrue(message = "Код редиректа должен быть 301, 302, 307 или 308")
+    public boolean isRedirectStatusSupported() {
+        return redirectStatus == null || RedirectPolicy.isSupported(redirectStatus);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "URL содержит недопустимые символы")
+    public boolean isOriginalUrlValidLocation() {
+        return originalUrl == null || RedirectPolicy.isValidLocation(originalUrl);
+    }
 }
@@ -16,6 +16,7 @@ public class ShortUrlResponse {
     private boolean active;
     private LocalDateTime expiresAt;
     private LocalDateTime createdAt;
+    private Integer redirectStatus;
 
     public ShortUrlResponse() {}
 
@@ -40,6 +41,7 @@ public class ShortUrlResponse {
     public boolean isActive() { return active; }
     public LocalDateTime getExpiresAt() { return expiresAt; }
     public LocalDateTime getCreatedAt() { return createdAt; }
+    public Integer getRedirectStatus() { return redirectStatus; }
 
     // Setters
     public void setId(String id) { this.id = id; }
@@ -50,6 +52,7 @@ public class ShortUrlResponse {
     public void setActive(boolean active) { this.active = active; }
     public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public void setRedirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; }
 
     public static ShortUrlResponse fromEntity(ShortUrl shortUrl, String baseUrl) {
         return ShortUrlResponse.builder()
@@ -61,6 +64,7 @@ public class ShortUrlResponse {
                 .active(shortUrl.isActive())
                 .expiresAt(shortUrl.getExpiresAt())
                 .createdAt(shortUrl.getCreatedAt())
+                .redirectStatus(shortUrl.getRedirectStatus())
                 .build();
     }
 
@@ -71,6 +75,7 @@ public class ShortUrlResponse {
         private Long clickCount;
         private boolean active;
         private LocalDateTime expiresAt, createdAt;
+        private Integer redirectStatus;
 
         public Builder id(String id) { this.id = id; return this; }
         public Builder shortCode(String shortCode) { this.shortCode = shortCode; return this; }
@@ -80,9 +85,13 @@ public class ShortUrlResponse {
         public Builder active(boolean active) { this.active = active; return this; }
         public Builder expiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; return this; }
         public Builder createdAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
+        public Builder redirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; return this; }
 
         public ShortUrlResponse build() {
-            return new ShortUrlResponse(id, shortCode, shortUrl, originalUrl, clickCount, active, expiresAt, createdAt);
+            ShortUrlResponse response = new ShortUrlResponse(id, shortCode, shortUrl, originalUrl,
+                    clickCount, active, expiresAt, createdAt);
+            response.setRedirectStatus(redirectStatus);
+            return response;
         }
     }
 }
@@ -17,6 +17,7 @@ public class UrlStatsResponse {
     private Map<String, Long> clicksByCountry;
     private Map<String, Long> deviceStats;
     private Map<String, Long> browserStats;
+    private Map<String, Long> osStats;
     private Map<String, Long> clicksByHour;
     private LocalDateTime createdAt;
     private LocalDateTime lastClickAt;
@@ -33,6 +34,7 @@ public class UrlStatsResponse {
     public Map<String, Long> getClicksByCountry() { return clicksByCountry; }
     public Map<String, Long> getDeviceStats() { return deviceStats; }
     public Map<String, Long> getBrowserStats() { return browserStats; }
+    public Map<String, Long> getOsStats() { return osStats; }
     public Map<String, Long> getClicksByHour() { return clicksByHour; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getLastClickAt() { return lastClickAt; }
@@ -47,6 +49,7 @@ public class UrlStatsResponse {
     public void setClicksByCountry(Map<String, Long> clicksByCountry) { this.clicksByCountry = clicksByCountry; }
     public void setDeviceStats(Map<String, Long> deviceStats) { this.deviceStats = deviceStats; }
     public void setBrowserStats(Map<String, Long> browserStats) { this.browserStats = browserStats; }
+    public void setOsStats(Map<String, Long> osStats) { this.osStats = osStats; }
     public void setClicksByHour(Map<String, Long> clicksByHour) { this.clicksByHour = clicksByHour; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public void setLastClickAt(LocalDateTime lastClickAt) { this.lastClickAt = lastClickAt; }
@@ -65,6 +68,7 @@ public class UrlStatsResponse {
         public Builder clicksByCountry(Map<String, Long> clicksByCountry) { instance.clicksByCountry = clicksByCountry; return this; }
         public Builder deviceStats(Map<String, Long> deviceStats) { instance.deviceStats = deviceStats; return this; }
         public Builder browserStats(Map<String, Long> browserStats) { instance.browserStats = browserStats; return this; }
+        public Builder osStats(Map<String, Long> osStats) { instance.osStats = osStats; return this; }
         public Builder clicksByHour(Map<String, Long> clicksByHour) { instance.clicksByHour = clicksByHour; return this; }
         public Builder createdAt(LocalDateTime createdAt) { instance.createdAt = createdAt; return this; }
         public Builder lastClickAt(LocalDateTime lastClickAt) { instance.lastClickAt = lastClickAt; return this; }
@@ -0,0 +1,88 @@
+package com.urlshortener.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Архивный сегмент кликов по ссылке за сутки.
+ * Сами клики хранятся в columns в сжатом колоночном виде со словарями значений,
+ * а распределения по странам, устройствам, браузерам и часам посчитаны заранее,
+ * чтобы статистика читалась без распаковки.
+ */
+@Document(collection = "click_archive")
+@CompoundIndex(name = "code_day_idx", def = "{'shortCode': 1, 'day': 1}")
+public class ClickArchiveSegment {
+
+    /**
+     * Значение измерения и количество кликов с ним
+     */
+    public static class Count {
+        private String value;
+        private long count;
+
+        public Count() {}
+
+        public Count(String value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() { return value; }
+        public long getCount() { return count; }
+        public void setValue(String value) { this.value = value; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    /**
+     * Детерминированный идентификатор shortCode:firstClickAt. Сегменты ссылки за сутки покрывают
+     * непересекающиеся интервалы [firstClickAt, lastClickAt]: повторный запуск архивации после сбоя
+     * узнаёт по ним уже заархивированные события
+     */
+    @Id
+    private String id;
+
+    private String shortCode;
+    private LocalDateTime day;
+    private long count;
+    private LocalDateTime firstClickAt;
+    private LocalDateTime lastClickAt;
+
+    private List<Count> countries;
+    private List<Count> devices;
+    private List<Count> browsers;
+    private List<Count> hours;
+
+    private byte[] columns;
+
+    public ClickArchiveSegment() {}
+
+    // Getters
+    public String getId() { return id; }
+    public String getShortCode() { return shortCode; }
+    public LocalDateTime getDay() { return day; }
+    public long getCount() { return count; }
+    public LocalDateTime getFirstClickAt() { return firstClickAt; }
+    public LocalDateTime getLastClickAt() { return lastClickAt; }
+    public List<Count> getCountries() { return countries; }
+    public List<Count> getDevices() { return devices; }
+    public List<Count> getBrowsers() { return browsers; }
+    public List<Count> getHours() { return hours; }
+    public byte[] getColumns() { return columns; }
+
+    // Setters
+    public void setId(String id) { this.id = id; }
+    public void setShortCode(String shortCode) { this.shortCode = shortCode; }
+    public void setDay(LocalDateTime day) { this.day = day; }
+    public void setCount(long count) { this.count = count; }
+    public void setFirstClickAt(LocalDateTime firstClickAt) { this.firstClickAt = firstClickAt; }
+    public void setLastClickAt(LocalDateTime lastClickAt) { this.lastClickAt = lastClickAt; }
+    public void setCountries(List<Count> countries) { this.countries = countries; }
+    public void setDevices(List<Count> devices) { this.devices = devices; }
+    public void setBrowsers(List<Count> browsers) { this.browsers = browsers; }
+    public void setHours(List<Count> hours) { this.hours = hours; }
+    public void setColumns(byte[] columns) { this.columns = columns; }
+}
@@ -2,6 +2,7 @@ package com.urlshortener.entity;
 
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -11,12 +12,12 @@ import java.time.LocalDateTime;
  * Сущность события клика для аналитики
  */
 @Document(collection = "click_events")
+@CompoundIndex(name = "code_clicked_idx", def = "{'shortCode': 1, 'clickedAt': 1}")
 public class ClickEvent {
 
     @Id
     private String id;
 
-    @Indexed
     private String shortCode;
     private String shortUrlId;
     private String ipAddress;
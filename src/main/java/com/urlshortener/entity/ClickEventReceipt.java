@@ -0,0 +1,37 @@
+package com.urlshortener.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Отметка о принятом событии клика. Идентификатор - ClickEventMessage.eventId(),
+ * уникальный индекс _id отсекает повторную доставку уже учтённых событий.
+ * Отметки хранятся в обычной коллекции (в коллекции временных рядов _id не уникален) и удаляются по TTL.
+ */
+@Document(collection = "click_event_receipts")
+public class ClickEventReceipt {
+
+    @Id
+    private String id;
+
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime expireAt;
+
+    public ClickEventReceipt() {}
+
+    public ClickEventReceipt(String id, LocalDateTime expireAt) {
+        this.id = id;
+        this.expireAt = expireAt;
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public LocalDateTime getExpireAt() { return expireAt; }
+
+    // Setters
+    public void setId(String id) { this.id = id; }
+    public void setExpireAt(LocalDateTime expireAt) { this.expireAt = expireAt; }
+}
@@ -0,0 +1,99 @@
+package com.urlshortener.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * Предагрегированный счётчик кликов по ссылке за интервал (минута, час или сутки).
+ * Идентификатор детерминирован: shortCode:granularity:bucketStart — это позволяет делать upsert с $inc.
+ * Итог ссылки за всё время (shortCode:TOTAL, без granularity) хранит распределения кликов по странам,
+ * устройствам, браузерам, ОС и часам (ключ - значение измерения, см. ClickRollupService.fieldKey);
+ * его bucketStart - начало первых суток, клики которых он учёл.
+ */
+@Document(collection = "click_rollups")
+@CompoundIndex(name = "code_granularity_bucket_idx", def = "{'shortCode': 1, 'granularity': 1, 'bucketStart': 1}")
+public class ClickRollup {
+
+    /**
+     * Размер интервала агрегации
+     */
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit getUnit() { return unit; }
+
+        public LocalDateTime bucketStart(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    @Id
+    private String id;
+
+    private String shortCode;
+    private Granularity granularity;
+    private LocalDateTime bucketStart;
+    private Long count;
+
+    private Map<String, Long> countries;
+    private Map<String, Long> devices;
+    private Map<String, Long> browsers;
+    private Map<String, Long> os;
+    private Map<String, Long> hours;
+
+    /**
+     * Время удаления мелких интервалов; для суточных не задаётся
+     */
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime expireAt;
+
+    public ClickRollup() {}
+
+    public static String idOf(String shortCode, Granularity granularity, LocalDateTime bucketStart) {
+        return shortCode + ":" + granularity + ":" + bucketStart;
+    }
+
+    public static String totalIdOf(String shortCode) {
+        return shortCode + ":TOTAL";
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public String getShortCode() { return shortCode; }
+    public Granularity getGranularity() { return granularity; }
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public Long getCount() { return count; }
+    public Map<String, Long> getCountries() { return countries; }
+    public Map<String, Long> getDevices() { return devices; }
+    public Map<String, Long> getBrowsers() { return browsers; }
+    public Map<String, Long> getOs() { return os; }
+    public Map<String, Long> getHours() { return hours; }
+    public LocalDateTime getExpireAt() { return expireAt; }
+
+    // Setters
+    public void setId(String id) { this.id = id; }
+    public void setShortCode(String shortCode) { this.shortCode = shortCode; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    public void setCount(Long count) { this.count = count; }
+    public void setCountries(Map<String, Long> countries) { this.countries = countries; }
+    public void setDevices(Map<String, Long> devices) { this.devices = devices; }
+    public void setBrowsers(Map<String, Long> browsers) { this.browsers = browsers; }
+    public void setOs(Map<String, Long> os) { this.os = os; }
+    public void setHours(Map<String, Long> hours) { this.hours = hours; }
+    public void setExpireAt(LocalDateTime expireAt) { this.expireAt = expireAt; }
+}
@@ -3,6 +3,7 @@ package com.urlshortener.entity;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -12,6 +13,9 @@ import java.time.LocalDateTime;
  * Сущность короткой ссылки (MongoDB документ)
  */
 @Document(collection = "short_urls")
+@CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "active_expires_idx", def = "{'active': 1, 'expiresAt': 1}")
+@CompoundIndex(name = "active_clicks_idx", def = "{'active': 1, 'clickCount': -1}")
 public class ShortUrl {
 
     @Id
@@ -32,6 +36,11 @@ public class ShortUrl {
 
     private LocalDateTime expiresAt;
 
+    /**
+     * Код ответа редиректа (301, 302, 307, 308); null - глобальная политика url-shortener.redirect.default-status
+     */
+    private Integer redirectStatus;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
@@ -64,6 +73,7 @@ public class ShortUrl {
     public Long getClickCount() { return clickCount; }
     public boolean isActive() { return active; }
     public LocalDateTime getExpiresAt() { return expiresAt; }
+    public Integer getRedirectStatus() { return redirectStatus; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
 
@@ -76,6 +86,7 @@ public class ShortUrl {
     public void setClickCount(Long clickCount) { this.clickCount = clickCount; }
     public void setActive(boolean active) { this.active = active; }
     public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    public void setRedirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
@@ -99,6 +110,7 @@ public class ShortUrl {
         private Long clickCount = 0L;
         private boolean active = true;
         private LocalDateTime expiresAt;
+        private Integer redirectStatus;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
 
@@ -110,12 +122,15 @@ public class ShortUrl {
         public Builder clickCount(Long clickCount) { this.clickCount = clickCount; return this; }
         public Builder active(boolean active) { this.active = active; return this; }
         public Builder expiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; return this; }
+        public Builder redirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; return this; }
         public Builder createdAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
         public Builder updatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; return this; }
 
         public ShortUrl build() {
-            return new ShortUrl(id, shortCode, originalUrl, userId, customAlias, 
+            ShortUrl shortUrl = new ShortUrl(id, shortCode, originalUrl, userId, customAlias,
                                clickCount, active, expiresAt, createdAt, updatedAt);
+            shortUrl.setRedirectStatus(redirectStatus);
+            return shortUrl;
         }
     }
 }
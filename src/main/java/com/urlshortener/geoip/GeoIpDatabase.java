@@ -0,0 +1,100 @@
+package com.urlshortener.geoip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * База диапазонов IPv4, отображённая в память.
+ * Формат файла (big-endian):
+ * <pre>
+ *   заголовок:  magic "UGEO" | version | recordCount | stringCount
+ *   записи:     start | end | countryId | cityId      (16 байт, отсортированы по start)
+ *   строки:     length (u16) | UTF-8 байты            (id 0 - пустая строка)
+ * </pre>
+ * Записи остаются в отображённом буфере и ищутся двоичным поиском, строки декодируются при открытии.
+ */
+final class GeoIpDatabase {
+
+    static final int MAGIC = 0x5547454F;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    private final ByteBuffer records;
+    private final int recordCount;
+    private final String[] strings;
+
+    private GeoIpDatabase(ByteBuffer records, int recordCount, String[] strings) {
+        this.records = records;
+        this.recordCount = recordCount;
+        this.strings = strings;
+    }
+
+    static GeoIpDatabase open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является базой GeoIP: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Неподдерживаемая версия базы GeoIP: " + buffer.getInt(4));
+        }
+        int recordCount = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        long stringsOffset = HEADER_SIZE + (long) recordCount * RECORD_SIZE;
+        if (recordCount < 0 || stringCount < 1 || stringsOffset > buffer.limit()) {
+            throw new IOException("Повреждённый заголовок базы GeoIP: " + path);
+        }
+
+        String[] strings = new String[stringCount];
+        ByteBuffer stringTable = buffer.slice((int) stringsOffset, buffer.limit() - (int) stringsOffset);
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = new byte[Short.toUnsignedInt(stringTable.getShort())];
+            stringTable.get(bytes);
+            strings[i] = i == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        ByteBuffer records = buffer.slice(HEADER_SIZE, recordCount * RECORD_SIZE);
+        return new GeoIpDatabase(records, recordCount, strings);
+    }
+
+    int size() {
+        return recordCount;
+    }
+
+    /**
+     * Поиск диапазона, содержащего адрес; UNKNOWN, если адрес вне всех диапазонов
+     */
+    GeoLocation lookup(int ip) {
+        // Последняя запись с start <= ip
+        int low = 0;
+        int high = recordCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(records.getInt(mid * RECORD_SIZE), ip) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return GeoLocation.UNKNOWN;
+        }
+
+        int offset = found * RECORD_SIZE;
+        if (Integer.compareUnsigned(ip, records.getInt(offset + 4)) > 0) {
+            return GeoLocation.UNKNOWN;
+        }
+        return new GeoLocation(strings[records.getInt(offset + 8)], strings[records.getInt(offset + 12)]);
+    }
+}
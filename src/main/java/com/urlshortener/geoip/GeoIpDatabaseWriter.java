@@ -0,0 +1,108 @@
+package com.urlshortener.geoip;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Сборка файла базы GeoIP из CSV вида start_ip,end_ip,country,city (например, экспорт GeoLite2 / IP2Location LITE).
+ * Использует только JDK, поэтому запускается прямо из скомпилированных классов:
+ * <pre>
+ *   java -cp target/classes com.urlshortener.geoip.GeoIpDatabaseWriter ranges.csv geoip.ugeo
+ * </pre>
+ */
+public final class GeoIpDatabaseWriter {
+
+    private GeoIpDatabaseWriter() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Использование: GeoIpDatabaseWriter <ranges.csv> <output.ugeo>");
+            System.exit(1);
+        }
+        List<GeoIpRange> ranges = new ArrayList<>();
+        try (Stream<String> lines = Files.lines(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .forEach(line -> ranges.add(parseLine(line)));
+        }
+        write(ranges, Path.of(args[1]));
+        System.out.println("Записано диапазонов: " + ranges.size());
+    }
+
+    public static void write(List<GeoIpRange> ranges, Path target) throws IOException {
+        List<GeoIpRange> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> Integer.compareUnsigned(a.start(), b.start()));
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+        ids.put("", 0);
+
+        try (OutputStream file = Files.newOutputStream(target);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            int[] countryIds = new int[sorted.size()];
+            int[] cityIds = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                countryIds[i] = intern(sorted.get(i).country(), ids, strings);
+                cityIds[i] = intern(sorted.get(i).city(), ids, strings);
+            }
+
+            out.writeInt(GeoIpDatabase.MAGIC);
+            out.writeInt(GeoIpDatabase.VERSION);
+            out.writeInt(sorted.size());
+            out.writeInt(strings.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                GeoIpRange range = sorted.get(i);
+                if (Integer.compareUnsigned(range.start(), range.end()) > 0) {
+                    throw new IllegalArgumentException("Начало диапазона больше конца: " + range);
+                }
+                if (i > 0 && Integer.compareUnsigned(sorted.get(i - 1).end(), range.start()) >= 0) {
+                    throw new IllegalArgumentException("Диапазоны пересекаются: " + sorted.get(i - 1) + ", " + range);
+                }
+                out.writeInt(range.start());
+                out.writeInt(range.end());
+                out.writeInt(countryIds[i]);
+                out.writeInt(cityIds[i]);
+            }
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    static GeoIpRange parseLine(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Ожидается start_ip,end_ip,country[,city]: " + line);
+        }
+        long start = Ipv4.parse(parts[0].trim());
+        long end = Ipv4.parse(parts[1].trim());
+        if (start < 0 || end < 0) {
+            throw new IllegalArgumentException("Некорректный IPv4-адрес: " + line);
+        }
+        String city = parts.length > 3 ? parts[3].trim() : "";
+        return new GeoIpRange((int) start, (int) end, parts[2].trim(), city);
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<String> strings) {
+        String key = value != null ? value : "";
+        if (key.getBytes(StandardCharsets.UTF_8).length > 0xFFFF) {
+            throw new IllegalArgumentException("Слишком длинная строка: " + key);
+        }
+        return ids.computeIfAbsent(key, k -> {
+            strings.add(k);
+            return strings.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package com.urlshortener.geoip;
+
+/**
+ * Диапазон IPv4-адресов [start, end] (беззнаковые 32-битные значения в int) с привязкой к стране и городу
+ */
+public record GeoIpRange(int start, int end, String country, String city) {
+}
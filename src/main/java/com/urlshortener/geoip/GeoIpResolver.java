@@ -0,0 +1,74 @@
+package com.urlshortener.geoip;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Определение страны и города по IP-адресу по локальной базе диапазонов (без сетевых запросов).
+ * Если путь к базе не задан или файл не читается, обогащение отключается и возвращается UNKNOWN.
+ * Результаты кэшируются по строке адреса: в потоке кликов много повторяющихся IP.
+ */
+@Component
+public class GeoIpResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoIpResolver.class);
+
+    static final String CACHE_NAME = "geoip";
+
+    private final GeoIpDatabase database;
+    private final Cache<String, GeoLocation> cache;
+    private final Function<String, GeoLocation> lookup = this::lookup;
+
+    public GeoIpResolver(MeterRegistry meterRegistry,
+                         @Value("${analytics.geoip.database:}") String databasePath,
+                         @Value("${analytics.geoip.cache-size:100000}") long cacheSize) {
+        this.database = open(databasePath);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public boolean isEnabled() {
+        return database != null;
+    }
+
+    public GeoLocation resolve(String ipAddress) {
+        if (database == null || ipAddress == null || ipAddress.isEmpty()) {
+            return GeoLocation.UNKNOWN;
+        }
+        return cache.get(ipAddress, lookup);
+    }
+
+    private GeoLocation lookup(String ipAddress) {
+        long ip = Ipv4.parse(ipAddress);
+        // IPv6 база не покрывает
+        return ip < 0 ? GeoLocation.UNKNOWN : database.lookup((int) ip);
+    }
+
+    private static GeoIpDatabase open(String databasePath) {
+        if (databasePath == null || databasePath.isBlank()) {
+            log.info("База GeoIP не задана, определение местоположения отключено");
+            return null;
+        }
+        try {
+            GeoIpDatabase database = GeoIpDatabase.open(Path.of(databasePath));
+            log.info("Загружена база GeoIP {}: {} диапазонов", databasePath, database.size());
+            return database;
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось загрузить базу GeoIP {}: {}", databasePath, e.getMessage());
+            return null;
+        }
+    }
+}
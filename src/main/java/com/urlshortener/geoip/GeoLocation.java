@@ -0,0 +1,9 @@
+package com.urlshortener.geoip;
+
+/**
+ * Местоположение по IP-адресу; поля равны null, если адрес не найден в базе
+ */
+public record GeoLocation(String country, String city) {
+
+    public static final GeoLocation UNKNOWN = new GeoLocation(null, null);
+}
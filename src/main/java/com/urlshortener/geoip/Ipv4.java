@@ -0,0 +1,41 @@
+package com.urlshortener.geoip;
+
+/**
+ * Разбор IPv4-адреса в беззнаковое 32-битное значение без выделения памяти
+ */
+final class Ipv4 {
+
+    private static final String MAPPED_PREFIX = "::ffff:";
+
+    private Ipv4() {}
+
+    /**
+     * Адрес в виде long 0..2^32-1 или -1, если строка не является IPv4 (в том числе IPv4-mapped IPv6)
+     */
+    static long parse(String address) {
+        int start = address.regionMatches(true, 0, MAPPED_PREFIX, 0, MAPPED_PREFIX.length())
+                ? MAPPED_PREFIX.length() : 0;
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = start, length = address.length(); i < length; i++) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                result = result << 8 | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return result << 8 | value;
+    }
+}
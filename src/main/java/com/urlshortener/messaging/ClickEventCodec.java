@@ -0,0 +1,155 @@
+package com.urlshortener.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Двоичный формат события клика.
+ * Первый байт - версия формата, затем время клика в микросекундах от эпохи (varint)
+ * и строковые поля в порядке записи: длина в байтах UTF-8 плюс один (varint, 0 - null) и сами байты.
+ * С версии 2 в конце идёт идентификатор события: байт 0 (нет) или 1 и 16 байт UUID.
+ * Новые поля добавляются в конец с повышением версии; декодер читает прежние версии
+ * и отклоняет неизвестные, поэтому потребители обновляются раньше издателей.
+ */
+public final class ClickEventCodec {
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int UUID_BYTES = 16;
+
+    private ClickEventCodec() {}
+
+    public static byte[] encode(ClickEventMessage event) {
+        // String.getBytes для ASCII-строк - копирование массива (интринсик JDK), быстрее посимвольной записи
+        byte[][] fields = {utf8(event.shortCode()), utf8(event.shortUrlId()), utf8(event.ipAddress()),
+                utf8(event.userAgent()), utf8(event.referer())};
+        long clickedAt = toEpochMicros(event.clickedAt());
+        UUID id = event.id();
+        int size = 1 + varintSize(clickedAt) + 1 + (id != null ? UUID_BYTES : 0);
+        for (byte[] field : fields) {
+            size += field != null ? varintSize(field.length + 1) + field.length : 1;
+        }
+
+        byte[] out = new byte[size];
+        out[0] = FORMAT_VERSION;
+        int position = writeVarint(out, 1, clickedAt);
+        for (byte[] field : fields) {
+            if (field == null) {
+                position = writeVarint(out, position, 0);
+            } else {
+                position = writeVarint(out, position, field.length + 1);
+                System.arraycopy(field, 0, out, position, field.length);
+                position += field.length;
+            }
+        }
+        if (id == null) {
+            out[position] = 0;
+        } else {
+            out[position++] = 1;
+            position = writeLong(out, position, id.getMostSignificantBits());
+            writeLong(out, position, id.getLeastSignificantBits());
+        }
+        return out;
+    }
+
+    public static ClickEventMessage decode(byte[] body) {
+        Reader in = new Reader(body);
+        int version = in.readByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IllegalArgumentException("Неизвестная версия формата события клика: " + version);
+        }
+        LocalDateTime clickedAt = fromEpochMicros(in.readVarint());
+        String shortCode = in.readString();
+        String shortUrlId = in.readString();
+        String ipAddress = in.readString();
+        String userAgent = in.readString();
+        String referer = in.readString();
+        UUID id = version >= 2 && in.readByte() != 0 ? new UUID(in.readLong(), in.readLong()) : null;
+        return new ClickEventMessage(shortCode, shortUrlId, ipAddress, userAgent, referer, clickedAt, id);
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static int writeLong(byte[] out, int position, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out[position++] = (byte) (value >>> shift);
+        }
+        return position;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int varintSize(long value) {
+        return Math.max(1, (70 - Long.numberOfLeadingZeros(value)) / 7);
+    }
+
+    private static final class Reader {
+
+        private final byte[] body;
+        private int position;
+
+        Reader(byte[] body) {
+            this.body = body;
+        }
+
+        int readByte() {
+            if (position >= body.length) {
+                throw new IllegalArgumentException("Неожиданный конец события клика");
+            }
+            return body[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Некорректный varint в событии клика");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        String readString() {
+            long length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > body.length - position) {
+                throw new IllegalArgumentException("Неожиданный конец события клика");
+            }
+            String value = new String(body, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
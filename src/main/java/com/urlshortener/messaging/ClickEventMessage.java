@@ -0,0 +1,114 @@
+package com.urlshortener.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Событие клика, передаваемое через RabbitMQ.
+ * id назначается один раз при создании события (create) и передаётся в сообщении;
+ * null - событие из сообщения без идентификатора (JSON прежнего формата, двоичный формат версии 1).
+ */
+public record ClickEventMessage(String shortCode,
+                                String shortUrlId,
+                                String ipAddress,
+                                String userAgent,
+                                String referer,
+                                LocalDateTime clickedAt,
+                                UUID id) {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickEventMessage.class);
+
+    /**
+     * Значение поля type в JSON прежнего формата
+     */
+    public static final String TYPE = "CLICK";
+
+    /**
+     * Событие без идентификатора
+     */
+    public ClickEventMessage(String shortCode, String shortUrlId, String ipAddress, String userAgent,
+                             String referer, LocalDateTime clickedAt) {
+        this(shortCode, shortUrlId, ipAddress, userAgent, referer, clickedAt, null);
+    }
+
+    /**
+     * Новое событие клика со случайным идентификатором
+     */
+    public static ClickEventMessage create(String shortCode, String shortUrlId, String ipAddress,
+                                           String userAgent, String referer, LocalDateTime clickedAt) {
+        return new ClickEventMessage(shortCode, shortUrlId, ipAddress, userAgent, referer, clickedAt, UUID.randomUUID());
+    }
+
+    /**
+     * Ключ дедупликации у потребителя: id события, одинаковый при повторной отправке издателем
+     * и повторной доставке брокером. Для событий без id - UUID от содержимого: два настоящих клика
+     * с одинаковыми полями в одну микросекунду в таких сообщениях неразличимы.
+     */
+    public String eventId() {
+        return (id != null ? id : UUID.nameUUIDFromBytes(ClickEventCodec.encode(this))).toString();
+    }
+
+    /**
+     * JSON прежнего формата: словарь с type и временем клика строкой ISO;
+     * eventId добавлен позже и прежними потребителями не читается
+     */
+    public Map<String, Object> toLegacyMap() {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", TYPE);
+        event.put("shortCode", shortCode);
+        event.put("shortUrlId", shortUrlId);
+        event.put("ipAddress", ipAddress);
+        event.put("userAgent", userAgent);
+        event.put("referer", referer);
+        event.put("timestamp", clickedAt.toString());
+        if (id != null) {
+            event.put("eventId", id.toString());
+        }
+        return event;
+    }
+
+    /**
+     * Событие из JSON прежнего формата
+     */
+    public static ClickEventMessage fromLegacyMap(Map<?, ?> event) {
+        return new ClickEventMessage(
+                (String) event.get("shortCode"),
+                (String) event.get("shortUrlId"),
+                (String) event.get("ipAddress"),
+                (String) event.get("userAgent"),
+                (String) event.get("referer"),
+                parseTimestamp(event.get("timestamp")),
+                parseId(event.get("eventId")));
+    }
+
+    private static UUID parseId(Object id) {
+        if (id instanceof String value) {
+            try {
+                return UUID.fromString(value);
+            } catch (IllegalArgumentException e) {
+                log.warn("Некорректный идентификатор события клика: {}", value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Время клика берём из события: при пакетной обработке время приёма может заметно отставать
+     */
+    private static LocalDateTime parseTimestamp(Object timestamp) {
+        if (timestamp instanceof String value) {
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException e) {
+                log.warn("Некорректное время события клика: {}", value);
+            }
+        }
+        return LocalDateTime.now();
+    }
+}
@@ -0,0 +1,36 @@
+package com.urlshortener.messaging;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+/**
+ * Конвертер ClickEventMessage в двоичный формат ClickEventCodec с типом содержимого CONTENT_TYPE.
+ * Регистрируется делегатом ContentTypeDelegatingMessageConverter: сообщения прочих типов,
+ * в том числе JSON прежнего формата, разбирает конвертер по умолчанию.
+ */
+public class ClickEventMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-click-event";
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        if (!(object instanceof ClickEventMessage event)) {
+            throw new MessageConversionException("Ожидается ClickEventMessage: " + object.getClass().getName());
+        }
+        byte[] body = ClickEventCodec.encode(event);
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        try {
+            return ClickEventCodec.decode(message.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Не удалось разобрать событие клика", e);
+        }
+    }
+}
@@ -9,7 +9,9 @@ import reactor.core.publisher.Mono;
 import java.time.LocalDateTime;
 
 /**
- * Реактивный репозиторий для работы с событиями кликов
+ * Реактивный репозиторий для работы с событиями кликов.
+ * Запросы фильтруют по shortCode и диапазону clickedAt, поэтому без изменений работают и в режиме
+ * коллекции временных рядов: shortCode там является metaField, clickedAt - timeField.
  */
 @Repository
 public interface ClickEventRepository extends ReactiveMongoRepository<ClickEvent, String> {
@@ -1,6 +1,9 @@
 package com.urlshortener.repository;
 
 import com.urlshortener.entity.ShortUrl;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -14,12 +17,40 @@ import java.time.LocalDateTime;
 @Repository
 public interface ShortUrlRepository extends ReactiveMongoRepository<ShortUrl, String> {
 
+    /**
+     * Поля, нужные для ShortUrlResponse
+     */
+    String USER_PAGE_FIELDS = "{ 'shortCode': 1, 'originalUrl': 1, 'clickCount': 1, 'active': 1, 'expiresAt': 1, 'createdAt': 1, 'redirectStatus': 1 }";
+    String USER_PAGE_SORT = "{ 'createdAt': -1, '_id': -1 }";
+
     Mono<ShortUrl> findByShortCode(String shortCode);
 
     Mono<Boolean> existsByShortCode(String shortCode);
 
     Flux<ShortUrl> findByUserId(String userId);
 
+    /**
+     * Постраничная выборка ссылок пользователя по индексу (userId, createdAt, _id): первая страница
+     */
+    @Query(value = "{ 'userId': ?0 }", fields = USER_PAGE_FIELDS, sort = USER_PAGE_SORT)
+    Flux<ShortUrl> findUserPage(String userId, Pageable pageable);
+
+    /**
+     * Страница после ссылки с ключом (createdAt, id). Ссылки без даты создания
+     * при сортировке по убыванию идут последними, поэтому включаются целиком
+     */
+    @Query(value = "{ 'userId': ?0, '$or': [ { 'createdAt': { '$lt': ?1 } }, " +
+            "{ 'createdAt': ?1, '_id': { '$lt': ?2 } }, { 'createdAt': null } ] }",
+            fields = USER_PAGE_FIELDS, sort = USER_PAGE_SORT)
+    Flux<ShortUrl> findUserPageAfter(String userId, LocalDateTime createdAt, ObjectId id, Pageable pageable);
+
+    /**
+     * Страница после ссылки без даты создания: остаток хвоста таких ссылок по убыванию _id
+     */
+    @Query(value = "{ 'userId': ?0, 'createdAt': null, '_id': { '$lt': ?1 } }",
+            fields = USER_PAGE_FIELDS, sort = USER_PAGE_SORT)
+    Flux<ShortUrl> findUndatedUserPageAfter(String userId, ObjectId id, Pageable pageable);
+
     Flux<ShortUrl> findByUserIdAndActive(String userId, boolean active);
 
     Mono<Long> countByUserId(String userId);
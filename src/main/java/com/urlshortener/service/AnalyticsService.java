@@ -1,19 +1,50 @@
 package com.urlshortener.service;
 
+import com.mongodb.bulk.BulkWriteError;
 import com.urlshortener.dto.UrlStatsResponse;
 import com.urlshortener.entity.ClickEvent;
+import com.urlshortener.entity.ClickEventReceipt;
 import com.urlshortener.exception.ResourceNotFoundException;
-import com.urlshortener.repository.ClickEventRepository;
+import com.urlshortener.geoip.GeoIpResolver;
+import com.urlshortener.geoip.GeoLocation;
+import com.urlshortener.messaging.ClickEventMessage;
 import com.urlshortener.repository.ShortUrlRepository;
+import com.urlshortener.useragent.UserAgentClassifier;
+import com.urlshortener.useragent.UserAgentInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.ReceiverContext;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.facet;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
  * Сервис аналитики для обработки событий кликов
@@ -22,50 +53,228 @@ import java.util.Map;
 public class AnalyticsService {
 
     private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
-    private final ClickEventRepository clickEventRepository;
+
     private final ShortUrlRepository shortUrlRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ClickRollupService clickRollupService;
+    private final UserAgentClassifier userAgentClassifier;
+    private final GeoIpResolver geoIpResolver;
+    private final ClickArchiveService clickArchiveService;
+    private final ObservationRegistry observationRegistry;
+    private final Timer insertLatency;
+    private final Timer consumedAge;
+    private final Timer persistedAge;
 
-    public AnalyticsService(ClickEventRepository clickEventRepository, ShortUrlRepository shortUrlRepository) {
-        this.clickEventRepository = clickEventRepository;
+    public AnalyticsService(ShortUrlRepository shortUrlRepository,
+                            ReactiveMongoTemplate mongoTemplate,
+                            ClickRollupService clickRollupService,
+                            UserAgentClassifier userAgentClassifier,
+                            GeoIpResolver geoIpResolver,
+                            ClickArchiveService clickArchiveService,
+                            ObservationRegistry observationRegistry,
+                            MeterRegistry meterRegistry) {
         this.shortUrlRepository = shortUrlRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.clickRollupService = clickRollupService;
+        this.userAgentClassifier = userAgentClassifier;
+        this.geoIpResolver = geoIpResolver;
+        this.clickArchiveService = clickArchiveService;
+        this.observationRegistry = observationRegistry;
+        this.insertLatency = Timer.builder("clicks.consumer.insert.latency")
+                .description("Вставка пачки событий кликов в MongoDB")
+                .register(meterRegistry);
+        this.consumedAge = eventAge(meterRegistry, "consumed");
+        this.persistedAge = eventAge(meterRegistry, "persisted");
     }
 
     /**
-     * Обработка события клика из RabbitMQ
+     * Возраст события от редиректа (время клика в событии) до этапа обработки:
+     * consumed - получено из очереди, persisted - сохранено в MongoDB (задержка попадания в аналитику).
+     * Этап published (подтверждено брокером) записывает ClickEventPublisher.
+     */
+    private static Timer eventAge(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("clicks.event.age")
+                .description("Время от редиректа до этапа обработки события клика")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    @Value("${rabbitmq.consumer.insert-timeout:10s}")
+    private Duration insertTimeout;
+
+    /**
+     * Срок хранения отметок о принятых событиях; должен покрывать время до повторной доставки пачки
      */
-    @RabbitListener(queues = "${rabbitmq.queues.analytics}")
-    public void processClickEvent(Map<String, Object> event) {
-        if (!"CLICK".equals(event.get("type"))) {
+    @Value("${analytics.click-events.dedup-window:24h}")
+    private Duration dedupWindow;
+
+    /**
+     * Пакетная обработка событий кликов из RabbitMQ.
+     * Пачка подтверждается брокеру только после успешной вставки в MongoDB
+     * и обновления агрегатов: исключение из метода возвращает всю пачку в очередь.
+     * Повторная доставка не учитывает события дважды: сначала вставляются отметки о событиях
+     * (ClickEventReceipt), и события и агрегаты пишутся только для впервые отмеченных.
+     * При ошибке отметки снимаются; интервалы агрегатов, обновлённые неудачной попыткой,
+     * хранят её метку (ClickRollupService.record) и при повторе не увеличиваются снова.
+     * Spring AMQP не создаёт наблюдений для пакетных слушателей, поэтому пачка наблюдается здесь
+     * (таймер clicks.consumer.batch) и продолжает трассу первого сообщения из его AMQP-заголовков.
+     * Тело сообщения разбирается по типу содержимого (см. RabbitMQConfig.messageConverter).
+     */
+    @RabbitListener(queues = "${rabbitmq.queues.analytics}", containerFactory = "batchListenerContainerFactory")
+    public void processClickEvents(List<Message<?>> messages) {
+        if (messages.isEmpty()) {
             return;
         }
+        Observation.createNotStarted("clicks.consumer.batch", () -> receiverContext(messages.get(0)), observationRegistry)
+                .contextualName("clicks batch receive")
+                .highCardinalityKeyValue("messaging.batch.message_count", String.valueOf(messages.size()))
+                .observe(() -> processBatch(messages));
+    }
+
+    private void processBatch(List<Message<?>> messages) {
+        List<ClickEvent> clickEvents = new ArrayList<>(messages.size());
+        for (Message<?> message : messages) {
+            ClickEventMessage event = toClickEventMessage(message.getPayload());
+            if (event != null) {
+                clickEvents.add(toClickEvent(event));
+            }
+        }
+
+        if (clickEvents.isEmpty()) {
+            return;
+        }
+
+        recordAge(consumedAge, clickEvents);
+        claimNewEvents(clickEvents)
+                .timeout(insertTimeout)
+                .flatMap(newEvents -> newEvents.isEmpty()
+                        ? Mono.<Void>empty()
+                        : Mono.when(insertClickEvents(newEvents), clickRollupService.record(newEvents))
+                                // Тайм-аут внутри цепочки: отмена ожидания в block не сняла бы отметки,
+                                // и повторная доставка приняла бы незаписанные события за дубликаты
+                                .timeout(insertTimeout)
+                                // Пачка вернётся в очередь: снимаем отметки, чтобы повтор учёл её события
+                                .onErrorResume(error -> releaseEvents(newEvents).then(Mono.error(error))))
+                .block();
+        recordAge(persistedAge, clickEvents);
+    }
+
+    /**
+     * Отметки о событиях пачки одной неупорядоченной вставкой.
+     * Возвращает события, отмеченные впервые; уже отмеченные (ошибка дубликата ключа) отбрасываются.
+     */
+    private Mono<List<ClickEvent>> claimNewEvents(List<ClickEvent> clickEvents) {
+        LocalDateTime expireAt = LocalDateTime.now().plus(dedupWindow);
+        List<ClickEventReceipt> receipts = new ArrayList<>(clickEvents.size());
+        for (ClickEvent clickEvent : clickEvents) {
+            receipts.add(new ClickEventReceipt(clickEvent.getId(), expireAt));
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEventReceipt.class)
+                .insert(receipts)
+                .execute()
+                .thenReturn(clickEvents)
+                .onErrorResume(error -> BulkWriteErrors.onlyDuplicates(error) != null, error -> {
+                    Set<Integer> duplicates = new HashSet<>();
+                    for (BulkWriteError writeError : BulkWriteErrors.onlyDuplicates(error).getWriteErrors()) {
+                        duplicates.add(writeError.getIndex());
+                    }
+                    log.info("Повторно доставлено уже учтённых событий кликов: {} из {}",
+                            duplicates.size(), clickEvents.size());
+                    List<ClickEvent> newEvents = new ArrayList<>(clickEvents.size() - duplicates.size());
+                    for (int i = 0; i < clickEvents.size(); i++) {
+                        if (!duplicates.contains(i)) {
+                            newEvents.add(clickEvents.get(i));
+                        }
+                    }
+                    return Mono.just(newEvents);
+                });
+    }
+
+    private Mono<Void> releaseEvents(List<ClickEvent> clickEvents) {
+        List<String> ids = clickEvents.stream().map(ClickEvent::getId).toList();
+        return mongoTemplate.remove(query(where("_id").in(ids)), ClickEventReceipt.class)
+                .onErrorResume(error -> {
+                    log.error("Не удалось снять отметки о событиях кликов ({} шт.): {}", ids.size(), error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static ReceiverContext<MessageHeaders> receiverContext(Message<?> message) {
+        ReceiverContext<MessageHeaders> context = new ReceiverContext<>((headers, key) -> {
+            Object value = headers.get(key);
+            return value != null ? value.toString() : null;
+        });
+        context.setCarrier(message.getHeaders());
+        context.setRemoteServiceName("RabbitMQ");
+        return context;
+    }
+
+    private static void recordAge(Timer timer, List<ClickEvent> clickEvents) {
+        LocalDateTime now = LocalDateTime.now();
+        for (ClickEvent clickEvent : clickEvents) {
+            timer.record(Duration.between(clickEvent.getClickedAt(), now));
+        }
+    }
 
-        String shortCode = (String) event.get("shortCode");
-        String shortUrlId = (String) event.get("shortUrlId");
-        String ipAddress = (String) event.get("ipAddress");
-        String userAgent = (String) event.get("userAgent");
-        String referer = (String) event.get("referer");
-
-        // Парсинг User-Agent для определения устройства, браузера и ОС
-        String deviceType = parseDeviceType(userAgent);
-        String browser = parseBrowser(userAgent);
-        String os = parseOS(userAgent);
-
-        ClickEvent clickEvent = ClickEvent.builder()
-                .shortCode(shortCode)
-                .shortUrlId(shortUrlId)
-                .ipAddress(ipAddress)
-                .userAgent(userAgent)
-                .referer(referer)
-                .deviceType(deviceType)
-                .browser(browser)
-                .os(os)
-                .clickedAt(LocalDateTime.now())
+    /**
+     * Неупорядоченная вставка пачки событий одной командой insertMany
+     */
+    private Mono<Void> insertClickEvents(List<ClickEvent> clickEvents) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start();
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEvent.class)
+                    .insert(clickEvents)
+                    .execute()
+                    .doFinally(signal -> sample.stop(insertLatency))
+                    .doOnSuccess(result -> log.debug("Сохранено событий кликов: {}", result.getInsertedCount()))
+                    .onErrorResume(BulkWriteErrors::isDocumentFailure, error -> {
+                        // Ошибки отдельных документов повтором не исправить — подтверждаем пачку.
+                        // Дубликаты остаются от прерванной попытки, отметки о которой были сняты
+                        if (BulkWriteErrors.onlyDuplicates(error) == null) {
+                            log.error("Не сохранено событий кликов: {} из {}",
+                                    BulkWriteErrors.bulkWriteError(error).getWriteErrors().size(), clickEvents.size());
+                        }
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    private ClickEvent toClickEvent(ClickEventMessage event) {
+        // Классификация User-Agent: устройство, браузер и ОС
+        UserAgentInfo userAgentInfo = userAgentClassifier.classify(event.userAgent());
+        // Страна и город по локальной базе GeoIP
+        GeoLocation location = geoIpResolver.resolve(event.ipAddress());
+
+        return ClickEvent.builder()
+                .id(event.eventId())
+                .shortCode(event.shortCode())
+                .shortUrlId(event.shortUrlId())
+                .ipAddress(event.ipAddress())
+                .userAgent(event.userAgent())
+                .referer(event.referer())
+                .country(location.country())
+                .city(location.city())
+                .deviceType(userAgentInfo.deviceType())
+                .browser(userAgentInfo.browser())
+                .os(userAgentInfo.os())
+                .clickedAt(event.clickedAt())
                 .build();
+    }
 
-        clickEventRepository.save(clickEvent)
-                .doOnSuccess(saved -> log.debug("Сохранено событие клика: {}", shortCode))
-                .doOnError(error -> log.error("Ошибка сохранения события клика: {}", error.getMessage()))
-                .subscribe();
+    /**
+     * Событие клика из тела сообщения: двоичный формат или JSON прежнего формата.
+     * В ту же очередь приходят события создания ссылок - они пропускаются.
+     */
+    private static ClickEventMessage toClickEventMessage(Object payload) {
+        if (payload instanceof ClickEventMessage event) {
+            return event;
+        }
+        if (payload instanceof Map<?, ?> event && ClickEventMessage.TYPE.equals(event.get("type"))) {
+            return ClickEventMessage.fromLegacyMap(event);
+        }
+        return null;
     }
 
     /**
@@ -80,55 +289,67 @@ public class AnalyticsService {
                     LocalDateTime startOfWeek = now.minusDays(7);
                     LocalDateTime startOfMonth = now.minusDays(30);
 
+                    // Общий счётчик хранится в самой ссылке, периоды — в предагрегированных интервалах
                     return Mono.zip(
-                            clickEventRepository.countByShortCode(shortCode),
-                            clickEventRepository.countByShortCodeAndClickedAtBetween(shortCode, startOfDay, now),
-                            clickEventRepository.countByShortCodeAndClickedAtBetween(shortCode, startOfWeek, now),
-                            clickEventRepository.countByShortCodeAndClickedAtBetween(shortCode, startOfMonth, now)
+                            clickRollupService.countSince(shortCode, startOfDay),
+                            clickRollupService.countSince(shortCode, startOfWeek),
+                            clickRollupService.countSince(shortCode, startOfMonth),
+                            getClickBreakdown(shortCode, shortUrl.getCreatedAt())
                     ).map(tuple -> UrlStatsResponse.builder()
                             .shortCode(shortCode)
                             .originalUrl(shortUrl.getOriginalUrl())
-                            .totalClicks(tuple.getT1())
-                            .clicksToday(tuple.getT2())
-                            .clicksThisWeek(tuple.getT3())
-                            .clicksThisMonth(tuple.getT4())
-                            .clicksByCountry(new HashMap<>()) // Заполняется отдельным запросом
-                            .deviceStats(new HashMap<>())
-                            .browserStats(new HashMap<>())
-                            .clicksByHour(new HashMap<>())
+                            .totalClicks(shortUrl.getClickCount())
+                            .clicksToday(tuple.getT1())
+                            .clicksThisWeek(tuple.getT2())
+                            .clicksThisMonth(tuple.getT3())
+                            .clicksByCountry(tuple.getT4().byCountry())
+                            .deviceStats(tuple.getT4().byDevice())
+                            .browserStats(tuple.getT4().byBrowser())
+                            .osStats(tuple.getT4().byOs())
+                            .clicksByHour(tuple.getT4().byHour())
                             .createdAt(shortUrl.getCreatedAt())
                             .build());
                 });
     }
 
-    private String parseDeviceType(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        userAgent = userAgent.toLowerCase();
-        if (userAgent.contains("mobile") || userAgent.contains("android") || userAgent.contains("iphone")) {
-            return "Mobile";
-        } else if (userAgent.contains("tablet") || userAgent.contains("ipad")) {
-            return "Tablet";
-        }
-        return "Desktop";
+    /**
+     * Распределения кликов из итога ссылки (ClickRollupService.getBreakdown).
+     * Для ссылок, созданных раньше, чем итог начал вестись, клики до этого момента
+     * досчитываются по исходным данным: $facet по горячим событиям и сводки архивных сегментов
+     */
+    private Mono<ClickBreakdown> getClickBreakdown(String shortCode, LocalDateTime createdAt) {
+        return clickRollupService.getBreakdown(shortCode)
+                .flatMap(counted -> {
+                    LocalDateTime countedSince = counted.countedSince();
+                    if (countedSince != null && createdAt != null && !createdAt.isBefore(countedSince)) {
+                        return Mono.just(counted.breakdown());
+                    }
+                    return getUncountedBreakdown(shortCode, countedSince).map(counted.breakdown()::merge);
+                });
     }
 
-    private String parseBrowser(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        if (userAgent.contains("Chrome")) return "Chrome";
-        if (userAgent.contains("Firefox")) return "Firefox";
-        if (userAgent.contains("Safari")) return "Safari";
-        if (userAgent.contains("Edge")) return "Edge";
-        if (userAgent.contains("Opera")) return "Opera";
-        return "Other";
-    }
+    /**
+     * Распределения кликов раньше before (null - за всё время) по событиям и архиву
+     */
+    private Mono<ClickBreakdown> getUncountedBreakdown(String shortCode, LocalDateTime before) {
+        Criteria criteria = where("shortCode").is(shortCode);
+        if (before != null) {
+            criteria.and("clickedAt").lt(before);
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(criteria),
+                facet(group("country").count().as("count")).as("countries")
+                        .and(group("deviceType").count().as("count")).as("devices")
+                        .and(group("browser").count().as("count")).as("browsers")
+                        .and(group("os").count().as("count")).as("os")
+                        .and(project().and(DateOperators.Hour.hourOf("clickedAt")).as("hour"),
+                                group("hour").count().as("count")).as("hours"));
+
+        Mono<ClickBreakdown> recent = mongoTemplate.aggregate(aggregation, ClickEvent.class, Document.class)
+                .next()
+                .map(ClickBreakdown::fromFacets)
+                .defaultIfEmpty(ClickBreakdown.empty());
 
-    private String parseOS(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        if (userAgent.contains("Windows")) return "Windows";
-        if (userAgent.contains("Mac")) return "macOS";
-        if (userAgent.contains("Linux")) return "Linux";
-        if (userAgent.contains("Android")) return "Android";
-        if (userAgent.contains("iOS") || userAgent.contains("iPhone")) return "iOS";
-        return "Other";
+        return Mono.zip(recent, clickArchiveService.getArchivedBreakdown(shortCode, before), ClickBreakdown::merge);
     }
 }
@@ -0,0 +1,265 @@
+package com.urlshortener.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.urlshortener.dto.BulkCreateResult;
+import com.urlshortener.dto.CreateShortUrlRequest;
+import com.urlshortener.dto.ShortUrlResponse;
+import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.shortcode.ShortCodeGenerator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.util.MongoDbErrorCodes;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Пакетное создание коротких ссылок.
+ * Входной поток режется на порции, каждая записывается одной неупорядоченной bulk-вставкой,
+ * после чего кэш Redis прогревается и результаты порции сразу отдаются клиенту.
+ * В памяти одновременно находится не больше одной порции, поэтому объём импорта не ограничен.
+ */
+@Service
+public class BulkShortUrlService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkShortUrlService.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ShortUrlService shortUrlService;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final RabbitMQService rabbitMQService;
+    private final Validator validator;
+
+    public BulkShortUrlService(ReactiveMongoTemplate mongoTemplate,
+                               ShortUrlService shortUrlService,
+                               ShortCodeGenerator shortCodeGenerator,
+                               RabbitMQService rabbitMQService,
+                               Validator validator) {
+        this.mongoTemplate = mongoTemplate;
+        this.shortUrlService = shortUrlService;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.rabbitMQService = rabbitMQService;
+        this.validator = validator;
+    }
+
+    @Value("${url-shortener.base-url}")
+    private String baseUrl;
+
+    @Value("${url-shortener.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Максимальное ожидание неполной порции, чтобы медленный поток тоже получал ответы
+     */
+    @Value("${url-shortener.bulk.max-wait:200ms}")
+    private Duration maxWait;
+
+    @Value("${url-shortener.bulk.cache-concurrency:64}")
+    private int cacheConcurrency;
+
+    /**
+     * Создание ссылок из потока запросов.
+     * На каждую входную строку приходится ровно одна строка результата; порядок внутри порции
+     * не гарантируется, соответствие определяется по index.
+     */
+    public Flux<BulkCreateResult> createShortUrls(Flux<CreateShortUrlRequest> requests, String userId) {
+        return requests.index()
+                .bufferTimeout(chunkSize, maxWait, true)
+                .concatMap(chunk -> createChunk(chunk, userId), 1);
+    }
+
+    private Flux<BulkCreateResult> createChunk(List<Tuple2<Long, CreateShortUrlRequest>> chunk, String userId) {
+        List<BulkCreateResult> rejected = new ArrayList<>();
+        List<Tuple2<Long, CreateShortUrlRequest>> valid = new ArrayList<>(chunk.size());
+        for (Tuple2<Long, CreateShortUrlRequest> item : chunk) {
+            String violation = validate(item.getT2());
+            if (violation != null) {
+                rejected.add(BulkCreateResult.failed(item.getT1(), violation));
+            } else {
+                valid.add(item);
+            }
+        }
+
+        Flux<BulkCreateResult> created = Flux.fromIterable(valid)
+                .concatMap(item -> nextCode(item.getT2())
+                        .map(code -> new Pending(item.getT1(), item.getT2(),
+                                withId(shortUrlService.buildShortUrl(code, item.getT2(), userId)))))
+                .collectList()
+                .flatMapMany(pending -> pending.isEmpty() ? Flux.empty() : insert(pending, userId));
+
+        return Flux.concat(Flux.fromIterable(rejected), created);
+    }
+
+    private Flux<BulkCreateResult> insert(List<Pending> pending, String userId) {
+        List<ShortUrl> documents = pending.stream().map(Pending::shortUrl).collect(Collectors.toList());
+
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class)
+                .insert(documents)
+                .execute()
+                .map(result -> Map.<Integer, BulkWriteError>of())
+                .onErrorResume(error -> writeErrors(error) != null, error -> Mono.just(writeErrors(error)))
+                .flatMapMany(failed -> {
+                    List<Pending> inserted = new ArrayList<>(pending.size() - failed.size());
+                    List<BulkCreateResult> results = new ArrayList<>(failed.size());
+                    List<Pending> retries = new ArrayList<>();
+                    for (int i = 0; i < pending.size(); i++) {
+                        Pending item = pending.get(i);
+                        BulkWriteError writeError = failed.get(i);
+                        if (writeError == null) {
+                            inserted.add(item);
+                        } else if (MongoDbErrorCodes.isDuplicateKeyCode(writeError.getCode())
+                                && item.request().getCustomAlias() == null) {
+                            retries.add(item);
+                        } else {
+                            results.add(BulkCreateResult.failed(item.index(), describe(item, writeError)));
+                        }
+                    }
+                    log.info("Пакетная вставка: создано {}, ошибок {}", inserted.size(), failed.size());
+
+                    return Flux.concat(afterInsert(inserted), Flux.fromIterable(results), retry(retries, userId));
+                })
+                .onErrorResume(error -> {
+                    // Порция не записана целиком (например, MongoDB недоступна) - сообщаем по каждой строке
+                    log.error("Ошибка пакетной вставки: {}", error.getMessage());
+                    return Flux.fromIterable(pending)
+                            .map(item -> BulkCreateResult.failed(item.index(), "Ошибка записи: " + error.getMessage()));
+                });
+    }
+
+    /**
+     * Прогрев Redis, рассылка новых кодов по инстансам и события создания для записанных ссылок.
+     * MSET не умеет TTL, поэтому отправляются параллельные SET с TTL - Lettuce конвейеризирует
+     * их в одном соединении без ожидания ответа на каждую команду.
+     * Ссылки, код которых не удалось разослать, удаляются и возвращаются как ошибки строк.
+     */
+    private Flux<BulkCreateResult> afterInsert(List<Pending> inserted) {
+        if (inserted.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(inserted)
+                .flatMap(item -> shortUrlService.announceCreated(item.shortUrl())
+                        .thenReturn(new Announced(item, null))
+                        .onErrorResume(error -> Mono.just(new Announced(item, error))), cacheConcurrency)
+                .collectList()
+                .flatMapMany(announced -> {
+                    List<ShortUrl> created = new ArrayList<>(announced.size());
+                    List<String> withdrawn = new ArrayList<>();
+                    List<BulkCreateResult> results = new ArrayList<>(announced.size());
+                    for (Announced item : announced) {
+                        ShortUrl shortUrl = item.pending().shortUrl();
+                        if (item.error() == null) {
+                            created.add(shortUrl);
+                            results.add(BulkCreateResult.created(item.pending().index(),
+                                    ShortUrlResponse.fromEntity(shortUrl, baseUrl)));
+                        } else {
+                            withdrawn.add(shortUrl.getId());
+                            results.add(BulkCreateResult.failed(item.pending().index(),
+                                    "Ошибка рассылки нового кода: " + item.error().getMessage()));
+                        }
+                    }
+                    Mono<Void> withdraw = withdraw(withdrawn);
+                    Mono<Void> events = Mono.<Void>fromRunnable(() -> created.forEach(rabbitMQService::sendUrlCreatedEvent))
+                            .subscribeOn(Schedulers.boundedElastic());
+                    return Mono.when(withdraw, events).thenMany(Flux.fromIterable(results));
+                });
+    }
+
+    /**
+     * Удаление записанных ссылок, о которых не удалось оповестить остальные инстансы
+     */
+    private Mono<Void> withdraw(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        log.error("Не удалось разослать {} новых кодов, ссылки удаляются", ids.size());
+        return mongoTemplate.remove(query(where("_id").in(ids)), ShortUrl.class)
+                .onErrorResume(error -> {
+                    log.error("Не удалось удалить неразосланные ссылки: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Сгенерированный код совпал с существующим - создаём через одиночный путь с повторами
+     */
+    private Flux<BulkCreateResult> retry(List<Pending> retries, String userId) {
+        return Flux.fromIterable(retries)
+                .concatMap(item -> shortUrlService.createShortUrl(item.request(), userId)
+                        .map(response -> BulkCreateResult.created(item.index(), response))
+                        .onErrorResume(error -> Mono.just(BulkCreateResult.failed(item.index(), error.getMessage()))));
+    }
+
+    private Mono<String> nextCode(CreateShortUrlRequest request) {
+        return request.getCustomAlias() != null ? Mono.just(request.getCustomAlias()) : shortCodeGenerator.nextCode();
+    }
+
+    private String validate(CreateShortUrlRequest request) {
+        Set<ConstraintViolation<CreateShortUrlRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String describe(Pending item, BulkWriteError writeError) {
+        if (MongoDbErrorCodes.isDuplicateKeyCode(writeError.getCode())) {
+            return "Алиас уже занят: " + item.request().getCustomAlias();
+        }
+        return "Ошибка записи: " + writeError.getMessage();
+    }
+
+    private static ShortUrl withId(ShortUrl shortUrl) {
+        // Идентификатор назначается заранее: bulk-вставка не возвращает его в сущность
+        shortUrl.setId(new ObjectId().toHexString());
+        return shortUrl;
+    }
+
+    /**
+     * Ошибки отдельных документов по их позиции в порции; null, если ошибка не относится к bulk-записи.
+     * Транслятор исключений Spring превращает MongoBulkWriteException в DuplicateKeyException
+     * или BulkOperationException, исходное исключение остаётся в цепочке причин.
+     */
+    private static Map<Integer, BulkWriteError> writeErrors(Throwable error) {
+        Set<Throwable> seen = new HashSet<>();
+        for (Throwable cause = error; cause != null && seen.add(cause); cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkError) {
+                Map<Integer, BulkWriteError> errors = new HashMap<>();
+                bulkError.getWriteErrors().forEach(writeError -> errors.put(writeError.getIndex(), writeError));
+                return errors;
+            }
+        }
+        return null;
+    }
+
+    private record Pending(long index, CreateShortUrlRequest request, ShortUrl shortUrl) {}
+
+    /**
+     * Итог рассылки записанной ссылки; error == null - код разослан
+     */
+    private record Announced(Pending pending, Throwable error) {}
+}
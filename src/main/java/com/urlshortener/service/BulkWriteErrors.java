@@ -0,0 +1,53 @@
+package com.urlshortener.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.data.mongodb.util.MongoDbErrorCodes;
+
+/**
+ * Разбор ошибок пакетной записи в MongoDB.
+ * Транслятор исключений Spring Data оборачивает MongoBulkWriteException, поэтому она ищется по цепочке причин.
+ */
+final class BulkWriteErrors {
+
+    private BulkWriteErrors() {}
+
+    static MongoBulkWriteException bulkWriteError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkError) {
+                return bulkError;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ошибка отдельных документов пакетной записи (не сети и не подтверждения записи)
+     */
+    static boolean isDocumentFailure(Throwable error) {
+        MongoBulkWriteException bulkError = bulkWriteError(error);
+        return bulkError != null && bulkError.getWriteConcernError() == null && !bulkError.getWriteErrors().isEmpty();
+    }
+
+    /**
+     * Ошибка пакетной записи, все ошибки которой - дубликаты ключа, иначе null
+     */
+    static MongoBulkWriteException onlyDuplicates(Throwable error) {
+        if (!isDocumentFailure(error)) {
+            return null;
+        }
+        MongoBulkWriteException bulkError = bulkWriteError(error);
+        for (BulkWriteError writeError : bulkError.getWriteErrors()) {
+            if (!MongoDbErrorCodes.isDuplicateKeyCode(writeError.getCode())) {
+                return null;
+            }
+        }
+        return bulkError;
+    }
+
+    static long countDuplicates(MongoBulkWriteException bulkError) {
+        return bulkError.getWriteErrors().stream()
+                .filter(writeError -> MongoDbErrorCodes.isDuplicateKeyCode(writeError.getCode()))
+                .count();
+    }
+}
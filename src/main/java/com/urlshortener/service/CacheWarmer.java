@@ -0,0 +1,96 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.entity.ShortUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Прогрев кэшей при старте: самые посещаемые активные ссылки загружаются в L1 и Redis.
+ * Выполняется как ApplicationRunner — readiness-проба Actuator переходит в ACCEPTING_TRAFFIC
+ * только после завершения прогрева, поэтому новый инстанс не получает трафик с холодными кэшами.
+ * Прогрев ограничен по числу ссылок и по времени; ошибки хранилищ старт не прерывают.
+ */
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ShortUrlService shortUrlService;
+
+    public CacheWarmer(ReactiveMongoTemplate mongoTemplate,
+                       ShortUrlService shortUrlService) {
+        this.mongoTemplate = mongoTemplate;
+        this.shortUrlService = shortUrlService;
+    }
+
+    @Value("${url-shortener.warm-up.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Число самых посещаемых ссылок для прогрева
+     */
+    @Value("${url-shortener.warm-up.size:10000}")
+    private int size;
+
+    /**
+     * Ограничение времени прогрева; по истечении старт продолжается с тем, что успели загрузить
+     */
+    @Value("${url-shortener.warm-up.time-budget:20s}")
+    private Duration timeBudget;
+
+    @Value("${url-shortener.warm-up.concurrency:64}")
+    private int concurrency;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || size <= 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        Long warmed = warmUp(LocalDateTime.now())
+                .onErrorResume(error -> {
+                    log.warn("Прогрев кэшей прерван: {}", error.getMessage());
+                    return Mono.just(0L);
+                })
+                .block();
+        log.info("Прогрев кэшей: {} ссылок за {} мс", warmed, Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    /**
+     * Потоковое чтение топа ссылок по clickCount (индекс active_clicks_idx, только нужные поля)
+     * и запись в L1 и Redis; возвращает число загруженных ссылок
+     */
+    Mono<Long> warmUp(LocalDateTime now) {
+        Query query = query(where("active").is(true).and("expiresAt").gt(now))
+                .with(Sort.by(Sort.Direction.DESC, "clickCount"))
+                .limit(size)
+                .cursorBatchSize(Math.min(size, 1000));
+        query.fields().include("shortCode", "originalUrl", "expiresAt", "active", "redirectStatus");
+
+        return mongoTemplate.find(query, ShortUrl.class)
+                .take(timeBudget)
+                .flatMap(shortUrl -> {
+                    CachedRedirect redirect = shortUrlService.redirectFor(shortUrl);
+                    shortUrlService.cacheLocally(shortUrl.getShortCode(), redirect);
+                    return shortUrlService.cacheRedirect(shortUrl.getShortCode(), redirect)
+                            .onErrorResume(error -> Mono.just(false));
+                }, concurrency)
+                .count();
+    }
+}
@@ -0,0 +1,255 @@
+package com.urlshortener.service;
+
+import com.urlshortener.entity.ClickArchiveSegment;
+import com.urlshortener.entity.ClickEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.facet;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.unwind;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Архивация старых событий кликов.
+ * События старше заданного возраста переносятся из click_events в сжатые суточные сегменты
+ * click_archive (по одному или нескольким на ссылку в сутки) и удаляются из горячей коллекции.
+ * Распределения для статистики берутся из заранее посчитанных сводок сегментов.
+ */
+@Service
+public class ClickArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickArchiveService.class);
+
+    private static final String LOCKS_COLLECTION = "locks";
+    private static final String LOCK_ID = "click-archive";
+    private static final int DELETE_BATCH_SIZE = 10_000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    public ClickArchiveService(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Value("${analytics.archive.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Возраст, после которого события архивируются (отсчитывается от начала текущих суток)
+     */
+    @Value("${analytics.archive.after:30d}")
+    private Duration archiveAfter;
+
+    /**
+     * Ограничение размера сегмента, чтобы документ гарантированно помещался в 16 МБ
+     */
+    @Value("${analytics.archive.max-segment-events:200000}")
+    private int maxSegmentEvents;
+
+    /**
+     * Время, на которое инстанс захватывает архивацию; остальные инстансы в это время её пропускают
+     */
+    @Value("${analytics.archive.lock-duration:PT1H}")
+    private Duration lockDuration;
+
+    @Scheduled(cron = "${analytics.archive.cron:0 30 3 * * *}")
+    public Mono<Void> archive() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        LocalDateTime cutoff = LocalDate.now().atStartOfDay().minus(archiveAfter);
+        return acquireLock()
+                .filter(Boolean::booleanValue)
+                .flatMap(locked -> archiveBefore(cutoff)
+                        .doOnSuccess(segments -> log.info("Архивация кликов до {}: записано сегментов {}", cutoff, segments))
+                        .doOnError(error -> log.error("Ошибка архивации кликов: {}", error.getMessage()))
+                        .onErrorResume(error -> Mono.empty())
+                        .then(releaseLock()));
+    }
+
+    /**
+     * Архивация всех событий раньше cutoff; возвращает число записанных сегментов
+     */
+    Mono<Long> archiveBefore(LocalDateTime cutoff) {
+        Query query = query(where("clickedAt").lt(cutoff))
+                .with(Sort.by("shortCode", "clickedAt"))
+                .withHint("code_clicked_idx");
+        query.fields().exclude("ipAddress", "userAgent");
+
+        SegmentSplitter splitter = new SegmentSplitter(maxSegmentEvents);
+        return mongoTemplate.find(query, ClickEvent.class)
+                .windowUntil(splitter::startsNewSegment, true)
+                .concatMap(window -> window.switchOnFirst((first, events) -> first.hasValue()
+                        ? archivedRanges(first.get()).flatMap(ranges -> events.collect(
+                                () -> new SegmentCollector(ranges), SegmentCollector::add))
+                        : events.then(Mono.empty())))
+                .concatMap(this::storeSegment)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Интервалы времени сегментов, уже записанных для ссылки и суток события
+     */
+    private Mono<List<ClickArchiveSegment>> archivedRanges(ClickEvent event) {
+        Query query = query(where("shortCode").is(event.getShortCode())
+                .and("day").is(event.getClickedAt().toLocalDate().atStartOfDay()));
+        query.fields().include("firstClickAt", "lastClickAt");
+        return mongoTemplate.find(query, ClickArchiveSegment.class).collectList();
+    }
+
+    /**
+     * Сначала сегмент, затем удаление исходных событий. При сбое между шагами повторный запуск
+     * не архивирует события повторно: попавшие в интервал записанного сегмента только удаляются,
+     * а сегмент из оставшихся получает другой интервал и не пересекается с прежним.
+     * Возвращает число записанных сегментов (0 или 1).
+     */
+    private Mono<Long> storeSegment(SegmentCollector collector) {
+        Mono<Long> stored = collector.encoder == null
+                ? Mono.just(0L)
+                : mongoTemplate.save(collector.encoder.toSegment()).thenReturn(1L);
+        return stored.flatMap(segments -> Flux.fromIterable(collector.eventIds)
+                .buffer(DELETE_BATCH_SIZE)
+                .concatMap(ids -> mongoTemplate.remove(query(where("_id").in(ids)), ClickEvent.class))
+                .then(Mono.just(segments)));
+    }
+
+    /**
+     * Распределения по архивным сегментам ссылки за сутки раньше before (null - все сегменты)
+     * в форме, совпадающей с $facet по горячим событиям. Сводки по ОС в сегментах нет.
+     */
+    public Mono<ClickBreakdown> getArchivedBreakdown(String shortCode, LocalDateTime before) {
+        Criteria criteria = where("shortCode").is(shortCode);
+        if (before != null) {
+            criteria.and("day").lt(before);
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(criteria),
+                facet(sumCounts("countries")).as("countries")
+                        .and(sumCounts("devices")).as("devices")
+                        .and(sumCounts("browsers")).as("browsers")
+                        .and(sumCounts("hours")).as("hours"));
+
+        return mongoTemplate.aggregate(aggregation, ClickArchiveSegment.class, Document.class)
+                .next()
+                .map(ClickBreakdown::fromFacets)
+                .defaultIfEmpty(ClickBreakdown.empty());
+    }
+
+    private static AggregationOperation[] sumCounts(String field) {
+        return new AggregationOperation[]{
+                unwind(field),
+                group(field + ".value").sum(field + ".count").as("count")};
+    }
+
+    private Mono<Boolean> acquireLock() {
+        LocalDateTime now = LocalDateTime.now();
+        Query free = query(where("_id").is(LOCK_ID).and("lockedUntil").lt(now));
+        Update lock = new Update().set("lockedUntil", now.plus(lockDuration)).set("owner", owner);
+        return mongoTemplate.findAndModify(free, lock, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, LOCKS_COLLECTION)
+                .map(document -> true)
+                .defaultIfEmpty(false)
+                // Документ блокировки существует и не истёк: upsert нарушает уникальность _id
+                .onErrorResume(DuplicateKeyException.class, error -> {
+                    log.debug("Архивация уже выполняется другим инстансом");
+                    return Mono.just(false);
+                });
+    }
+
+    private Mono<Void> releaseLock() {
+        return mongoTemplate.updateFirst(query(where("_id").is(LOCK_ID).and("owner").is(owner)),
+                        new Update().set("lockedUntil", LocalDateTime.now()), LOCKS_COLLECTION)
+                .then();
+    }
+
+    /**
+     * Граница сегментов: смена ссылки, смена суток или достижение лимита событий.
+     * По лимиту сегмент делится только между разными временами клика, чтобы интервалы
+     * сегментов одних суток не пересекались
+     */
+    private static final class SegmentSplitter {
+        private final int maxEvents;
+        private String shortCode;
+        private LocalDate day;
+        private LocalDateTime lastClickAt;
+        private int events;
+
+        private SegmentSplitter(int maxEvents) {
+            this.maxEvents = maxEvents;
+        }
+
+        boolean startsNewSegment(ClickEvent event) {
+            LocalDate eventDay = event.getClickedAt().toLocalDate();
+            boolean boundary = !event.getShortCode().equals(shortCode) || !eventDay.equals(day)
+                    || (events >= maxEvents && !event.getClickedAt().equals(lastClickAt));
+            if (boundary) {
+                shortCode = event.getShortCode();
+                day = eventDay;
+                events = 0;
+            }
+            lastClickAt = event.getClickedAt();
+            events++;
+            return boundary;
+        }
+    }
+
+    /**
+     * Кодировщик сегмента и идентификаторы событий для последующего удаления.
+     * События из интервалов уже записанных сегментов (остаток прерванного запуска) в сегмент не попадают
+     */
+    private static final class SegmentCollector {
+        private final List<ClickArchiveSegment> archived;
+        private ClickSegmentCodec.Encoder encoder;
+        private final List<String> eventIds = new ArrayList<>();
+
+        SegmentCollector(List<ClickArchiveSegment> archived) {
+            this.archived = archived;
+        }
+
+        void add(ClickEvent event) {
+            eventIds.add(event.getId());
+            if (isArchived(event.getClickedAt())) {
+                return;
+            }
+            if (encoder == null) {
+                encoder = new ClickSegmentCodec.Encoder(event.getShortCode(),
+                        event.getClickedAt().toLocalDate().atStartOfDay());
+            }
+            encoder.add(event);
+        }
+
+        private boolean isArchived(LocalDateTime clickedAt) {
+            for (ClickArchiveSegment segment : archived) {
+                if (!clickedAt.isBefore(segment.getFirstClickAt()) && !clickedAt.isAfter(segment.getLastClickAt())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
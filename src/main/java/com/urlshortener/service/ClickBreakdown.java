@@ -0,0 +1,75 @@
+package com.urlshortener.service;
+
+import org.bson.Document;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Распределение кликов по странам, устройствам, браузерам, ОС и часам суток
+ */
+public record ClickBreakdown(Map<String, Long> byCountry,
+                             Map<String, Long> byDevice,
+                             Map<String, Long> byBrowser,
+                             Map<String, Long> byOs,
+                             Map<String, Long> byHour) {
+
+    static final String UNKNOWN = "Unknown";
+
+    public static ClickBreakdown empty() {
+        return new ClickBreakdown(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new TreeMap<>());
+    }
+
+    /**
+     * Разбор результата $facet с группами countries, devices, browsers, os и hours.
+     * Отсутствующая группа (у архивных сегментов нет сводки по ОС) даёт пустое распределение.
+     */
+    static ClickBreakdown fromFacets(Document result) {
+        return new ClickBreakdown(
+                toCountMap(result, "countries", new HashMap<>()),
+                toCountMap(result, "devices", new HashMap<>()),
+                toCountMap(result, "browsers", new HashMap<>()),
+                toCountMap(result, "os", new HashMap<>()),
+                toCountMap(result, "hours", new TreeMap<>()));
+    }
+
+    /**
+     * Сумма двух распределений (горячие события и архив)
+     */
+    public ClickBreakdown merge(ClickBreakdown other) {
+        return new ClickBreakdown(
+                sum(byCountry, other.byCountry, new HashMap<>()),
+                sum(byDevice, other.byDevice, new HashMap<>()),
+                sum(byBrowser, other.byBrowser, new HashMap<>()),
+                sum(byOs, other.byOs, new HashMap<>()),
+                sum(byHour, other.byHour, new TreeMap<>()));
+    }
+
+    private static Map<String, Long> sum(Map<String, Long> left, Map<String, Long> right, Map<String, Long> target) {
+        target.putAll(left);
+        right.forEach((key, count) -> target.merge(key, count, Long::sum));
+        return target;
+    }
+
+    static Map<String, Long> toCountMap(Document result, String facetName, Map<String, Long> target) {
+        List<Document> buckets = result.getList(facetName, Document.class);
+        if (buckets == null) {
+            return target;
+        }
+        for (Document bucket : buckets) {
+            Object key = bucket.get("_id");
+            String name;
+            if (key == null) {
+                name = UNKNOWN;
+            } else if (key instanceof Number hour) {
+                name = String.format("%02d", hour.intValue());
+            } else {
+                name = key.toString();
+            }
+            target.merge(name, ((Number) bucket.get("count")).longValue(), Long::sum);
+        }
+        return target;
+    }
+}
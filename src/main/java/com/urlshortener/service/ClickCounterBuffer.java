@@ -0,0 +1,150 @@
+package com.urlshortener.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.urlshortener.entity.ShortUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Буфер счётчиков кликов.
+ * Клики копятся в памяти (LongAdder на короткий код) и периодически сбрасываются
+ * в MongoDB одной неупорядоченной bulk-операцией $inc вместо read-modify-write на каждый клик.
+ */
+@Component
+public class ClickCounterBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickCounterBuffer.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Counter flushedClicks;
+
+    public ClickCounterBuffer(ReactiveMongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.flushedClicks = Counter.builder("clicks.counter.flushed")
+                .description("Клики, записанные в short_urls.clickCount")
+                .register(meterRegistry);
+        Gauge.builder("clicks.counter.pending.codes", counters, Map::size)
+                .description("Короткие коды с накопленными кликами")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Учёт клика в памяти, без обращения к БД
+     */
+    public void increment(String shortCode) {
+        add(shortCode, 1);
+    }
+
+    /**
+     * Добавление кликов в счётчик кода без блокировок.
+     * Сброс удаляет простаивающий счётчик и забирает из него остаток, но поток мог получить
+     * этот счётчик до удаления и дописать в него уже после: поэтому после записи проверяем,
+     * что счётчик всё ещё в таблице, и иначе переносим из него остаток в актуальный.
+     * Остаток забирается sumThenReset, так что каждый клик учитывается ровно одной из сторон.
+     */
+    private void add(String shortCode, long clicks) {
+        LongAdder adder = counters.get(shortCode);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(shortCode, k -> new LongAdder());
+        }
+        adder.add(clicks);
+        while (counters.get(shortCode) != adder) {
+            long orphaned = adder.sumThenReset();
+            if (orphaned == 0) {
+                return;
+            }
+            adder = counters.computeIfAbsent(shortCode, k -> new LongAdder());
+            adder.add(orphaned);
+        }
+    }
+
+    /**
+     * Сброс накопленных кликов в MongoDB
+     */
+    @Scheduled(fixedDelayString = "${url-shortener.click-counter.flush-interval:PT1S}")
+    public Mono<Void> flush() {
+        List<String> shortCodes = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+
+        counters.forEach((shortCode, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                shortCodes.add(shortCode);
+                deltas.add(delta);
+            } else if (counters.remove(shortCode, adder)) {
+                // Код не получал кликов за интервал — освобождаем память,
+                // клики, успевшие попасть в удалённый счётчик, переносим в новый
+                long late = adder.sumThenReset();
+                if (late > 0) {
+                    add(shortCode, late);
+                }
+            }
+        });
+
+        if (shortCodes.isEmpty()) {
+            return Mono.empty();
+        }
+
+        ReactiveBulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class);
+        for (int i = 0; i < shortCodes.size(); i++) {
+            bulkOps.updateOne(query(where("shortCode").is(shortCodes.get(i))),
+                    new Update().inc("clickCount", deltas.get(i)));
+        }
+
+        return bulkOps.execute()
+                .doOnSuccess(result -> {
+                    flushedClicks.increment(deltas.stream().mapToLong(Long::longValue).sum());
+                    log.debug("Сброшены счётчики кликов: {} кодов", shortCodes.size());
+                })
+                .onErrorResume(error -> {
+                    restoreFailed(error, shortCodes, deltas);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Возврат несохранённых кликов в буфер для повторной попытки на следующем сбросе
+     */
+    private void restoreFailed(Throwable error, List<String> shortCodes, List<Long> deltas) {
+        log.error("Ошибка сброса счётчиков кликов: {}", error.getMessage());
+        if (error instanceof BulkOperationException bulkError) {
+            for (BulkWriteError writeError : bulkError.getErrors()) {
+                int index = writeError.getIndex();
+                add(shortCodes.get(index), deltas.get(index));
+            }
+            return;
+        }
+        for (int i = 0; i < shortCodes.size(); i++) {
+            add(shortCodes.get(i), deltas.get(i));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.urlshortener.service;
+
+import com.urlshortener.messaging.ClickEventMessage;
+import com.urlshortener.messaging.ClickEventMessageConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующая публикация событий кликов в RabbitMQ.
+ * Поток редиректа только кладёт событие в кольцевой буфер; отдельный поток
+ * забирает события пачками и отправляет их в одном канале с publisher confirms.
+ * События уходят в двоичном формате ClickEventCodec либо, пока не обновлены все потребители, в JSON прежнего формата.
+ */
+@Component
+public class ClickEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickEventPublisher.class);
+
+    /**
+     * Политика при переполнении буфера
+     */
+    public enum OverflowPolicy {
+        /** Отбрасывать новые события */
+        DROP_NEWEST,
+        /** Вытеснять самые старые события */
+        DROP_OLDEST,
+        /** При заполнении более чем наполовину пропускать только каждое N-е событие */
+        SAMPLE
+    }
+
+    /**
+     * Формат отправляемых событий
+     */
+    public enum Format {
+        /** Двоичный ClickEventCodec (application/x-click-event) */
+        BINARY,
+        /** JSON прежнего формата: читается потребителями предыдущих версий */
+        JSON
+    }
+
+    private final RabbitTemplate rabbitTemplate;
+    private final BoundedRingBuffer<ClickEventMessage> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final Format format;
+    private final ClickEventMessageConverter binaryConverter = new ClickEventMessageConverter();
+    private final int sampleRate;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration confirmTimeout;
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final Counter droppedOverflow;
+    private final Counter droppedSampled;
+    private final Counter failed;
+    private final Counter published;
+    private final Timer batchLatency;
+    private final Timer publishedAge;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "click-event-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${rabbitmq.exchanges.analytics}")
+    private String analyticsExchange;
+
+    @Value("${rabbitmq.routing-keys.click}")
+    private String clickRoutingKey;
+
+    public ClickEventPublisher(RabbitTemplate rabbitTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${rabbitmq.publisher.buffer-capacity:65536}") int bufferCapacity,
+                               @Value("${rabbitmq.publisher.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+                               @Value("${rabbitmq.publisher.sample-rate:10}") int sampleRate,
+                               @Value("${rabbitmq.publisher.batch-size:500}") int batchSize,
+                               @Value("${rabbitmq.publisher.flush-interval:50ms}") Duration flushInterval,
+                               @Value("${rabbitmq.publisher.confirm-timeout:5s}") Duration confirmTimeout,
+                               @Value("${rabbitmq.publisher.format:BINARY}") Format format) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.buffer = new BoundedRingBuffer<>(bufferCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.format = format;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.confirmTimeout = confirmTimeout;
+
+        Gauge.builder("clicks.publisher.buffer.depth", buffer, BoundedRingBuffer::size)
+                .description("События кликов, ожидающие отправки")
+                .register(meterRegistry);
+        this.droppedOverflow = Counter.builder("clicks.publisher.dropped")
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        this.droppedSampled = Counter.builder("clicks.publisher.dropped")
+                .tag("reason", "sampled")
+                .register(meterRegistry);
+        this.failed = Counter.builder("clicks.publisher.failed")
+                .description("События, не подтверждённые брокером и возвращённые в буфер")
+                .register(meterRegistry);
+        this.published = Counter.builder("clicks.publisher.published")
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("clicks.publisher.batch.latency")
+                .description("Отправка пачки событий с ожиданием подтверждений")
+                .register(meterRegistry);
+        this.publishedAge = Timer.builder("clicks.event.age")
+                .description("Время от редиректа до этапа обработки события клика")
+                .tag("stage", "published")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long intervalMillis = flushInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::drain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        drain();
+    }
+
+    /**
+     * Постановка события в буфер. Никогда не блокирует вызывающий поток.
+     */
+    public void publish(ClickEventMessage event) {
+        if (overflowPolicy == OverflowPolicy.SAMPLE
+                && buffer.size() > buffer.capacity() / 2
+                && sampleCounter.incrementAndGet() % sampleRate != 0) {
+            droppedSampled.increment();
+            return;
+        }
+
+        while (!buffer.offer(event)) {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+                droppedOverflow.increment();
+                return;
+            }
+            if (buffer.poll() != null) {
+                droppedOverflow.increment();
+            }
+        }
+    }
+
+    /**
+     * Отправка накопленных событий пачками до опустошения буфера
+     */
+    void drain() {
+        List<ClickEventMessage> batch = new ArrayList<>(batchSize);
+        while (true) {
+            ClickEventMessage event;
+            while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!publishBatch(batch)) {
+                // Брокер недоступен — возвращаем события в буфер и повторим на следующем тике
+                batch.forEach(this::publish);
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean publishBatch(List<ClickEventMessage> batch) {
+        Timer.Sample sample = Timer.start();
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (ClickEventMessage event : batch) {
+                    operations.convertAndSend(analyticsExchange, clickRoutingKey, toPayload(event));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+                return null;
+            });
+            published.increment(batch.size());
+            recordPublishedAge(batch);
+            log.debug("Отправлена пачка событий кликов: {}", batch.size());
+            return true;
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Ошибка отправки пачки событий кликов ({} шт.): {}", batch.size(), e.getMessage());
+            return false;
+        } finally {
+            sample.stop(batchLatency);
+        }
+    }
+
+    /**
+     * Готовое двоичное сообщение шаблон отправляет как есть, словарь прежнего формата - через JSON-конвертер
+     */
+    private Object toPayload(ClickEventMessage event) {
+        return format == Format.BINARY
+                ? binaryConverter.toMessage(event, new MessageProperties())
+                : event.toLegacyMap();
+    }
+
+    /**
+     * Возраст подтверждённых брокером событий: ожидание в буфере плюс отправка пачки
+     */
+    private void recordPublishedAge(List<ClickEventMessage> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        for (ClickEventMessage event : batch) {
+            publishedAge.record(Duration.between(event.clickedAt(), now));
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.urlshortener.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.urlshortener.entity.ClickEvent;
+import com.urlshortener.entity.ClickRollup;
+import com.urlshortener.entity.ClickRollup.Granularity;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Сервис предагрегированных счётчиков кликов (минутные, часовые и суточные интервалы).
+ * Счётчики обновляются при приёме событий, поэтому подсчёт за период читает
+ * ограниченное число документов независимо от общего количества кликов по ссылке.
+ * Распределения по странам, устройствам, браузерам, ОС и часам ведёт итог ссылки за всё время.
+ */
+@Service
+public class ClickRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickRollupService.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ClickRollupService(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Срок хранения минутных и часовых интервалов; должен покрывать самый длинный скользящий период статистики
+     */
+    @Value("${analytics.rollups.fine-retention:32d}")
+    private Duration fineRetention;
+
+    /**
+     * Сколько последних меток пачек хранит интервал; должно покрывать пачки, записанные
+     * в интервал между неудачной попыткой и повторной доставкой
+     */
+    @Value("${analytics.rollups.applied-batches:64}")
+    private int appliedBatches;
+
+    /**
+     * Распределения из итога ссылки и начало первых суток, с которых он ведётся (null - ещё не вёлся)
+     */
+    public record CountedBreakdown(ClickBreakdown breakdown, LocalDateTime countedSince) {}
+
+    /**
+     * Учёт пачки событий: одна bulk-операция upsert $inc на каждый затронутый интервал
+     * и на итог ссылки, в котором тем же upsert увеличиваются счётчики значений измерений.
+     * Повтор идемпотентен: upsert несёт метку - хеш идентификаторов событий интервала - и условие,
+     * что её ещё нет в applied. Интервал с уже применённой меткой условию не соответствует, upsert
+     * пытается вставить документ с тем же _id и получает ошибку дубликата - такие операции пропускаются.
+     * Ошибки отдельных интервалов повтором не исправить: они логируются, пачка не возвращается в очередь.
+     */
+    public Mono<Void> record(List<ClickEvent> clickEvents) {
+        Map<String, Bucket> buckets = new HashMap<>();
+        for (ClickEvent clickEvent : clickEvents) {
+            for (Granularity granularity : Granularity.values()) {
+                LocalDateTime bucketStart = granularity.bucketStart(clickEvent.getClickedAt());
+                String id = ClickRollup.idOf(clickEvent.getShortCode(), granularity, bucketStart);
+                Bucket bucket = buckets.computeIfAbsent(id,
+                        k -> new Bucket(clickEvent.getShortCode(), granularity, bucketStart));
+                bucket.add(clickEvent);
+            }
+            LocalDateTime dayStart = Granularity.DAY.bucketStart(clickEvent.getClickedAt());
+            Bucket total = buckets.computeIfAbsent(ClickRollup.totalIdOf(clickEvent.getShortCode()),
+                    k -> new Bucket(clickEvent.getShortCode(), null, dayStart));
+            total.add(clickEvent);
+            total.addDimensions(clickEvent);
+        }
+
+        if (buckets.isEmpty()) {
+            return Mono.empty();
+        }
+
+        ReactiveBulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class);
+        buckets.forEach((id, bucket) -> {
+            String batch = bucket.batchId();
+            Update update = new Update()
+                    .inc("count", (long) bucket.eventIds.size())
+                    .setOnInsert("shortCode", bucket.shortCode);
+            update.push("applied").slice(-appliedBatches).each(batch);
+            if (bucket.granularity == null) {
+                // Итог: опоздавшие события сдвигают начало учёта назад
+                update.min("bucketStart", bucket.bucketStart);
+            } else {
+                update.setOnInsert("granularity", bucket.granularity.name())
+                        .setOnInsert("bucketStart", bucket.bucketStart);
+            }
+            if (bucket.granularity == Granularity.MINUTE || bucket.granularity == Granularity.HOUR) {
+                update.setOnInsert("expireAt", bucket.bucketStart.plus(fineRetention));
+            }
+            bucket.dimensions.forEach((dimension, counts) ->
+                    counts.forEach((key, count) -> update.inc(dimension + "." + key, count)));
+            bulkOps.upsert(query(where("_id").is(id).and("applied").ne(batch)), update);
+        });
+        return bulkOps.execute()
+                .then()
+                .onErrorResume(BulkWriteErrors::isDocumentFailure, error -> {
+                    MongoBulkWriteException bulkError = BulkWriteErrors.bulkWriteError(error);
+                    long applied = BulkWriteErrors.countDuplicates(bulkError);
+                    if (applied > 0) {
+                        log.info("Интервалы уже учли повторно доставленные события: {} из {}", applied, buckets.size());
+                    }
+                    if (applied < bulkError.getWriteErrors().size()) {
+                        log.error("Не обновлено интервалов: {} из {}", bulkError.getWriteErrors().size() - applied, buckets.size());
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Количество кликов с момента from до текущего момента.
+     * Период раскладывается на минутные интервалы до ближайшего часа, часовые до ближайших суток
+     * и суточные до сегодняшнего дня включительно — не более ~110 документов, сумма считается в MongoDB.
+     */
+    public Mono<Long> countSince(String shortCode, LocalDateTime from) {
+        LocalDateTime minuteStart = Granularity.MINUTE.bucketStart(from);
+        LocalDateTime hourStart = ceil(minuteStart, Granularity.HOUR);
+        LocalDateTime dayStart = ceil(hourStart, Granularity.DAY);
+
+        Criteria criteria = where("shortCode").is(shortCode).orOperator(
+                bucketRange(Granularity.MINUTE, minuteStart, hourStart),
+                bucketRange(Granularity.HOUR, hourStart, dayStart),
+                where("granularity").is(Granularity.DAY.name()).and("bucketStart").gte(dayStart));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(criteria),
+                group().sum("count").as("total"));
+
+        return mongoTemplate.aggregate(aggregation, ClickRollup.class, Document.class)
+                .next()
+                .map(result -> ((Number) result.get("total")).longValue())
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * Распределения кликов ссылки: один документ - итог за всё время
+     */
+    public Mono<CountedBreakdown> getBreakdown(String shortCode) {
+        Query query = query(where("_id").is(ClickRollup.totalIdOf(shortCode)));
+        query.fields().include("bucketStart", "countries", "devices", "browsers", "os", "hours");
+
+        return mongoTemplate.findOne(query, ClickRollup.class)
+                .map(total -> new CountedBreakdown(toBreakdown(total), total.getBucketStart()))
+                .defaultIfEmpty(new CountedBreakdown(ClickBreakdown.empty(), null));
+    }
+
+    /**
+     * Значение измерения как имя поля: точка и ведущий $ в пути $inc недопустимы
+     * и заменяются полноширинными аналогами, пустое значение - Unknown (как в $facet по событиям)
+     */
+    static String fieldKey(String value) {
+        if (value == null || value.isEmpty()) {
+            return ClickBreakdown.UNKNOWN;
+        }
+        String key = value.replace('.', '\uFF0E');
+        return key.charAt(0) == '$' ? '\uFF04' + key.substring(1) : key;
+    }
+
+    static String fromFieldKey(String key) {
+        String value = key.replace('\uFF0E', '.');
+        return value.charAt(0) == '\uFF04' ? '$' + value.substring(1) : value;
+    }
+
+    private static ClickBreakdown toBreakdown(ClickRollup total) {
+        ClickBreakdown breakdown = ClickBreakdown.empty();
+        addAll(breakdown.byCountry(), total.getCountries());
+        addAll(breakdown.byDevice(), total.getDevices());
+        addAll(breakdown.byBrowser(), total.getBrowsers());
+        addAll(breakdown.byOs(), total.getOs());
+        addAll(breakdown.byHour(), total.getHours());
+        return breakdown;
+    }
+
+    private static void addAll(Map<String, Long> target, Map<String, Long> counts) {
+        if (counts != null) {
+            counts.forEach((key, count) -> target.merge(fromFieldKey(key), count, Long::sum));
+        }
+    }
+
+    private static Criteria bucketRange(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return where("granularity").is(granularity.name()).and("bucketStart").gte(from).lt(to);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, Granularity granularity) {
+        LocalDateTime start = granularity.bucketStart(time);
+        return start.equals(time) ? start : start.plus(1, granularity.getUnit());
+    }
+
+    private static final class Bucket {
+        private final String shortCode;
+        /**
+         * null - итог ссылки за всё время
+         */
+        private final Granularity granularity;
+        private LocalDateTime bucketStart;
+        private final List<String> eventIds = new ArrayList<>();
+
+        private final Map<String, Map<String, Long>> dimensions = new LinkedHashMap<>();
+
+        private Bucket(String shortCode, Granularity granularity, LocalDateTime bucketStart) {
+            this.shortCode = shortCode;
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+        }
+
+        void add(ClickEvent event) {
+            eventIds.add(event.getId());
+            if (granularity == null) {
+                LocalDateTime dayStart = Granularity.DAY.bucketStart(event.getClickedAt());
+                if (dayStart.isBefore(bucketStart)) {
+                    bucketStart = dayStart;
+                }
+            }
+        }
+
+        /**
+         * Метка пачки в интервале: одни и те же события дают одну метку при любом порядке доставки
+         */
+        String batchId() {
+            List<String> sorted = new ArrayList<>(eventIds);
+            sorted.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+            return UUID.nameUUIDFromBytes(String.join("\n", sorted).getBytes(StandardCharsets.UTF_8))
+                    .toString();
+        }
+
+        void addDimensions(ClickEvent event) {
+            addDimension("countries", event.getCountry());
+            addDimension("devices", event.getDeviceType());
+            addDimension("browsers", event.getBrowser());
+            addDimension("os", event.getOs());
+            addDimension("hours", String.format("%02d", ClickSegmentCodec.utcHour(event.getClickedAt())));
+        }
+
+        private void addDimension(String dimension, String value) {
+            dimensions.computeIfAbsent(dimension, k -> new HashMap<>()).merge(fieldKey(value), 1L, Long::sum);
+        }
+    }
+}
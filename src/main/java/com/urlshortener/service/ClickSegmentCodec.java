@@ -0,0 +1,273 @@
+package com.urlshortener.service;
+
+import com.urlshortener.entity.ClickArchiveSegment;
+import com.urlshortener.entity.ClickEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Колоночное кодирование кликов для архивных сегментов.
+ * Каждое строковое поле хранится словарём уникальных значений и столбцом индексов (varint),
+ * время - приращениями в миллисекундах от начала суток; результат сжимается Deflate.
+ * IP-адрес и исходный User-Agent в архив не попадают - для статистики используются только
+ * производные от них страна, город, устройство, браузер и ОС.
+ */
+final class ClickSegmentCodec {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final List<Function<ClickEvent, String>> COLUMNS = List.of(
+            ClickEvent::getShortUrlId,
+            ClickEvent::getCountry,
+            ClickEvent::getCity,
+            ClickEvent::getDeviceType,
+            ClickEvent::getBrowser,
+            ClickEvent::getOs,
+            ClickEvent::getReferer);
+
+    private ClickSegmentCodec() {}
+
+    /**
+     * Накопитель сегмента: события добавляются по одному в порядке времени клика
+     */
+    static final class Encoder {
+
+        private final String shortCode;
+        private final LocalDateTime day;
+        private final List<Dictionary> dictionaries = new ArrayList<>(COLUMNS.size());
+        private final List<IntColumn> columns = new ArrayList<>(COLUMNS.size());
+        private final IntColumn timeDeltas = new IntColumn();
+        private final Map<String, Long> countries = new LinkedHashMap<>();
+        private final Map<String, Long> devices = new LinkedHashMap<>();
+        private final Map<String, Long> browsers = new LinkedHashMap<>();
+        private final Map<String, Long> hours = new LinkedHashMap<>();
+
+        private LocalDateTime firstClickAt;
+        private LocalDateTime lastClickAt;
+        private long previousMillis;
+
+        Encoder(String shortCode, LocalDateTime day) {
+            this.shortCode = shortCode;
+            this.day = day;
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                dictionaries.add(new Dictionary());
+                columns.add(new IntColumn());
+            }
+        }
+
+        Encoder add(ClickEvent event) {
+            LocalDateTime clickedAt = event.getClickedAt();
+            long millis = ChronoUnit.MILLIS.between(day, clickedAt);
+            if (millis < previousMillis) {
+                throw new IllegalArgumentException("События сегмента должны идти по возрастанию времени");
+            }
+            timeDeltas.add((int) (millis - previousMillis));
+            previousMillis = millis;
+
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                columns.get(i).add(dictionaries.get(i).indexOf(COLUMNS.get(i).apply(event)));
+            }
+
+            countries.merge(event.getCountry(), 1L, Long::sum);
+            devices.merge(event.getDeviceType(), 1L, Long::sum);
+            browsers.merge(event.getBrowser(), 1L, Long::sum);
+            hours.merge(String.format("%02d", utcHour(clickedAt)), 1L, Long::sum);
+
+            if (firstClickAt == null) {
+                firstClickAt = clickedAt;
+            }
+            lastClickAt = clickedAt;
+            return this;
+        }
+
+        int size() {
+            return timeDeltas.size;
+        }
+
+        ClickArchiveSegment toSegment() {
+            ClickArchiveSegment segment = new ClickArchiveSegment();
+            segment.setId(shortCode + ":" + firstClickAt);
+            segment.setShortCode(shortCode);
+            segment.setDay(day);
+            segment.setCount(size());
+            segment.setFirstClickAt(firstClickAt);
+            segment.setLastClickAt(lastClickAt);
+            segment.setCountries(toCounts(countries));
+            segment.setDevices(toCounts(devices));
+            segment.setBrowsers(toCounts(browsers));
+            segment.setHours(toCounts(hours));
+            segment.setColumns(encodeColumns());
+            return segment;
+        }
+
+        private byte[] encodeColumns() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION))) {
+                writeVarint(out, FORMAT_VERSION);
+                writeVarint(out, size());
+                for (Dictionary dictionary : dictionaries) {
+                    writeVarint(out, dictionary.values.size());
+                    for (String value : dictionary.values) {
+                        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                        writeVarint(out, utf8.length);
+                        out.write(utf8);
+                    }
+                }
+                timeDeltas.writeTo(out);
+                for (IntColumn column : columns) {
+                    column.writeTo(out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Восстановление событий сегмента (без IP-адреса и User-Agent)
+     */
+    static List<ClickEvent> decode(ClickArchiveSegment segment) {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(segment.getColumns()))) {
+            int version = readVarint(in);
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Неизвестная версия формата сегмента: " + version);
+            }
+            int count = readVarint(in);
+
+            List<String[]> dictionaries = new ArrayList<>(COLUMNS.size());
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                String[] values = new String[readVarint(in) + 1];
+                for (int j = 1; j < values.length; j++) {
+                    values[j] = new String(in.readNBytes(readVarint(in)), StandardCharsets.UTF_8);
+                }
+                dictionaries.add(values);
+            }
+
+            LocalDateTime[] clickedAt = new LocalDateTime[count];
+            long millis = 0;
+            for (int i = 0; i < count; i++) {
+                millis += readVarint(in);
+                clickedAt[i] = segment.getDay().plus(millis, ChronoUnit.MILLIS);
+            }
+
+            String[][] values = new String[COLUMNS.size()][count];
+            for (int column = 0; column < COLUMNS.size(); column++) {
+                for (int i = 0; i < count; i++) {
+                    values[column][i] = dictionaries.get(column)[readVarint(in)];
+                }
+            }
+
+            List<ClickEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                events.add(ClickEvent.builder()
+                        .shortCode(segment.getShortCode())
+                        .shortUrlId(values[0][i])
+                        .country(values[1][i])
+                        .city(values[2][i])
+                        .deviceType(values[3][i])
+                        .browser(values[4][i])
+                        .os(values[5][i])
+                        .referer(values[6][i])
+                        .clickedAt(clickedAt[i])
+                        .build());
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Час клика в UTC - так же, как его считает $hour по сохранённой в MongoDB дате
+     */
+    static int utcHour(LocalDateTime clickedAt) {
+        return clickedAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).getHour();
+    }
+
+    private static List<ClickArchiveSegment.Count> toCounts(Map<String, Long> counts) {
+        List<ClickArchiveSegment.Count> result = new ArrayList<>(counts.size());
+        counts.forEach((value, count) -> result.add(new ClickArchiveSegment.Count(value, count)));
+        return result;
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Неожиданный конец сегмента");
+            }
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Некорректный varint в сегменте");
+    }
+
+    /**
+     * Словарь значений столбца; индекс 0 зарезервирован за null
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            if (value == null) {
+                return 0;
+            }
+            return indexes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size();
+            });
+        }
+    }
+
+    private static final class IntColumn {
+        private int[] values = new int[256];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                writeVarint(out, values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.urlshortener.service;
+
+/**
+ * Count-Min Sketch с консервативным обновлением: оценка частоты любого ключа в фиксированной памяти.
+ * Оценка не меньше истинной частоты; консервативное обновление увеличивает только минимальные
+ * счётчики ключа и уменьшает переоценку от коллизий. Не потокобезопасен: пишет один поток,
+ * чтение из других потоков допускает гонки (значения int читаются атомарно, оценка остаётся приблизительной).
+ */
+final class CountMinSketch {
+
+    private static final int DEPTH = 4;
+
+    private final int[][] counters;
+    private final int mask;
+
+    CountMinSketch(int requestedWidth) {
+        if (requestedWidth < 2) {
+            throw new IllegalArgumentException("Ширина Count-Min Sketch должна быть не меньше 2");
+        }
+        int width = Integer.highestOneBit(requestedWidth - 1) << 1;
+        this.counters = new int[DEPTH][width];
+        this.mask = width - 1;
+    }
+
+    /**
+     * Учёт weight появлений ключа; возвращает новую оценку его частоты
+     */
+    int add(String key, int weight) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash) | 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][(hash + row * step) & mask]);
+        }
+        int updated = estimate > Integer.MAX_VALUE - weight ? Integer.MAX_VALUE : estimate + weight;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = (hash + row * step) & mask;
+            if (counters[row][index] < updated) {
+                counters[row][index] = updated;
+            }
+        }
+        return updated;
+    }
+
+    int estimate(String key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash) | 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][(hash + row * step) & mask]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Старение: все счётчики уменьшаются вдвое
+     */
+    void halve() {
+        for (int[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,164 @@
+package com.urlshortener.service;
+
+import com.urlshortener.entity.ShortUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Фоновая очистка истёкших ссылок.
+ * Истёкшие активные ссылки деактивируются пачками и удаляются из Redis и L1 кэшей всех инстансов;
+ * деактивированные ссылки, истёкшие больше remove-after назад, удаляются из MongoDB.
+ * Пачки небольшие и разделены паузой, число пачек за запуск ограничено — очистка растягивается
+ * во времени и не отнимает у редиректов соединения MongoDB и Redis.
+ */
+@Service
+public class ExpiredUrlSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredUrlSweeper.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ShortUrlService shortUrlService;
+    private final Counter deactivatedCounter;
+    private final Counter removedCounter;
+
+    public ExpiredUrlSweeper(ReactiveMongoTemplate mongoTemplate,
+                             ShortUrlService shortUrlService,
+                             MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.shortUrlService = shortUrlService;
+        this.deactivatedCounter = Counter.builder("url.expiry.deactivated")
+                .description("Истёкшие ссылки, деактивированные фоновой очисткой")
+                .register(meterRegistry);
+        this.removedCounter = Counter.builder("url.expiry.removed")
+                .description("Давно истёкшие ссылки, удалённые фоновой очисткой")
+                .register(meterRegistry);
+    }
+
+    @Value("${url-shortener.expiry-sweep.enabled:true}")
+    private boolean enabled;
+
+    @Value("${url-shortener.expiry-sweep.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * Пауза между пачками
+     */
+    @Value("${url-shortener.expiry-sweep.batch-pause:200ms}")
+    private Duration batchPause;
+
+    /**
+     * Ограничение пачек за один запуск; остаток обрабатывается следующими запусками
+     */
+    @Value("${url-shortener.expiry-sweep.max-batches:50}")
+    private int maxBatches;
+
+    /**
+     * Срок, после которого деактивированная истёкшая ссылка удаляется; 0 - не удалять
+     */
+    @Value("${url-shortener.expiry-sweep.remove-after:90d}")
+    private Duration removeAfter;
+
+    @Scheduled(fixedDelayString = "${url-shortener.expiry-sweep.interval:PT1M}")
+    public Mono<Void> sweep() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return deactivateExpired(now)
+                .zipWith(removeDeactivated(now))
+                .doOnNext(result -> {
+                    if (result.getT1() > 0 || result.getT2() > 0) {
+                        log.info("Очистка истёкших ссылок: деактивировано {}, удалено {}", result.getT1(), result.getT2());
+                    }
+                })
+                .doOnError(error -> log.error("Ошибка очистки истёкших ссылок: {}", error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Деактивация истёкших ссылок пачками; возвращает число деактивированных
+     */
+    Mono<Long> deactivateExpired(LocalDateTime now) {
+        return inBatches(() -> deactivateBatch(now))
+                .doOnNext(deactivatedCounter::increment);
+    }
+
+    /**
+     * Удаление деактивированных ссылок, истёкших раньше now - removeAfter
+     */
+    Mono<Long> removeDeactivated(LocalDateTime now) {
+        if (removeAfter.isZero()) {
+            return Mono.just(0L);
+        }
+        LocalDateTime cutoff = now.minus(removeAfter);
+        return inBatches(() -> removeBatch(cutoff))
+                .doOnNext(removedCounter::increment);
+    }
+
+    /**
+     * Пачка за пачкой, пока пачки полные и не исчерпан лимит запуска
+     */
+    private Mono<Long> inBatches(Supplier<Mono<Long>> batch) {
+        return batch.get()
+                .expand(processed -> processed < batchSize
+                        ? Mono.empty()
+                        : batch.get().delaySubscription(batchPause))
+                .take(maxBatches)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Сначала деактивация в MongoDB, затем кэши: после DEL промах не найдёт активную ссылку.
+     * Условие active повторяется в обновлении, поэтому параллельный запуск на другом инстансе безопасен.
+     */
+    private Mono<Long> deactivateBatch(LocalDateTime now) {
+        return findCodes(query(where("active").is(true).and("expiresAt").lt(now)))
+                .flatMap(codes -> {
+                    if (codes.isEmpty()) {
+                        return Mono.just(0L);
+                    }
+                    Query batch = query(where("shortCode").in(codes).and("active").is(true).and("expiresAt").lt(now));
+                    return mongoTemplate.updateMulti(batch, Update.update("active", false), ShortUrl.class)
+                            .flatMap(result -> shortUrlService.evictFromCache(codes)
+                                    .thenReturn((long) codes.size()));
+                });
+    }
+
+    private Mono<Long> removeBatch(LocalDateTime cutoff) {
+        return findCodes(query(where("active").is(false).and("expiresAt").lt(cutoff)))
+                .flatMap(codes -> codes.isEmpty()
+                        ? Mono.just(0L)
+                        : mongoTemplate.remove(query(where("shortCode").in(codes).and("active").is(false)), ShortUrl.class)
+                                .thenReturn((long) codes.size()));
+    }
+
+    /**
+     * Коды очередной пачки по индексу (active, expiresAt), только поле shortCode
+     */
+    private Mono<List<String>> findCodes(Query query) {
+        query.with(Sort.by("expiresAt")).limit(batchSize);
+        query.fields().include("shortCode");
+        return mongoTemplate.find(query, ShortUrl.class)
+                .map(ShortUrl::getShortCode)
+                .collectList();
+    }
+}
@@ -0,0 +1,149 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.LocalUrlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Поиск самых посещаемых кодов (heavy hitters) в потоке переходов.
+ * На пути редиректа код только кладётся в lock-free буфер (с выборкой каждого sample-rate-го перехода);
+ * при переполнении событие отбрасывается. Буфер разбирается по расписанию одним потоком в Count-Min Sketch
+ * и таблицу Space-Saving, счётчики стареют вдвое каждые decay-interval.
+ * Топ-K публикуется как метрика url.hotkeys.hits с тегом shortCode, отдаётся Actuator-эндпоинтом hotkeys
+ * и закрепляется в локальном кэше, чтобы поток редких кодов не вытеснял горячие.
+ */
+@Component
+public class HotKeyTracker {
+
+    /**
+     * Код в топе: оценка числа переходов с учётом выборки и старения
+     */
+    public record HotKey(String shortCode, long hits) {
+    }
+
+    private final LocalUrlCache localUrlCache;
+    private final boolean enabled;
+    private final int topK;
+    private final int sampleRate;
+    private final long decayIntervalNanos;
+    private final BoundedRingBuffer<String> buffer;
+    private final CountMinSketch sketch;
+    private final SpaceSaving spaceSaving;
+    private final MultiGauge hitsGauge;
+    private final Counter dropped;
+
+    private long nextDecayNanos;
+    private volatile List<HotKey> hotKeys = List.of();
+
+    public HotKeyTracker(LocalUrlCache localUrlCache,
+                         MeterRegistry meterRegistry,
+                         @Value("${url-shortener.hot-keys.enabled:true}") boolean enabled,
+                         @Value("${url-shortener.hot-keys.top-k:20}") int topK,
+                         @Value("${url-shortener.hot-keys.sample-rate:1}") int sampleRate,
+                         @Value("${url-shortener.hot-keys.sketch-width:65536}") int sketchWidth,
+                         @Value("${url-shortener.hot-keys.buffer-size:65536}") int bufferSize,
+                         @Value("${url-shortener.hot-keys.decay-interval:1m}") Duration decayInterval) {
+        this.localUrlCache = localUrlCache;
+        this.enabled = enabled;
+        this.topK = topK;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.decayIntervalNanos = decayInterval.toNanos();
+        this.buffer = new BoundedRingBuffer<>(bufferSize);
+        this.sketch = new CountMinSketch(sketchWidth);
+        // Запас ёмкости таблицы: в топ-K попадают коды, которые успели набрать счётчик после вытеснения
+        this.spaceSaving = new SpaceSaving(topK * 4);
+        this.nextDecayNanos = System.nanoTime() + decayIntervalNanos;
+        this.hitsGauge = MultiGauge.builder("url.hotkeys.hits")
+                .description("Оценка переходов по самым посещаемым кодам; вес уменьшается вдвое каждые decay-interval")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("url.hotkeys.dropped")
+                .description("Переходы, не учтённые из-за переполнения буфера")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Учёт перехода по коду; не блокирует и не выделяет памяти
+     */
+    public void record(String shortCode) {
+        if (!enabled || sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        if (!buffer.offer(shortCode)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Разбор буфера в скетч и таблицу Space-Saving
+     */
+    @Scheduled(fixedDelayString = "${url-shortener.hot-keys.drain-interval:PT0.1S}")
+    public synchronized void drain() {
+        // Не больше ёмкости за раз: при непрерывном потоке разбор не занимает поток планировщика навсегда
+        String shortCode;
+        for (int i = buffer.capacity(); i > 0 && (shortCode = buffer.poll()) != null; i--) {
+            spaceSaving.offer(shortCode, 1, sketch.add(shortCode, 1));
+        }
+    }
+
+    /**
+     * Старение счётчиков, обновление топа, метрик и закреплённых в локальном кэше кодов
+     */
+    @Scheduled(fixedDelayString = "${url-shortener.hot-keys.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        drain();
+        long now = System.nanoTime();
+        if (now - nextDecayNanos >= 0) {
+            sketch.halve();
+            spaceSaving.halve();
+            nextDecayNanos = now + decayIntervalNanos;
+        }
+
+        List<HotKey> top = new ArrayList<>(topK);
+        List<MultiGauge.Row<?>> rows = new ArrayList<>(topK);
+        Set<String> pinned = new HashSet<>();
+        for (Map.Entry<String, Long> entry : spaceSaving.top(topK)) {
+            long hits = entry.getValue() * sampleRate;
+            top.add(new HotKey(entry.getKey(), hits));
+            rows.add(MultiGauge.Row.of(Tags.of("shortCode", entry.getKey()), hits));
+            pinned.add(entry.getKey());
+        }
+        hotKeys = List.copyOf(top);
+        // Коды, выпавшие из топа, удаляются из метрики: число рядов не превышает top-k
+        hitsGauge.register(rows, true);
+        localUrlCache.pin(pinned);
+    }
+
+    /**
+     * Топ-K кодов на момент последнего обновления, по убыванию числа переходов
+     */
+    public List<HotKey> hotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * Оценка переходов по любому коду (сверху: коллизии скетча только завышают)
+     */
+    public long estimate(String shortCode) {
+        return (long) sketch.estimate(shortCode) * sampleRate;
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+}
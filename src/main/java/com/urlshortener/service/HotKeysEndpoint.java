@@ -0,0 +1,35 @@
+package com.urlshortener.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator-эндпоинт /actuator/hotkeys: самые посещаемые коды этого инстанса
+ * и оценка переходов по отдельному коду (/actuator/hotkeys/{shortCode})
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final HotKeyTracker hotKeyTracker;
+
+    public HotKeysEndpoint(HotKeyTracker hotKeyTracker) {
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        List<HotKeyTracker.HotKey> hotKeys = hotKeyTracker.hotKeys();
+        return Map.of("sampleRate", hotKeyTracker.sampleRate(), "keys", hotKeys);
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKey(@Selector String shortCode) {
+        return Map.of("shortCode", shortCode, "hits", hotKeyTracker.estimate(shortCode));
+    }
+}
@@ -1,6 +1,7 @@
 package com.urlshortener.service;
 
 import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.messaging.ClickEventMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -19,39 +20,28 @@ public class RabbitMQService {
 
     private static final Logger log = LoggerFactory.getLogger(RabbitMQService.class);
     private final RabbitTemplate rabbitTemplate;
+    private final ClickEventPublisher clickEventPublisher;
 
-    public RabbitMQService(RabbitTemplate rabbitTemplate) {
+    public RabbitMQService(RabbitTemplate rabbitTemplate, ClickEventPublisher clickEventPublisher) {
         this.rabbitTemplate = rabbitTemplate;
+        this.clickEventPublisher = clickEventPublisher;
     }
 
     @Value("${rabbitmq.exchanges.analytics}")
     private String analyticsExchange;
 
-    @Value("${rabbitmq.routing-keys.click}")
-    private String clickRoutingKey;
-
     @Value("${rabbitmq.routing-keys.created}")
     private String createdRoutingKey;
 
     /**
-     * Отправка события клика
+     * Отправка события клика.
+     * Событие ставится в буфер и уходит в брокер пачкой из отдельного потока,
+     * поэтому метод безопасно вызывать из event loop. Идентификатор события назначается здесь
+     * и служит потребителю ключом дедупликации.
      */
     public void sendClickEvent(String shortCode, String shortUrlId, String ipAddress, String userAgent, String referer) {
-        Map<String, Object> event = new HashMap<>();
-        event.put("type", "CLICK");
-        event.put("shortCode", shortCode);
-        event.put("shortUrlId", shortUrlId);
-        event.put("ipAddress", ipAddress);
-        event.put("userAgent", userAgent);
-        event.put("referer", referer);
-        event.put("timestamp", LocalDateTime.now().toString());
-
-        try {
-            rabbitTemplate.convertAndSend(analyticsExchange, clickRoutingKey, event);
-            log.debug("Отправлено событие клика для: {}", shortCode);
-        } catch (Exception e) {
-            log.error("Ошибка отправки события клика: {}", e.getMessage());
-        }
+        clickEventPublisher.publish(ClickEventMessage.create(
+                shortCode, shortUrlId, ipAddress, userAgent, referer, LocalDateTime.now()));
     }
 
     /**
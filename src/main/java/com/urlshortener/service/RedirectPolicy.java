@@ -0,0 +1,120 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.entity.ShortUrl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Политика редиректов: код ответа (301/302/307/308, для ссылки или глобально) и заголовки кэширования.
+ * Браузерам и CDN задаются отдельные сроки (max-age и s-maxage); оба не выходят за срок действия ссылки.
+ * Короткий max-age оставляет клики видимыми для аналитики и позволяет деактивировать ссылку,
+ * а s-maxage отдаёт повторные переходы кэшу CDN, откуда ссылка вычищается по Surrogate-Key.
+ */
+@Component
+public class RedirectPolicy {
+
+    private final HttpStatus defaultStatus;
+    private final long browserMaxAgeSeconds;
+    private final long edgeMaxAgeSeconds;
+
+    public RedirectPolicy(@Value("${url-shortener.redirect.default-status:302}") int defaultStatus,
+                          @Value("${url-shortener.redirect.browser-max-age:0s}") Duration browserMaxAge,
+                          @Value("${url-shortener.redirect.edge-max-age:10m}") Duration edgeMaxAge) {
+        if (!isSupported(defaultStatus)) {
+            throw new IllegalArgumentException("Неподдерживаемый код редиректа: " + defaultStatus);
+        }
+        this.defaultStatus = HttpStatus.valueOf(defaultStatus);
+        this.browserMaxAgeSeconds = browserMaxAge.toSeconds();
+        this.edgeMaxAgeSeconds = edgeMaxAge.toSeconds();
+    }
+
+    public static boolean isSupported(int status) {
+        return status == 301 || status == 302 || status == 307 || status == 308;
+    }
+
+    /**
+     * URL годится для заголовка Location: его принимает URI.create в redirectFor.
+     * Валидатор @URL пропускает пробелы, '|', '{', '^' и подобные символы, которые URI.create отклоняет
+     */
+    public static boolean isValidLocation(String url) {
+        try {
+            URI.create(url);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Готовый редирект для кэша: URL разбирается и кодируется здесь, а не на каждом запросе
+     */
+    public CachedRedirect redirectFor(ShortUrl shortUrl) {
+        return redirectFor(shortUrl, System.currentTimeMillis());
+    }
+
+    CachedRedirect redirectFor(ShortUrl shortUrl, long nowMillis) {
+        HttpStatus status = shortUrl.getRedirectStatus() != null
+                ? HttpStatus.valueOf(shortUrl.getRedirectStatus())
+                : defaultStatus;
+        long expiresAt = shortUrl.getExpiresAt() != null
+                ? shortUrl.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : CachedRedirect.NEVER;
+        // URI.create проверяет URL и кодирует не-ASCII символы для заголовка Location
+        String location = URI.create(shortUrl.getOriginalUrl()).toASCIIString();
+
+        long remainingSeconds = Math.max(0, (expiresAt - nowMillis) / 1000);
+        long browserMaxAge = Math.min(browserMaxAgeSeconds, remainingSeconds);
+        long edgeMaxAge = Math.min(edgeMaxAgeSeconds, remainingSeconds);
+        // Expires для HTTP/1.0-кэшей: момент кэширования ответа сервисом плюс браузерный срок.
+        // Ответ из кэша сервиса отдаёт его в прошлом, что лишь запрещает такое кэширование.
+        long expiresMillis = nowMillis + Math.min(browserMaxAge * 1000, Math.max(0, expiresAt - nowMillis));
+
+        return new CachedRedirect(status, location, cacheControl(browserMaxAge, edgeMaxAge),
+                httpDate(expiresMillis), etag(status, location, expiresAt), expiresAt);
+    }
+
+    /**
+     * Момент (epoch millis), до которого готовый ответ можно отдавать из кэшей сервиса.
+     * max-age и s-maxage считаются при заполнении кэша; отданные позже, они позволили бы браузеру
+     * и CDN хранить редирект после истечения ссылки. Поэтому в последние max(max-age, s-maxage)
+     * до истечения ответ строится заново на каждый запрос со сроками по оставшемуся времени.
+     */
+    public long cacheableUntil(CachedRedirect redirect) {
+        if (redirect.expiresAt() == CachedRedirect.NEVER) {
+            return CachedRedirect.NEVER;
+        }
+        return redirect.expiresAt() - Math.max(browserMaxAgeSeconds, edgeMaxAgeSeconds) * 1000;
+    }
+
+    private static String cacheControl(long browserMaxAge, long edgeMaxAge) {
+        if (edgeMaxAge > 0) {
+            return "public, max-age=" + browserMaxAge + ", s-maxage=" + edgeMaxAge;
+        }
+        if (browserMaxAge > 0) {
+            return "private, max-age=" + browserMaxAge;
+        }
+        // Без Cache-Control браузеры кэшируют 301 и 308 бессрочно
+        return "no-store";
+    }
+
+    /**
+     * Сильный ETag ответа: меняется при смене кода, адреса или срока действия ссылки
+     */
+    private static String etag(HttpStatus status, String location, long expiresAt) {
+        return "\"" + status.value() + '-' + Integer.toHexString(location.hashCode())
+                + '-' + Long.toHexString(expiresAt) + "\"";
+    }
+
+    private static String httpDate(long epochMillis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC));
+    }
+}
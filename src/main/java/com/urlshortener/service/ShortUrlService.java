@@ -1,22 +1,37 @@
 package com.urlshortener.service;
 
+import com.urlshortener.cache.CacheInvalidationBus;
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.cache.LocalUrlCache;
+import com.urlshortener.cache.ShortCodeFilter;
+import com.urlshortener.cdn.CdnPurgeClient;
 import com.urlshortener.dto.CreateShortUrlRequest;
 import com.urlshortener.dto.ShortUrlResponse;
 import com.urlshortener.entity.ShortUrl;
 import com.urlshortener.exception.BusinessException;
 import com.urlshortener.exception.ResourceNotFoundException;
 import com.urlshortener.repository.ShortUrlRepository;
+import com.urlshortener.shortcode.ShortCodeGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Сервис для управления короткими ссылками
@@ -29,106 +44,250 @@ public class ShortUrlService {
     private final ShortUrlRepository shortUrlRepository;
     private final ReactiveRedisTemplate<String, String> redisTemplate;
     private final RabbitMQService rabbitMQService;
+    private final LocalUrlCache localUrlCache;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ClickCounterBuffer clickCounterBuffer;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final RedirectPolicy redirectPolicy;
+    private final CdnPurgeClient cdnPurgeClient;
+    private final HotKeyTracker hotKeyTracker;
+    private final Counter coalescedCounter;
+
+    /**
+     * Загрузки редиректа по промаху кэшей, выполняющиеся сейчас; одновременные промахи по одному коду
+     * подписываются на уже начатую загрузку
+     */
+    private final Map<String, Mono<CachedRedirect>> inFlightLoads = new ConcurrentHashMap<>();
 
     public ShortUrlService(ShortUrlRepository shortUrlRepository,
                            ReactiveRedisTemplate<String, String> redisTemplate,
-                           RabbitMQService rabbitMQService) {
+                           RabbitMQService rabbitMQService,
+                           LocalUrlCache localUrlCache,
+                           CacheInvalidationBus cacheInvalidationBus,
+                           ClickCounterBuffer clickCounterBuffer,
+                           ShortCodeGenerator shortCodeGenerator,
+                           ShortCodeFilter shortCodeFilter,
+                           RedirectPolicy redirectPolicy,
+                           CdnPurgeClient cdnPurgeClient,
+                           HotKeyTracker hotKeyTracker,
+                           MeterRegistry meterRegistry) {
         this.shortUrlRepository = shortUrlRepository;
         this.redisTemplate = redisTemplate;
         this.rabbitMQService = rabbitMQService;
+        this.localUrlCache = localUrlCache;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.clickCounterBuffer = clickCounterBuffer;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.shortCodeFilter = shortCodeFilter;
+        this.redirectPolicy = redirectPolicy;
+        this.cdnPurgeClient = cdnPurgeClient;
+        this.hotKeyTracker = hotKeyTracker;
+        this.coalescedCounter = Counter.builder("url.redirect.coalesced")
+                .description("Промахи кэша, объединённые с уже выполняющейся загрузкой того же кода")
+                .register(meterRegistry);
     }
 
     private static final String CACHE_PREFIX = "url:";
-    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int MAX_GENERATION_ATTEMPTS = 5;
+    private static final Duration MAX_CACHE_TTL = Duration.ofHours(24);
+    private static final int ANNOUNCE_RETRIES = 2;
+    private static final Duration ANNOUNCE_BACKOFF = Duration.ofMillis(50);
+
+    // Надгробия: значения кэша для несуществующих, деактивированных и истёкших кодов
+    private static final String INACTIVE_MARKER = CachedRedirect.TOMBSTONE_PREFIX + "inactive";
+    private static final String EXPIRED_MARKER = CachedRedirect.TOMBSTONE_PREFIX + "expired";
+    private static final CachedRedirect NOT_FOUND = CachedRedirect.tombstone(CachedRedirect.TOMBSTONE_PREFIX + "not-found");
+    private static final CachedRedirect INACTIVE = CachedRedirect.tombstone(INACTIVE_MARKER);
+    private static final CachedRedirect EXPIRED = CachedRedirect.tombstone(EXPIRED_MARKER);
 
     @Value("${url-shortener.base-url}")
     private String baseUrl;
 
-    @Value("${url-shortener.short-code-length}")
-    private int shortCodeLength;
-
     @Value("${url-shortener.default-expiration-days}")
     private int defaultExpirationDays;
 
+    @Value("${url-shortener.local-cache.ttl:60s}")
+    private Duration localTtl;
+
+    @Value("${url-shortener.local-cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    @Value("${url-shortener.user-urls.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${url-shortener.user-urls.stream-page-size:500}")
+    private int streamPageSize;
+
     /**
-     * Создание короткой ссылки
+     * Создание короткой ссылки.
+     * Уникальность кода обеспечивает индекс по shortCode: вставка выполняется сразу,
+     * без предварительной проверки существования.
      */
     public Mono<ShortUrlResponse> createShortUrl(CreateShortUrlRequest request, String userId) {
-        String shortCode = request.getCustomAlias() != null ? 
-                request.getCustomAlias() : generateShortCode();
-
-        return shortUrlRepository.existsByShortCode(shortCode)
-                .flatMap(exists -> {
-                    if (exists) {
-                        if (request.getCustomAlias() != null) {
-                            return Mono.error(new BusinessException("Алиас уже занят: " + shortCode));
-                        }
-                        // Генерируем новый код если случайный уже существует
-                        return createShortUrl(request, userId);
-                    }
+        return insertShortUrl(request, userId, MAX_GENERATION_ATTEMPTS)
+                // Ответ отдаётся после кэширования и рассылки: иначе другой инстанс может отклонить
+                // только что созданный код по своему фильтру или надгробию
+                .flatMap(saved -> announceCreated(saved)
+                        .onErrorResume(error -> withdrawCreated(saved).then(Mono.error(error)))
+                        .thenReturn(saved))
+                .doOnSuccess(saved -> {
+                    // Отправляем событие в RabbitMQ
+                    rabbitMQService.sendUrlCreatedEvent(saved);
+                    log.info("Создана короткая ссылка: {} -> {}", saved.getShortCode(), saved.getOriginalUrl());
+                })
+                .map(saved -> ShortUrlResponse.fromEntity(saved, baseUrl));
+    }
+
+    private Mono<ShortUrl> insertShortUrl(CreateShortUrlRequest request, String userId, int attemptsLeft) {
+        String customAlias = request.getCustomAlias();
+        Mono<String> shortCode = customAlias != null ? Mono.just(customAlias) : shortCodeGenerator.nextCode();
 
-                    int expirationDays = request.getExpirationDays() != null ? 
-                            request.getExpirationDays() : defaultExpirationDays;
-
-                    ShortUrl shortUrl = ShortUrl.builder()
-                            .shortCode(shortCode)
-                            .originalUrl(request.getOriginalUrl())
-                            .userId(userId)
-                            .customAlias(request.getCustomAlias())
-                            .expiresAt(LocalDateTime.now().plusDays(expirationDays))
-                            .build();
-
-                    return shortUrlRepository.save(shortUrl)
-                            .doOnSuccess(saved -> {
-                                // Кэшируем в Redis
-                                cacheUrl(saved.getShortCode(), saved.getOriginalUrl()).subscribe();
-                                // Отправляем событие в RabbitMQ
-                                rabbitMQService.sendUrlCreatedEvent(saved);
-                                log.info("Создана короткая ссылка: {} -> {}", saved.getShortCode(), saved.getOriginalUrl());
-                            })
-                            .map(saved -> ShortUrlResponse.fromEntity(saved, baseUrl));
+        return shortCode
+                .flatMap(code -> shortUrlRepository.save(buildShortUrl(code, request, userId)))
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    if (customAlias != null) {
+                        return Mono.error(new BusinessException("Алиас уже занят: " + customAlias));
+                    }
+                    if (attemptsLeft <= 1) {
+                        return Mono.error(new BusinessException("Не удалось сгенерировать уникальный код"));
+                    }
+                    // Сгенерированный код совпал с существующим (случайный генератор или чужой алиас)
+                    return insertShortUrl(request, userId, attemptsLeft - 1);
                 });
     }
 
+    ShortUrl buildShortUrl(String shortCode, CreateShortUrlRequest request, String userId) {
+        int expirationDays = request.getExpirationDays() != null ?
+                request.getExpirationDays() : defaultExpirationDays;
+
+        // Дата создания задаётся явно: по ней идёт постраничная выборка ссылок пользователя
+        LocalDateTime now = LocalDateTime.now();
+        return ShortUrl.builder()
+                .shortCode(shortCode)
+                .originalUrl(request.getOriginalUrl())
+                .userId(userId)
+                .customAlias(request.getCustomAlias())
+                .expiresAt(now.plusDays(expirationDays))
+                .redirectStatus(request.getRedirectStatus())
+                .createdAt(now)
+                .build();
+    }
+
     /**
-     * Получение оригинального URL по короткому коду
+     * Готовый редирект по короткому коду.
+     * Несуществующие коды отсекаются фильтром Блума без обращения к хранилищам; для кодов,
+     * прошедших фильтр, промах MongoDB запоминается надгробием в L1 и Redis на negative-ttl.
+     * Одновременные промахи L1 по одному коду выполняют одну общую загрузку из Redis и MongoDB.
+     * Попадание в L1 не выделяет памяти, кроме Mono.just.
      */
-    public Mono<String> getOriginalUrl(String shortCode) {
-        // Сначала проверяем кэш
+    public Mono<CachedRedirect> getRedirect(String shortCode) {
+        // Сначала проверяем локальный кэш
+        CachedRedirect local = localUrlCache.get(shortCode);
+        if (local != null) {
+            return checkRedirect(shortCode, local);
+        }
+
+        if (!shortCodeFilter.mightContain(shortCode)) {
+            return Mono.error(new ResourceNotFoundException("Ссылка не найдена: " + shortCode));
+        }
+
+        return Mono.defer(() -> {
+            Mono<CachedRedirect> inFlight = inFlightLoads.get(shortCode);
+            if (inFlight == null) {
+                // Загрузка начинается при первой подписке; проигравший гонку putIfAbsent её не запускает
+                Mono<CachedRedirect> load = Mono.defer(() -> loadRedirect(shortCode))
+                        // Запись удаляется после завершения: следующий промах начнёт новую загрузку
+                        .doFinally(signal -> inFlightLoads.remove(shortCode))
+                        .cache();
+                inFlight = inFlightLoads.putIfAbsent(shortCode, load);
+                if (inFlight == null) {
+                    return load;
+                }
+            }
+            coalescedCounter.increment();
+            return inFlight;
+        });
+    }
+
+    /**
+     * Загрузка редиректа из Redis, а при промахе — из MongoDB
+     */
+    private Mono<CachedRedirect> loadRedirect(String shortCode) {
         return redisTemplate.opsForValue().get(CACHE_PREFIX + shortCode)
+                // Значение прежнего формата - промах: ссылка перечитывается из MongoDB и перезаписывается
+                .mapNotNull(CachedRedirect::decode)
+                .flatMap(redirect -> {
+                    cacheLocally(shortCode, redirect);
+                    return checkRedirect(shortCode, redirect);
+                })
                 .switchIfEmpty(
                         // Если нет в кэше, ищем в БД
                         shortUrlRepository.findByShortCode(shortCode)
-                                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Ссылка не найдена: " + shortCode)))
+                                .switchIfEmpty(Mono.defer(() -> cacheTombstone(shortCode, NOT_FOUND)))
                                 .flatMap(shortUrl -> {
                                     if (!shortUrl.isActive()) {
-                                        return Mono.error(new BusinessException("Ссылка деактивирована"));
+                                        return cacheTombstone(shortCode, INACTIVE);
                                     }
                                     if (shortUrl.isExpired()) {
-                                        return Mono.error(new BusinessException("Срок действия ссылки истёк"));
+                                        return cacheTombstone(shortCode, EXPIRED);
                                     }
                                     // Кэшируем и возвращаем
-                                    return cacheUrl(shortCode, shortUrl.getOriginalUrl())
-                                            .thenReturn(shortUrl.getOriginalUrl());
+                                    CachedRedirect redirect = redirectFor(shortUrl);
+                                    cacheLocally(shortCode, redirect);
+                                    return cacheRedirect(shortCode, redirect)
+                                            .thenReturn(redirect);
                                 })
                 );
     }
 
+    /**
+     * Редирект из кэша, если это не надгробие и ссылка не истекла с момента кэширования
+     */
+    private static Mono<CachedRedirect> checkRedirect(String shortCode, CachedRedirect redirect) {
+        if (redirect.isTombstone()) {
+            return rejectTombstone(shortCode, redirect.location());
+        }
+        if (redirect.isExpired(System.currentTimeMillis())) {
+            return rejectTombstone(shortCode, EXPIRED.location());
+        }
+        return Mono.just(redirect);
+    }
+
+    /**
+     * Надгробие в L1 и Redis и соответствующая ему ошибка
+     */
+    private <T> Mono<T> cacheTombstone(String shortCode, CachedRedirect tombstone) {
+        localUrlCache.put(shortCode, tombstone);
+        return redisTemplate.opsForValue()
+                .set(CACHE_PREFIX + shortCode, tombstone.encode(), negativeTtl)
+                .onErrorResume(error -> Mono.just(false))
+                .then(rejectTombstone(shortCode, tombstone.location()));
+    }
+
+    private static <T> Mono<T> rejectTombstone(String shortCode, String marker) {
+        return switch (marker) {
+            case INACTIVE_MARKER -> Mono.error(new BusinessException("Ссылка деактивирована"));
+            case EXPIRED_MARKER -> Mono.error(new BusinessException("Срок действия ссылки истёк"));
+            default -> Mono.error(new ResourceNotFoundException("Ссылка не найдена: " + shortCode));
+        };
+    }
+
+    CachedRedirect redirectFor(ShortUrl shortUrl) {
+        return redirectPolicy.redirectFor(shortUrl);
+    }
+
     /**
      * Регистрация клика по ссылке
      */
     public Mono<Void> recordClick(String shortCode, String ipAddress, String userAgent, String referer) {
-        return shortUrlRepository.findByShortCode(shortCode)
-                .flatMap(shortUrl -> {
-                    shortUrl.incrementClickCount();
-                    return shortUrlRepository.save(shortUrl);
-                })
-                .doOnSuccess(shortUrl -> {
-                    // Отправляем событие клика в RabbitMQ для асинхронной обработки
-                    rabbitMQService.sendClickEvent(shortCode, shortUrl.getId(), ipAddress, userAgent, referer);
-                })
-                .then();
+        return Mono.fromRunnable(() -> {
+            // Счётчик копится в памяти и сбрасывается в БД пачкой
+            clickCounterBuffer.increment(shortCode);
+            hotKeyTracker.record(shortCode);
+            // Отправляем событие клика в RabbitMQ для асинхронной обработки
+            rabbitMQService.sendClickEvent(shortCode, null, ipAddress, userAgent, referer);
+        });
     }
 
     /**
@@ -141,11 +300,61 @@ public class ShortUrlService {
     }
 
     /**
-     * Получение всех ссылок пользователя
+     * Страница ссылок пользователя, начиная после курсора (без курсора - с самых новых).
+     * Время ответа не зависит от общего числа ссылок: выборка идёт по индексу с ограничением.
      */
-    public Flux<ShortUrlResponse> getUserUrls(String userId) {
-        return shortUrlRepository.findByUserId(userId)
-                .map(shortUrl -> ShortUrlResponse.fromEntity(shortUrl, baseUrl));
+    public Mono<UserUrlPage> getUserUrls(String userId, String cursor, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            return Mono.error(new BusinessException("Размер страницы должен быть от 1 до " + maxPageSize));
+        }
+        return Mono.defer(() -> fetchUserPage(userId, decodeCursor(cursor), limit));
+    }
+
+    /**
+     * Потоковая выдача всех ссылок пользователя страницами по streamPageSize:
+     * следующая страница запрашивается только после выдачи предыдущей
+     */
+    public Flux<ShortUrlResponse> streamUserUrls(String userId, String cursor) {
+        return Mono.defer(() -> fetchUserPage(userId, decodeCursor(cursor), streamPageSize))
+                .expand(page -> page.nextCursor() != null
+                        ? fetchUserPage(userId, UserUrlCursor.decode(page.nextCursor()), streamPageSize)
+                        : Mono.empty())
+                .concatMapIterable(UserUrlPage::items);
+    }
+
+    /**
+     * Страница по ключу (createdAt, _id): на одну ссылку больше, чтобы узнать, есть ли следующая
+     */
+    private Mono<UserUrlPage> fetchUserPage(String userId, UserUrlCursor after, int limit) {
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        Flux<ShortUrl> urls;
+        if (after == null) {
+            urls = shortUrlRepository.findUserPage(userId, pageable);
+        } else if (after.createdAt() != null) {
+            urls = shortUrlRepository.findUserPageAfter(userId, after.createdAt(), after.id(), pageable);
+        } else {
+            urls = shortUrlRepository.findUndatedUserPageAfter(userId, after.id(), pageable);
+        }
+        return urls.collectList()
+                .map(found -> {
+                    if (found.size() <= limit) {
+                        return new UserUrlPage(toResponses(found), null);
+                    }
+                    List<ShortUrl> page = found.subList(0, limit);
+                    return new UserUrlPage(toResponses(page), UserUrlCursor.after(page.get(limit - 1)).encode());
+                });
+    }
+
+    private static UserUrlCursor decodeCursor(String cursor) {
+        return cursor != null && !cursor.isEmpty() ? UserUrlCursor.decode(cursor) : null;
+    }
+
+    private List<ShortUrlResponse> toResponses(List<ShortUrl> urls) {
+        List<ShortUrlResponse> responses = new ArrayList<>(urls.size());
+        for (ShortUrl shortUrl : urls) {
+            responses.add(ShortUrlResponse.fromEntity(shortUrl, baseUrl));
+        }
+        return responses;
     }
 
     /**
@@ -162,8 +371,8 @@ public class ShortUrlService {
                     return shortUrlRepository.save(shortUrl);
                 })
                 .doOnSuccess(shortUrl -> {
-                    // Удаляем из кэша
-                    redisTemplate.delete(CACHE_PREFIX + shortCode).subscribe();
+                    // Удаляем из кэша на всех инстансах
+                    evictFromCache(shortCode).subscribe();
                     log.info("Деактивирована ссылка: {}", shortCode);
                 })
                 .then();
@@ -182,21 +391,100 @@ public class ShortUrlService {
                     return shortUrlRepository.delete(shortUrl);
                 })
                 .doOnSuccess(v -> {
-                    redisTemplate.delete(CACHE_PREFIX + shortCode).subscribe();
+                    evictFromCache(shortCode).subscribe();
                     log.info("Удалена ссылка: {}", shortCode);
                 });
     }
 
-    private String generateShortCode() {
-        StringBuilder sb = new StringBuilder(shortCodeLength);
-        for (int i = 0; i < shortCodeLength; i++) {
-            sb.append(CHARACTERS.charAt(RANDOM.nextInt(CHARACTERS.length())));
+    /**
+     * Сначала удаляем ключ из Redis, затем рассылаем инвалидацию —
+     * иначе другой инстанс может успеть перечитать устаревшее значение из Redis.
+     * Кэш CDN очищается последним, когда источник уже отдаёт актуальный ответ.
+     * Следующие шаги собираются через defer: publish сбрасывает L1 уже при вызове,
+     * а не при подписке, и без defer опередил бы DEL.
+     */
+    private Mono<Void> evictFromCache(String shortCode) {
+        return redisTemplate.delete(CACHE_PREFIX + shortCode)
+                .then(Mono.defer(() -> cacheInvalidationBus.publish(shortCode)))
+                .then(Mono.defer(() -> cdnPurgeClient.purge(shortCode)));
+    }
+
+    /**
+     * Пакетное удаление из кэша: один DEL на все ключи, затем рассылка инвалидации L1
+     * и очистка кэша CDN в том же порядке, что и для одного кода
+     */
+    Mono<Void> evictFromCache(List<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return Mono.empty();
         }
-        return sb.toString();
+        String[] keys = new String[shortCodes.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = CACHE_PREFIX + shortCodes.get(i);
+        }
+        return redisTemplate.delete(keys)
+                .thenMany(Flux.fromIterable(shortCodes).concatMap(cacheInvalidationBus::publish))
+                .thenMany(Flux.fromIterable(shortCodes).concatMap(cdnPurgeClient::purge))
+                .then();
+    }
+
+    /**
+     * Новая ссылка: запись в Redis поверх возможного надгробия, затем рассылка кода всем инстансам
+     * (снятие надгробий в L1 и добавление в фильтры). Ошибка записи в Redis рассылку не отменяет:
+     * надгробие в Redis истечёт через negative-ttl. Без рассылки фильтры других инстансов отклоняли бы
+     * новый код до перестроения, поэтому её ошибка после повторов возвращается вызывающему.
+     */
+    Mono<Void> announceCreated(ShortUrl shortUrl) {
+        String shortCode = shortUrl.getShortCode();
+        return cacheUrl(shortUrl)
+                .onErrorResume(error -> {
+                    log.warn("Не удалось закэшировать новую ссылку {}: {}", shortCode, error.getMessage());
+                    return Mono.just(false);
+                })
+                .then(Mono.defer(() -> cacheInvalidationBus.publish(shortCode))
+                        .retryWhen(Retry.backoff(ANNOUNCE_RETRIES, ANNOUNCE_BACKOFF)
+                                .onRetryExhaustedThrow((spec, signal) -> signal.failure())));
+    }
+
+    /**
+     * Отмена создания ссылки, о которой не удалось оповестить остальные инстансы
+     */
+    private Mono<Void> withdrawCreated(ShortUrl shortUrl) {
+        log.error("Создание ссылки {} отменено: код не разослан по инстансам", shortUrl.getShortCode());
+        return shortUrlRepository.deleteById(shortUrl.getId())
+                .onErrorResume(error -> {
+                    log.error("Не удалось удалить неразосланную ссылку {}: {}", shortUrl.getShortCode(), error.getMessage());
+                    return Mono.empty();
+                });
     }
 
-    private Mono<Boolean> cacheUrl(String shortCode, String originalUrl) {
+    /**
+     * Кэширование на сутки, но не дольше срока действия ссылки за вычетом max-age и s-maxage
+     * (RedirectPolicy.cacheableUntil): ни Redis, ни CDN не должны отдавать истёкшую ссылку.
+     * Редирект строится при подписке, чтобы ошибка разбора URL пришла сигналом ошибки, а не исключением
+     */
+    Mono<Boolean> cacheUrl(ShortUrl shortUrl) {
+        return Mono.defer(() -> cacheRedirect(shortUrl.getShortCode(), redirectFor(shortUrl)));
+    }
+
+    Mono<Boolean> cacheRedirect(String shortCode, CachedRedirect redirect) {
+        long ttlMillis = cacheTtlMillis(redirect);
+        if (ttlMillis <= 0) {
+            return Mono.just(false);
+        }
         return redisTemplate.opsForValue()
-                .set(CACHE_PREFIX + shortCode, originalUrl, Duration.ofHours(24));
+                .set(CACHE_PREFIX + shortCode, redirect.encode(), Duration.ofMillis(ttlMillis));
+    }
+
+    /**
+     * Запись в L1 только ответа, пригодного на весь ttl локального кэша
+     */
+    void cacheLocally(String shortCode, CachedRedirect redirect) {
+        if (cacheTtlMillis(redirect) >= localTtl.toMillis()) {
+            localUrlCache.put(shortCode, redirect);
+        }
+    }
+
+    private long cacheTtlMillis(CachedRedirect redirect) {
+        return Math.min(MAX_CACHE_TTL.toMillis(), redirectPolicy.cacheableUntil(redirect) - System.currentTimeMillis());
     }
 }
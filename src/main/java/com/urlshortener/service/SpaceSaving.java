@@ -0,0 +1,85 @@
+package com.urlshortener.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Таблица Space-Saving на capacity ключей для поиска самых частых ключей потока.
+ * Вытеснение минимального счётчика фильтруется оценкой Count-Min Sketch: новый ключ занимает место,
+ * только если его оценка выше минимума таблицы, и получает эту оценку вместо min + 1 —
+ * длинный хвост редких кодов не перетирает таблицу и не требует поиска минимума на каждое событие.
+ * Не потокобезопасна.
+ */
+final class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, long[]> counts;
+
+    /**
+     * Нижняя граница минимального счётчика таблицы: счётчики между старениями только растут,
+     * поэтому точный минимум ищется, лишь когда оценка нового ключа её превышает
+     */
+    private long minBound;
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counts = new HashMap<>(capacity * 2);
+    }
+
+    void offer(String key, int weight, long estimate) {
+        long[] count = counts.get(key);
+        if (count != null) {
+            count[0] += weight;
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(key, new long[]{estimate});
+            return;
+        }
+        if (estimate <= minBound) {
+            return;
+        }
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            if (entry.getValue()[0] < min) {
+                min = entry.getValue()[0];
+                minKey = entry.getKey();
+            }
+        }
+        minBound = min;
+        if (estimate > min) {
+            counts.remove(minKey);
+            counts.put(key, new long[]{estimate});
+        }
+    }
+
+    /**
+     * Старение вместе со скетчем: счётчики уменьшаются вдвое, обнулившиеся ключи освобождают место
+     */
+    void halve() {
+        Iterator<long[]> values = counts.values().iterator();
+        while (values.hasNext()) {
+            long[] count = values.next();
+            count[0] >>>= 1;
+            if (count[0] == 0) {
+                values.remove();
+            }
+        }
+        minBound = 0;
+    }
+
+    /**
+     * limit самых частых ключей по убыванию счётчика
+     */
+    List<Map.Entry<String, Long>> top(int limit) {
+        List<Map.Entry<String, Long>> top = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> top.add(Map.entry(key, count[0])));
+        top.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return top.size() > limit ? top.subList(0, limit) : top;
+    }
+}
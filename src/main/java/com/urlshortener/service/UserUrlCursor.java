@@ -0,0 +1,42 @@
+package com.urlshortener.service;
+
+import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.exception.BusinessException;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в списке ссылок пользователя: ключ сортировки (createdAt, _id) последней выданной ссылки.
+ * Для клиента курсор непрозрачен - base64url от "createdAt|id"; пустой createdAt у старых ссылок
+ * без даты создания кодируется как "-".
+ */
+record UserUrlCursor(LocalDateTime createdAt, ObjectId id) {
+
+    private static final String NO_DATE = "-";
+
+    static UserUrlCursor after(ShortUrl shortUrl) {
+        return new UserUrlCursor(shortUrl.getCreatedAt(), new ObjectId(shortUrl.getId()));
+    }
+
+    String encode() {
+        String value = (createdAt != null ? createdAt.toString() : NO_DATE) + "|" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static UserUrlCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            String createdAt = value.substring(0, separator);
+            return new UserUrlCursor(
+                    NO_DATE.equals(createdAt) ? null : LocalDateTime.parse(createdAt),
+                    new ObjectId(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessException("Некорректный курсор: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.urlshortener.service;
+
+import com.urlshortener.dto.ShortUrlResponse;
+
+import java.util.List;
+
+/**
+ * Страница ссылок пользователя; nextCursor равен null на последней странице
+ */
+public record UserUrlPage(List<ShortUrlResponse> items, String nextCursor) {
+}
@@ -0,0 +1,223 @@
+package com.urlshortener.shortcode;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Коды из глобального счётчика: каждый инстанс арендует в MongoDB диапазон идентификаторов
+ * (один findAndModify с $inc на блок) и выдаёт их локально без обращений к БД.
+ * Идентификатор кодируется в base62 фиксированной длины. При включённом перемешивании
+ * он сначала проходит ключевую перестановку пространства 62^length: раунды Фейстеля
+ * над двоичным доменом не меньше пространства и cycle walking до попадания в него.
+ * Без ключа соседние коды не вычисляются друг из друга, а коллизии по-прежнему невозможны.
+ */
+@Component
+@ConditionalOnProperty(name = "url-shortener.short-code.generator", havingValue = "counter")
+public class CounterShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(CounterShortCodeGenerator.class);
+
+    private static final String SEQUENCES_COLLECTION = "sequences";
+    private static final String SEQUENCE_ID = "short_code";
+
+    private static final int ROUNDS = 6;
+    private static final int MIN_KEY_LENGTH = 16;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int length;
+    private final long space;
+    private final long blockSize;
+    private final boolean scramble;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys;
+
+    private volatile Block block = Block.EXHAUSTED;
+    private Mono<Block> pendingLease;
+
+    public CounterShortCodeGenerator(ReactiveMongoTemplate mongoTemplate,
+                                     @Value("${url-shortener.short-code-length}") int length,
+                                     @Value("${url-shortener.short-code.block-size:1000}") long blockSize,
+                                     @Value("${url-shortener.short-code.scramble:true}") boolean scramble,
+                                     @Value("${url-shortener.short-code.scramble-key:}") String scrambleKey) {
+        if (length < 1 || length > 10) {
+            throw new IllegalArgumentException("Длина кода для счётчика должна быть от 1 до 10");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.length = length;
+        this.space = pow(ALPHABET.length(), length);
+        this.blockSize = blockSize;
+        this.scramble = scramble;
+        // Двоичный домен 2^(2 * halfBits) >= space: меньше 4 * space, поэтому в среднем меньше 4 проходов
+        int bits = 64 - Long.numberOfLeadingZeros(space - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        if (scramble && (scrambleKey == null || scrambleKey.length() < MIN_KEY_LENGTH)) {
+            throw new IllegalArgumentException("Для перемешивания кодов задайте ключ SHORT_CODE_SCRAMBLE_KEY не короче "
+                    + MIN_KEY_LENGTH + " символов");
+        }
+        this.roundKeys = scramble ? roundKeys(scrambleKey) : new long[0];
+    }
+
+    @Override
+    public Mono<String> nextCode() {
+        return Mono.defer(() -> {
+            long id = block.next();
+            if (id >= 0) {
+                return Mono.just(encode(id));
+            }
+            return lease().then(Mono.defer(this::nextCode));
+        });
+    }
+
+    /**
+     * Кодирование идентификатора; пакетный доступ для тестов
+     */
+    String encode(long id) {
+        if (id < 0 || id >= space) {
+            throw new IllegalStateException("Пространство коротких кодов длины " + length + " исчерпано");
+        }
+        long value = scramble ? permute(id) : id;
+
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (value % ALPHABET.length()));
+            value /= ALPHABET.length();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Перестановка [0, space): сеть Фейстеля переставляет двоичный домен, а значения за пределами
+     * пространства прогоняются через неё повторно, пока не попадут в него (cycle walking)
+     */
+    long permute(long id) {
+        long value = id;
+        do {
+            value = feistel(value);
+        } while (value >= space);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long next = left ^ (round(right, roundKey) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * Раундовая функция: финализатор SplitMix64 от половины блока, смешанной с ключом раунда
+     */
+    private static long round(long half, long roundKey) {
+        long z = half ^ roundKey;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Ключи раундов - первые 8 байт SHA-256 от ключа и номера раунда
+     */
+    private static long[] roundKeys(String scrambleKey) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+        byte[] key = scrambleKey.getBytes(StandardCharsets.UTF_8);
+        long[] keys = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            sha256.update(key);
+            sha256.update((byte) i);
+            keys[i] = ByteBuffer.wrap(sha256.digest()).getLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Одновременно выполняется не более одной аренды; остальные запросы ждут её результата
+     */
+    private synchronized Mono<Block> lease() {
+        if (pendingLease == null) {
+            pendingLease = fetchBlock()
+                    .doOnNext(leased -> block = leased)
+                    .doFinally(signal -> clearLease())
+                    .cache();
+        }
+        return pendingLease;
+    }
+
+    private synchronized void clearLease() {
+        pendingLease = null;
+    }
+
+    private Mono<Block> fetchBlock() {
+        return mongoTemplate.findAndModify(
+                        query(where("_id").is(SEQUENCE_ID)),
+                        new Update().inc("value", blockSize),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class,
+                        SEQUENCES_COLLECTION)
+                .map(sequence -> {
+                    long end = ((Number) sequence.get("value")).longValue();
+                    log.debug("Арендован диапазон кодов [{}, {})", end - blockSize, end);
+                    return new Block(end - blockSize, end);
+                });
+    }
+
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Арендованный диапазон [start, end)
+     */
+    private static final class Block {
+
+        private static final Block EXHAUSTED = new Block(0, 0);
+
+        private final AtomicLong cursor;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+
+        long next() {
+            long id = cursor.getAndIncrement();
+            return id < end ? id : -1;
+        }
+    }
+}
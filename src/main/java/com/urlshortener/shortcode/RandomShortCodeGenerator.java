@@ -0,0 +1,38 @@
+package com.urlshortener.shortcode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.SecureRandom;
+
+/**
+ * Случайные коды из base62-алфавита.
+ * Коллизии не проверяются заранее — их отсекает уникальный индекс при вставке.
+ */
+@Component
+@ConditionalOnProperty(name = "url-shortener.short-code.generator", havingValue = "random", matchIfMissing = true)
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int shortCodeLength;
+
+    public RandomShortCodeGenerator(@Value("${url-shortener.short-code-length}") int shortCodeLength) {
+        this.shortCodeLength = shortCodeLength;
+    }
+
+    @Override
+    public Mono<String> nextCode() {
+        return Mono.fromSupplier(this::generate);
+    }
+
+    public String generate() {
+        StringBuilder sb = new StringBuilder(shortCodeLength);
+        for (int i = 0; i < shortCodeLength; i++) {
+            sb.append(ALPHABET.charAt(RANDOM.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
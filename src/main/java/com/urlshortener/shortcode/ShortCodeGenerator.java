@@ -0,0 +1,19 @@
+package com.urlshortener.shortcode;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Генератор коротких кодов.
+ * Реализация выбирается параметром url-shortener.short-code.generator (random или counter).
+ */
+public interface ShortCodeGenerator {
+
+    String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    Mono<String> nextCode();
+
+    default Flux<String> nextCodes(int count) {
+        return Flux.range(0, count).concatMap(i -> nextCode());
+    }
+}
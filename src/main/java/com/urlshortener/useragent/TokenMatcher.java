@@ -0,0 +1,140 @@
+package com.urlshortener.useragent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поиск набора токенов за один проход по строке (автомат Ахо-Корасик, развёрнутый в DFA).
+ * Сравнение регистронезависимое для ASCII; символы, не входящие в токены, сбрасывают автомат в начало.
+ * Результат - битовая маска найденных токенов (бит i соответствует токену i), поэтому
+ * сопоставление не выделяет памяти.
+ */
+final class TokenMatcher {
+
+    private static final int ASCII = 128;
+    private static final int MAX_TOKENS = Long.SIZE;
+
+    /**
+     * Класс символа: 0 - символ не встречается ни в одном токене, иначе номер символа.
+     * Сжатый алфавит держит таблицу переходов в кэше L1.
+     */
+    private final byte[] classes = new byte[ASCII];
+    private final int classCount;
+
+    /**
+     * Переход хранит смещение строки следующего состояния (state * classCount);
+     * отрицательное значение (~смещение) означает, что в состоянии завершаются токены
+     */
+    private final int[] transitions;
+    private final long[] outputs;
+
+    /**
+     * @param tokens токены в нижнем регистре, только ASCII, не более 64
+     */
+    TokenMatcher(List<String> tokens) {
+        if (tokens.size() > MAX_TOKENS) {
+            throw new IllegalArgumentException("Не более " + MAX_TOKENS + " токенов");
+        }
+
+        int count = 1;
+        for (String token : tokens) {
+            for (int j = 0; j < token.length(); j++) {
+                char c = token.charAt(j);
+                if (c == 0 || c >= ASCII || c != fold(c)) {
+                    throw new IllegalArgumentException("Токен должен быть в нижнем регистре ASCII: " + token);
+                }
+                if (classes[c] == 0) {
+                    classes[c] = (byte) count++;
+                }
+            }
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            classes[c] = classes[fold(c)];
+        }
+        this.classCount = count;
+
+        // Бор: goTo[state][class], -1 - перехода нет
+        List<int[]> goTo = new ArrayList<>();
+        List<Long> output = new ArrayList<>();
+        goTo.add(newRow());
+        output.add(0L);
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            int state = 0;
+            for (int j = 0; j < token.length(); j++) {
+                int symbol = classes[token.charAt(j)];
+                if (goTo.get(state)[symbol] < 0) {
+                    goTo.get(state)[symbol] = goTo.size();
+                    goTo.add(newRow());
+                    output.add(0L);
+                }
+                state = goTo.get(state)[symbol];
+            }
+            output.set(state, output.get(state) | 1L << i);
+        }
+
+        // Обход в ширину: ссылки неудач, выходы по цепочке неудач и достраивание переходов до DFA
+        int states = goTo.size();
+        int[] fail = new int[states];
+        int[] next = new int[states * classCount];
+        this.outputs = new long[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < classCount; symbol++) {
+            int target = goTo.get(0)[symbol];
+            if (target > 0) {
+                queue.add(target);
+            }
+            next[symbol] = Math.max(target, 0);
+        }
+        outputs[0] = output.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = output.get(state) | outputs[fail[state]];
+            for (int symbol = 0; symbol < classCount; symbol++) {
+                int target = goTo.get(state)[symbol];
+                if (target >= 0) {
+                    fail[target] = next[fail[state] * classCount + symbol];
+                    queue.add(target);
+                    next[state * classCount + symbol] = target;
+                } else {
+                    next[state * classCount + symbol] = next[fail[state] * classCount + symbol];
+                }
+            }
+        }
+
+        this.transitions = new int[next.length];
+        for (int i = 0; i < next.length; i++) {
+            int offset = next[i] * classCount;
+            transitions[i] = outputs[next[i]] != 0 ? ~offset : offset;
+        }
+    }
+
+    /**
+     * Маска токенов, встречающихся в тексте
+     */
+    long match(CharSequence text) {
+        int offset = 0;
+        long found = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            offset = transitions[offset + (c < ASCII ? classes[c] : 0)];
+            if (offset < 0) {
+                offset = ~offset;
+                found |= outputs[offset / classCount];
+            }
+        }
+        return found;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private int[] newRow() {
+        int[] row = new int[classCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -0,0 +1,177 @@
+package com.urlshortener.useragent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Классификация User-Agent для аналитики.
+ * Строка просматривается один раз автоматом по известным токенам, затем по маске найденных
+ * токенов применяются правила с приоритетами: Edge и Opera раньше Chrome, Chrome раньше Safari,
+ * iOS раньше macOS, Android раньше Linux. Все комбинации результата созданы заранее,
+ * а повторяющиеся строки обслуживаются из ограниченного кэша.
+ */
+@Component
+public class UserAgentClassifier {
+
+    static final String CACHE_NAME = "user-agent";
+
+    /**
+     * Строки длиннее не кэшируются, чтобы мусорные заголовки не вытесняли реальные
+     */
+    private static final int MAX_CACHED_LENGTH = 1024;
+
+    enum Token {
+        EDG("edg/"), EDGE("edge/"), EDGA("edga/"), EDGIOS("edgios/"),
+        OPR("opr/"), OPERA("opera"), OPT("opt/"),
+        SAMSUNG("samsungbrowser/"), YANDEX("yabrowser/"),
+        MSIE("msie "), TRIDENT("trident/"),
+        FIREFOX("firefox/"), FXIOS("fxios/"),
+        CHROME("chrome/"), CHROMIUM("chromium/"), CRIOS("crios/"),
+        SAFARI("safari/"),
+        WINDOWS("windows"), ANDROID("android"), IPHONE("iphone"), IPAD("ipad"), IPOD("ipod"),
+        LIKE_MAC("like mac os x"), MAC_OS("mac os x"), MACINTOSH("macintosh"), CROS("cros "), LINUX("linux"),
+        MOBILE("mobile"), TABLET("tablet");
+
+        private final String value;
+
+        Token(String value) {
+            this.value = value;
+        }
+    }
+
+    static final String UNKNOWN = "Unknown";
+    static final String OTHER = "Other";
+
+    private static final String[] DEVICES = {"Desktop", "Mobile", "Tablet"};
+    private static final String[] BROWSERS = {
+            "Edge", "Opera", "Samsung Internet", "Yandex Browser", "Internet Explorer",
+            "Firefox", "Chrome", "Safari", OTHER};
+    private static final String[] SYSTEMS = {"Android", "iOS", "Windows", "macOS", "Chrome OS", "Linux", OTHER};
+
+    private static final long TABLET_DEVICE = mask(Token.IPAD, Token.TABLET);
+    private static final long MOBILE_DEVICE = mask(Token.MOBILE, Token.IPHONE, Token.IPOD);
+    private static final long ANDROID = mask(Token.ANDROID);
+
+    /**
+     * Правила в порядке приоритета, i-е правило соответствует BROWSERS[i]
+     */
+    private static final long[] BROWSER_RULES = {
+            mask(Token.EDG, Token.EDGE, Token.EDGA, Token.EDGIOS),
+            mask(Token.OPR, Token.OPERA, Token.OPT),
+            mask(Token.SAMSUNG),
+            mask(Token.YANDEX),
+            mask(Token.MSIE, Token.TRIDENT),
+            mask(Token.FIREFOX, Token.FXIOS),
+            mask(Token.CHROME, Token.CHROMIUM, Token.CRIOS),
+            mask(Token.SAFARI)};
+
+    /**
+     * Правила в порядке приоритета, i-е правило соответствует SYSTEMS[i]
+     */
+    private static final long[] OS_RULES = {
+            mask(Token.ANDROID),
+            mask(Token.IPHONE, Token.IPAD, Token.IPOD, Token.LIKE_MAC),
+            mask(Token.WINDOWS),
+            mask(Token.MAC_OS, Token.MACINTOSH),
+            mask(Token.CROS),
+            mask(Token.LINUX)};
+
+    private static final UserAgentInfo UNKNOWN_INFO = new UserAgentInfo(UNKNOWN, UNKNOWN, UNKNOWN);
+
+    private static final TokenMatcher MATCHER = new TokenMatcher(
+            Arrays.stream(Token.values()).map(token -> token.value).toList());
+
+    /**
+     * Все комбинации результата, индекс: (device * BROWSERS + browser) * SYSTEMS + os
+     */
+    private static final UserAgentInfo[] RESULTS = new UserAgentInfo[DEVICES.length * BROWSERS.length * SYSTEMS.length];
+
+    static {
+        for (int device = 0; device < DEVICES.length; device++) {
+            for (int browser = 0; browser < BROWSERS.length; browser++) {
+                for (int os = 0; os < SYSTEMS.length; os++) {
+                    RESULTS[(device * BROWSERS.length + browser) * SYSTEMS.length + os] =
+                            new UserAgentInfo(DEVICES[device], BROWSERS[browser], SYSTEMS[os]);
+                }
+            }
+        }
+    }
+
+    private final Cache<String, UserAgentInfo> cache;
+    private final Function<String, UserAgentInfo> classifier = UserAgentClassifier::classifyUncached;
+
+    public UserAgentClassifier(MeterRegistry meterRegistry,
+                               @Value("${analytics.user-agent.cache-size:10000}") long cacheSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public UserAgentInfo classify(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return UNKNOWN_INFO;
+        }
+        if (userAgent.length() > MAX_CACHED_LENGTH) {
+            return classifyUncached(userAgent);
+        }
+        return cache.get(userAgent, classifier);
+    }
+
+    /**
+     * Классификация без кэша
+     */
+    static UserAgentInfo classifyUncached(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return UNKNOWN_INFO;
+        }
+        long tokens = MATCHER.match(userAgent);
+        return RESULTS[(device(tokens) * BROWSERS.length + browser(tokens)) * SYSTEMS.length + os(tokens)];
+    }
+
+    private static int device(long tokens) {
+        if (has(tokens, TABLET_DEVICE)) return 2;
+        if (has(tokens, MOBILE_DEVICE)) return 1;
+        // Планшеты на Android не указывают "Mobile"
+        if (has(tokens, ANDROID)) return 2;
+        return 0;
+    }
+
+    private static int browser(long tokens) {
+        for (int i = 0; i < BROWSER_RULES.length; i++) {
+            if (has(tokens, BROWSER_RULES[i])) {
+                return i;
+            }
+        }
+        return BROWSERS.length - 1;
+    }
+
+    private static int os(long tokens) {
+        for (int i = 0; i < OS_RULES.length; i++) {
+            if (has(tokens, OS_RULES[i])) {
+                return i;
+            }
+        }
+        return SYSTEMS.length - 1;
+    }
+
+    private static boolean has(long tokens, long mask) {
+        return (tokens & mask) != 0;
+    }
+
+    private static long mask(Token... tokens) {
+        long mask = 0;
+        for (Token token : tokens) {
+            mask |= 1L << token.ordinal();
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,7 @@
+package com.urlshortener.useragent;
+
+/**
+ * Результат классификации User-Agent: тип устройства, браузер и операционная система
+ */
+public record UserAgentInfo(String deviceType, String browser, String os) {
+}
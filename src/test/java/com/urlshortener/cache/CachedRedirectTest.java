@@ -0,0 +1,36 @@
+package com.urlshortener.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit тесты для CachedRedirect
+ */
+class CachedRedirectTest {
+
+    @Test
+    @DisplayName("Кодирование для Redis и обратно, включая Location с разделителем")
+    void encode_RoundTrip() {
+        // Given
+        CachedRedirect redirect = new CachedRedirect(HttpStatus.MOVED_PERMANENTLY, "https://example.com/a|b",
+                "public, max-age=0, s-maxage=600", "Wed, 1 Jan 2025 00:00:00 GMT", "\"301-1-2\"", 1735689600000L);
+
+        // Then
+        assertThat(redirect.encode()).isEqualTo("v2|301|1735689600000|public, max-age=0, s-maxage=600"
+                + "|Wed, 1 Jan 2025 00:00:00 GMT|\"301-1-2\"|https://example.com/a|b");
+        assertThat(CachedRedirect.decode(redirect.encode())).isEqualTo(redirect);
+    }
+
+    @Test
+    @DisplayName("Надгробия разбираются, значения прежних форматов считаются промахом")
+    void decode_TombstonesAndPreviousFormats() {
+        assertThat(CachedRedirect.decode("!not-found").isTombstone()).isTrue();
+        assertThat(CachedRedirect.decode("!not-found").encode()).isEqualTo("!not-found");
+        assertThat(CachedRedirect.decode("301|1735689600000|private, max-age=3600|https://example.com")).isNull();
+        assertThat(CachedRedirect.decode("https://example.com")).isNull();
+        assertThat(CachedRedirect.decode("v2|302|1")).isNull();
+    }
+}
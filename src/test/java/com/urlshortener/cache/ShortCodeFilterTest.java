@@ -0,0 +1,107 @@
+package com.urlshortener.cache;
+
+import com.urlshortener.entity.ShortUrl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для ShortCodeFilter
+ */
+@ExtendWith(MockitoExtension.class)
+class ShortCodeFilterTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ShortCodeFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ShortCodeFilter(mongoTemplate, meterRegistry, true, 1000, 0.01);
+    }
+
+    @Test
+    @DisplayName("Фильтр Блума - без ложноотрицательных, доля ложноположительных около заданной")
+    void bloomFilter_FalsePositiveRate() {
+        // Given
+        ShortCodeFilter.BloomFilter bloom = new ShortCodeFilter.BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> bloom.put("code" + i));
+
+        // When
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> bloom.mightContain("other" + i))
+                .count();
+
+        // Then
+        assertThat(IntStream.range(0, 10_000).allMatch(i -> bloom.mightContain("code" + i))).isTrue();
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    @DisplayName("До построения фильтр пропускает все коды")
+    void mightContain_PassesUntilReady() {
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain("unknown")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Построенный фильтр отклоняет несуществующие коды и принимает добавленные")
+    void rebuild_RejectsUnknownCodes() {
+        // Given
+        stubCodes("abc1234", "xyz9876");
+
+        // When
+        StepVerifier.create(filter.rebuild()).verifyComplete();
+        filter.put("new1234");
+
+        // Then
+        assertThat(filter.isReady()).isTrue();
+        assertThat(filter.mightContain("abc1234")).isTrue();
+        assertThat(filter.mightContain("new1234")).isTrue();
+        assertThat(filter.mightContain("unknown")).isFalse();
+        assertThat(meterRegistry.counter("url.short-code-filter.rejected").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Потеря подписки на шину выключает фильтр до следующего перестроения")
+    void suspend_DisablesFilter() {
+        // Given
+        stubCodes("abc1234");
+        StepVerifier.create(filter.rebuild()).verifyComplete();
+
+        // When
+        filter.suspend();
+
+        // Then
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain("unknown")).isTrue();
+    }
+
+    private void stubCodes(String... codes) {
+        when(mongoTemplate.estimatedCount(ShortUrl.class)).thenReturn(Mono.just((long) codes.length));
+        when(mongoTemplate.getCollectionName(ShortUrl.class)).thenReturn("short_urls");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("short_urls")))
+                .thenReturn(Flux.fromArray(codes).map(code -> new Document("shortCode", code)));
+    }
+}
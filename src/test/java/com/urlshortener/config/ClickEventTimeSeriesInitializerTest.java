@@ -0,0 +1,180 @@
+package com.urlshortener.config;
+
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static com.urlshortener.config.ClickEventTimeSeriesInitializer.COLLECTION;
+import static com.urlshortener.config.ClickEventTimeSeriesInitializer.LEGACY_COLLECTION;
+import static com.urlshortener.config.ClickEventTimeSeriesInitializer.MIGRATIONS_COLLECTION;
+import static com.urlshortener.config.ClickEventTimeSeriesInitializer.MIGRATION_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для ClickEventTimeSeriesInitializer: ветви миграции click_events
+ */
+@ExtendWith(MockitoExtension.class)
+class ClickEventTimeSeriesInitializerTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+
+    private ClickEventTimeSeriesInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new ClickEventTimeSeriesInitializer(mongoTemplate, Granularity.MINUTES, true, Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Новая установка: создаётся коллекция временных рядов, копировать нечего")
+    void migrate_FreshInstall() {
+        // Given
+        stubCollectionType(null);
+        when(mongoTemplate.collectionExists(LEGACY_COLLECTION)).thenReturn(Mono.just(false));
+        stubCreateTimeSeries();
+
+        // When & Then
+        StepVerifier.create(initializer.migrate()).expectNext(0L).verifyComplete();
+        verify(mongoTemplate).createCollection(eq(COLLECTION), any(CollectionOptions.class));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq(LEGACY_COLLECTION));
+    }
+
+    @Test
+    @DisplayName("Уже перенесено: коллекция временных рядов без исходной ничего не меняет")
+    void migrate_AlreadyMigrated() {
+        // Given
+        stubCollectionType("timeseries");
+        when(mongoTemplate.collectionExists(LEGACY_COLLECTION)).thenReturn(Mono.just(false));
+
+        // When & Then
+        StepVerifier.create(initializer.migrate()).expectNext(0L).verifyComplete();
+        verify(mongoTemplate, never()).createCollection(anyString(), any(CollectionOptions.class));
+        verify(mongoTemplate, never()).findById(any(), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Завершённый перенос с сохранённой исходной коллекцией не копируется повторно")
+    void migrate_CompletedWithLegacyKept() {
+        // Given
+        stubCollectionType("timeseries");
+        when(mongoTemplate.collectionExists(LEGACY_COLLECTION)).thenReturn(Mono.just(true));
+        when(mongoTemplate.findById(MIGRATION_ID, Document.class, MIGRATIONS_COLLECTION))
+                .thenReturn(Mono.just(new Document("copied", 5L).append("completed", true)));
+
+        // When & Then
+        StepVerifier.create(initializer.migrate()).expectNext(0L).verifyComplete();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq(LEGACY_COLLECTION));
+    }
+
+    @Test
+    @DisplayName("Прерванное копирование продолжается с сохранённой позиции без повторной вставки")
+    void migrate_ResumesInterruptedCopy() {
+        // Given: скопировано 2 события, третье успело вставиться до сбоя
+        stubCollectionType("timeseries");
+        when(mongoTemplate.collectionExists(LEGACY_COLLECTION)).thenReturn(Mono.just(true));
+        when(mongoTemplate.findById(MIGRATION_ID, Document.class, MIGRATIONS_COLLECTION))
+                .thenReturn(Mono.just(new Document("copied", 2L).append("completed", false)));
+        List<Document> remaining = List.of(event("e3", 3), event("e4", 4), event("e5", 5));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(LEGACY_COLLECTION)))
+                .thenReturn(Flux.fromIterable(remaining));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(new Document("_id", "e3")));
+        when(mongoTemplate.insert(anyList(), eq(COLLECTION)))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Document>>getArgument(0)));
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(MIGRATIONS_COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 1L, null)));
+
+        // When & Then
+        StepVerifier.create(initializer.migrate()).expectNext(2L).verifyComplete();
+
+        ArgumentCaptor<Query> legacyQuery = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(legacyQuery.capture(), eq(Document.class), eq(LEGACY_COLLECTION));
+        assertThat(legacyQuery.getValue().getSkip()).isEqualTo(2);
+        assertThat(legacyQuery.getValue().getSortObject()).containsEntry("_id", 1);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(mongoTemplate).insert(inserted.capture(), eq(COLLECTION));
+        assertThat(inserted.getValue()).extracting(document -> document.get("_id")).containsExactly("e4", "e5");
+
+        ArgumentCaptor<UpdateDefinition> checkpoints = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), checkpoints.capture(), eq(MIGRATIONS_COLLECTION));
+        Document last = (Document) checkpoints.getValue().getUpdateObject().get("$set");
+        assertThat(last).containsEntry("copied", 5L).containsEntry("completed", true);
+    }
+
+    @Test
+    @DisplayName("Обычная и исходная коллекции обе с событиями: миграция останавливается с ошибкой")
+    void migrate_FailsWhenBothCollectionsHaveEvents() {
+        // Given
+        stubCollectionType("collection");
+        when(mongoTemplate.collectionExists(LEGACY_COLLECTION)).thenReturn(Mono.just(true));
+        when(mongoTemplate.exists(any(Query.class), eq(COLLECTION))).thenReturn(Mono.just(true));
+
+        // When & Then
+        StepVerifier.create(initializer.migrate())
+                .expectErrorMatches(error -> error instanceof IllegalStateException
+                        && error.getMessage().contains(LEGACY_COLLECTION))
+                .verify();
+        verify(mongoTemplate, never()).dropCollection(anyString());
+    }
+
+    private void stubCollectionType(String type) {
+        List<Document> collections = type == null
+                ? List.of()
+                : List.of(new Document("name", COLLECTION).append("type", type));
+        when(mongoTemplate.executeCommand(any(Document.class)))
+                .thenReturn(Mono.just(new Document("cursor", new Document("firstBatch", collections))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubCreateTimeSeries() {
+        when(mongoTemplate.createCollection(eq(COLLECTION), any(CollectionOptions.class)))
+                .thenReturn(Mono.just(mock(MongoCollection.class)));
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.indexOps(COLLECTION)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("index"));
+    }
+
+    private static Document event(String id, int minute) {
+        return new Document("_id", id)
+                .append("shortCode", "abc1234")
+                .append("clickedAt", new Date(1_700_000_000_000L + minute * 60_000L));
+    }
+}
@@ -0,0 +1,202 @@
+package com.urlshortener.config;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.urlshortener.entity.ClickEvent;
+import com.urlshortener.entity.ClickEventReceipt;
+import com.urlshortener.geoip.GeoIpResolver;
+import com.urlshortener.geoip.GeoLocation;
+import com.urlshortener.messaging.ClickEventCodec;
+import com.urlshortener.messaging.ClickEventMessage;
+import com.urlshortener.messaging.ClickEventMessageConverter;
+import com.urlshortener.service.AnalyticsService;
+import com.urlshortener.service.ClickRollupService;
+import com.urlshortener.useragent.UserAgentClassifier;
+import com.urlshortener.useragent.UserAgentInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.MethodRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты пакетного слушателя событий кликов: контейнер из RabbitMQConfig.batchListenerContainerFactory
+ * с AnalyticsService поверх канала-заглушки. Проверяется, что пачка подтверждается брокеру
+ * только после успешной вставки и возвращается в очередь при ошибке.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RabbitMQConfigTest {
+
+    private static final String QUEUE = "url-analytics-queue";
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Channel channel;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    @Mock
+    private ReactiveBulkOperations receiptOperations;
+
+    @Mock
+    private ClickRollupService clickRollupService;
+
+    @Mock
+    private UserAgentClassifier userAgentClassifier;
+
+    @Mock
+    private GeoIpResolver geoIpResolver;
+
+    private final AtomicReference<Consumer> consumer = new AtomicReference<>();
+    private SimpleMessageListenerContainer container;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.isOpen()).thenReturn(true);
+        when(connection.createChannel(false)).thenReturn(channel);
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.queueDeclarePassive(QUEUE)).thenReturn(new AMQP.Queue.DeclareOk.Builder().queue(QUEUE).build());
+        when(channel.basicConsume(anyString(), anyBoolean(), anyString(), anyBoolean(), anyBoolean(), anyMap(), any(Consumer.class)))
+                .thenAnswer(invocation -> {
+                    consumer.set(invocation.getArgument(6));
+                    consumer.get().handleConsumeOk("consumer");
+                    return "consumer";
+                });
+        doAnswer(invocation -> {
+            consumer.get().handleCancelOk(invocation.getArgument(0));
+            return null;
+        }).when(channel).basicCancel(anyString());
+
+        when(userAgentClassifier.classify(any())).thenReturn(new UserAgentInfo("DESKTOP", "Chrome", "Windows"));
+        when(geoIpResolver.resolve(any())).thenReturn(GeoLocation.UNKNOWN);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEventReceipt.class)).thenReturn(receiptOperations);
+        when(receiptOperations.insert(anyList())).thenReturn(receiptOperations);
+        when(receiptOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+        when(mongoTemplate.remove(any(Query.class), eq(ClickEventReceipt.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(2)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEvent.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(clickRollupService.record(anyList())).thenReturn(Mono.empty());
+
+        AnalyticsService analyticsService = new AnalyticsService(null, mongoTemplate, clickRollupService,
+                userAgentClassifier, geoIpResolver, null, ObservationRegistry.NOOP, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(analyticsService, "insertTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(analyticsService, "dedupWindow", Duration.ofHours(24));
+        container = createContainer(analyticsService);
+        container.start();
+        verify(channel, timeout(5000)).basicConsume(anyString(), anyBoolean(), anyString(), anyBoolean(), anyBoolean(),
+                anyMap(), any(Consumer.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        container.stop();
+    }
+
+    @Test
+    @DisplayName("Пачка подтверждается брокеру после успешной вставки")
+    void batch_AckedAfterInsert() throws Exception {
+        // Given
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+
+        // When
+        deliver(1);
+        deliver(2);
+
+        // Then: одно подтверждение на всю пачку
+        verify(channel, timeout(5000)).basicAck(2, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Ошибка вставки возвращает всю пачку в очередь")
+    void batch_RequeuedOnInsertError() throws Exception {
+        // Given
+        when(bulkOperations.execute()).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        // When
+        deliver(1);
+        deliver(2);
+
+        // Then
+        verify(channel, timeout(5000)).basicNack(2, true, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    private SimpleMessageListenerContainer createContainer(AnalyticsService analyticsService) throws Exception {
+        RabbitMQConfig config = new RabbitMQConfig();
+        ReflectionTestUtils.setField(config, "consumerBatchSize", 2);
+        ReflectionTestUtils.setField(config, "consumerReceiveTimeout", Duration.ofMillis(200));
+        SimpleRabbitListenerContainerFactory factory = config.batchListenerContainerFactory(
+                new SimpleRabbitListenerContainerFactoryConfigurer(new RabbitProperties()), connectionFactory);
+        factory.setMessageConverter(config.messageConverter());
+
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+        MethodRabbitListenerEndpoint endpoint = new MethodRabbitListenerEndpoint();
+        endpoint.setId("clicks");
+        endpoint.setQueueNames(QUEUE);
+        endpoint.setBean(analyticsService);
+        endpoint.setMethod(AnalyticsService.class.getMethod("processClickEvents", List.class));
+        endpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+        return factory.createListenerContainer(endpoint);
+    }
+
+    private void deliver(long deliveryTag) throws Exception {
+        ClickEventMessage event = new ClickEventMessage("abc1234", null, "203.0.113.7", "Mozilla/5.0", null,
+                LocalDateTime.now());
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType(ClickEventMessageConverter.CONTENT_TYPE)
+                .build();
+        consumer.get().handleDelivery("consumer", new Envelope(deliveryTag, false, "url-analytics-exchange", "url.click"),
+                properties, ClickEventCodec.encode(event));
+    }
+}
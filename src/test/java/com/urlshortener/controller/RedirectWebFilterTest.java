@@ -0,0 +1,114 @@
+package com.urlshortener.controller;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.exception.ResourceNotFoundException;
+import com.urlshortener.service.ShortUrlService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для RedirectWebFilter
+ */
+@ExtendWith(MockitoExtension.class)
+class RedirectWebFilterTest {
+
+    @Mock
+    private ShortUrlService shortUrlService;
+
+    @Mock
+    private WebFilterChain chain;
+
+    private RedirectWebFilter filter;
+
+    private static final CachedRedirect REDIRECT = new CachedRedirect(HttpStatus.TEMPORARY_REDIRECT,
+            "https://example.com/%D0%B0", "public, max-age=0, s-maxage=600",
+            "Wed, 1 Jan 2025 00:00:00 GMT", "\"307-1-2\"", CachedRedirect.NEVER);
+
+    @BeforeEach
+    void setUp() {
+        filter = new RedirectWebFilter(shortUrlService, new SimpleMeterRegistry(), 20);
+    }
+
+    @Test
+    @DisplayName("Редирект по коду из кэша без передачи запроса дальше по цепочке")
+    void filter_RedirectsKnownCode() {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/abc1234")
+                .header("X-Forwarded-For", "203.0.113.7"));
+        when(shortUrlService.getRedirect("abc1234")).thenReturn(Mono.just(REDIRECT));
+        when(shortUrlService.recordClick(eq("abc1234"), eq("203.0.113.7"), any(), any())).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TEMPORARY_REDIRECT);
+        assertThat(headers.getFirst(HttpHeaders.LOCATION)).isEqualTo("https://example.com/%D0%B0");
+        assertThat(headers.getCacheControl()).isEqualTo("public, max-age=0, s-maxage=600");
+        assertThat(headers.getFirst(HttpHeaders.EXPIRES)).isEqualTo("Wed, 1 Jan 2025 00:00:00 GMT");
+        assertThat(headers.getETag()).isEqualTo("\"307-1-2\"");
+        assertThat(headers.getFirst("Surrogate-Key")).isEqualTo("abc1234");
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    @DisplayName("Совпавший If-None-Match - 304 без Location, клик записывается")
+    void filter_NotModifiedForMatchingEtag() {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/abc1234")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"307-1-2\""));
+        when(shortUrlService.getRedirect("abc1234")).thenReturn(Mono.just(REDIRECT));
+        when(shortUrlService.recordClick(eq("abc1234"), any(), any(), any())).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(exchange.getResponse().getHeaders().getLocation()).isNull();
+        assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo("\"307-1-2\"");
+    }
+
+    @Test
+    @DisplayName("Ошибка поиска ссылки - ответ формирует контроллер")
+    void filter_FallsThroughOnError() {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/notexist"));
+        when(shortUrlService.getRedirect("notexist"))
+                .thenReturn(Mono.error(new ResourceNotFoundException("Ссылка не найдена: notexist")));
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        verify(chain).filter(exchange);
+        verify(shortUrlService, never()).recordClick(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Пути, которые не являются короткими кодами, не перехватываются")
+    void shortCode_SkipsNonRedirectPaths() {
+        assertThat(filter.shortCode("/abc1234")).isEqualTo("abc1234");
+        assertThat(filter.shortCode("/")).isNull();
+        assertThat(filter.shortCode("/api/v1/urls")).isNull();
+        assertThat(filter.shortCode("/api-docs")).isNull();
+        assertThat(filter.shortCode("/swagger-ui.html")).isNull();
+        assertThat(filter.shortCode("/" + "a".repeat(21))).isNull();
+    }
+}
@@ -1,11 +1,14 @@
 package com.urlshortener.controller;
 
 import com.urlshortener.dto.ApiResponse;
+import com.urlshortener.dto.BulkCreateResult;
 import com.urlshortener.dto.CreateShortUrlRequest;
 import com.urlshortener.dto.ShortUrlResponse;
 import com.urlshortener.dto.UrlStatsResponse;
 import com.urlshortener.service.AnalyticsService;
+import com.urlshortener.service.BulkShortUrlService;
 import com.urlshortener.service.ShortUrlService;
+import com.urlshortener.service.UserUrlPage;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,8 +22,10 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
@@ -42,6 +47,9 @@ class ShortUrlControllerTest {
     @MockBean
     private AnalyticsService analyticsService;
 
+    @MockBean
+    private BulkShortUrlService bulkShortUrlService;
+
     @Test
     @DisplayName("POST /api/v1/urls - создание короткой ссылки")
     void createShortUrl_Success() {
@@ -73,6 +81,37 @@ class ShortUrlControllerTest {
                 .jsonPath("$.data.originalUrl").isEqualTo("https://example.com/long/url");
     }
 
+    @Test
+    @DisplayName("POST /api/v1/urls/bulk - пакетное создание в формате NDJSON")
+    void createShortUrls_Ndjson() {
+        // Given
+        ShortUrlResponse created = ShortUrlResponse.builder()
+                .shortCode("abc1234")
+                .originalUrl("https://example.com/a")
+                .build();
+
+        when(bulkShortUrlService.createShortUrls(any(), anyString()))
+                .thenAnswer(invocation -> invocation.<Flux<CreateShortUrlRequest>>getArgument(0)
+                        .collectList()
+                        .flatMapMany(requests -> Flux.just(
+                                BulkCreateResult.created(0, created),
+                                BulkCreateResult.failed(1, "Некорректный формат URL"))));
+
+        // When & Then
+        webTestClient.post()
+                .uri("/api/v1/urls/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"originalUrl\": \"https://example.com/a\"}\n{\"originalUrl\": \"not-a-url\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BulkCreateResult.class)
+                .hasSize(2)
+                .value(results -> assertThat(results)
+                        .extracting(BulkCreateResult::isSuccess)
+                        .containsExactly(true, false));
+    }
+
     @Test
     @DisplayName("GET /api/v1/urls/{shortCode} - получение информации о ссылке")
     void getShortUrl_Success() {
@@ -140,17 +179,41 @@ class ShortUrlControllerTest {
                 .originalUrl("https://example2.com")
                 .build();
 
-        when(shortUrlService.getUserUrls("user1")).thenReturn(Flux.just(url1, url2));
+        when(shortUrlService.getUserUrls("user1", null, 2))
+                .thenReturn(Mono.just(new UserUrlPage(List.of(url1, url2), "next-cursor")));
 
         // When & Then
         webTestClient.get()
-                .uri("/api/v1/urls/user/user1")
+                .uri("/api/v1/urls/user/user1?limit=2")
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", "next-cursor")
                 .expectBodyList(ShortUrlResponse.class)
                 .hasSize(2);
     }
 
+    @Test
+    @DisplayName("GET /api/v1/urls/user/{userId} - потоковая выдача в NDJSON")
+    void streamUserUrls_Ndjson() {
+        // Given
+        ShortUrlResponse url = ShortUrlResponse.builder()
+                .shortCode("abc1234")
+                .originalUrl("https://example1.com")
+                .build();
+
+        when(shortUrlService.streamUserUrls("user1", null)).thenReturn(Flux.just(url));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/urls/user/user1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(ShortUrlResponse.class)
+                .hasSize(1);
+    }
+
     @Test
     @DisplayName("DELETE /api/v1/urls/{shortCode} - деактивация ссылки")
     void deactivateUrl_Success() {
@@ -179,4 +242,16 @@ class ShortUrlControllerTest {
                 .exchange()
                 .expectStatus().isBadRequest();
     }
+
+    @Test
+    @DisplayName("POST /api/v1/urls - ошибка валидации (URL не разбирается для Location)")
+    void createShortUrl_UnparsableUrl() {
+        // When & Then
+        webTestClient.post()
+                .uri("/api/v1/urls")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"originalUrl\": \"https://example.com/a|b\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
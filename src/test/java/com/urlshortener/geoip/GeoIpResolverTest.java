@@ -0,0 +1,76 @@
+package com.urlshortener.geoip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты определения местоположения по локальной базе GeoIP
+ */
+class GeoIpResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path databasePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        databasePath = tempDir.resolve("geoip.ugeo");
+        GeoIpDatabaseWriter.write(List.of(
+                GeoIpDatabaseWriter.parseLine("203.0.113.0,203.0.113.255,RU,Москва"),
+                GeoIpDatabaseWriter.parseLine("1.0.0.0,1.0.0.255,AU,"),
+                GeoIpDatabaseWriter.parseLine("200.0.0.0,200.255.255.255,BR,São Paulo"),
+                GeoIpDatabaseWriter.parseLine("255.255.255.0,255.255.255.255,ZZ,Broadcast")), databasePath);
+    }
+
+    @Test
+    @DisplayName("Адрес внутри диапазона и на его границах")
+    void resolve_WithinRange() {
+        GeoIpResolver resolver = new GeoIpResolver(new SimpleMeterRegistry(), databasePath.toString(), 100);
+
+        assertThat(resolver.resolve("203.0.113.7")).isEqualTo(new GeoLocation("RU", "Москва"));
+        assertThat(resolver.resolve("203.0.113.0")).isEqualTo(new GeoLocation("RU", "Москва"));
+        assertThat(resolver.resolve("203.0.113.255")).isEqualTo(new GeoLocation("RU", "Москва"));
+        assertThat(resolver.resolve("200.10.20.30")).isEqualTo(new GeoLocation("BR", "São Paulo"));
+        assertThat(resolver.resolve("1.0.0.1")).isEqualTo(new GeoLocation("AU", null));
+        // Верхняя половина адресного пространства: сравнение беззнаковое
+        assertThat(resolver.resolve("255.255.255.255")).isEqualTo(new GeoLocation("ZZ", "Broadcast"));
+        assertThat(resolver.resolve("::ffff:203.0.113.7")).isEqualTo(new GeoLocation("RU", "Москва"));
+    }
+
+    @Test
+    @DisplayName("Адреса вне диапазонов, IPv6 и мусор - UNKNOWN")
+    void resolve_Unknown() {
+        GeoIpResolver resolver = new GeoIpResolver(new SimpleMeterRegistry(), databasePath.toString(), 100);
+
+        assertThat(resolver.resolve("0.0.0.1")).isSameAs(GeoLocation.UNKNOWN);
+        assertThat(resolver.resolve("203.0.114.0")).isSameAs(GeoLocation.UNKNOWN);
+        assertThat(resolver.resolve("2001:db8::1")).isSameAs(GeoLocation.UNKNOWN);
+        assertThat(resolver.resolve("256.1.1.1")).isSameAs(GeoLocation.UNKNOWN);
+        assertThat(resolver.resolve("unknown")).isSameAs(GeoLocation.UNKNOWN);
+        assertThat(resolver.resolve(null)).isSameAs(GeoLocation.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("Без базы или с повреждённым файлом обогащение отключено")
+    void resolve_Disabled() throws IOException {
+        Path broken = Files.writeString(tempDir.resolve("broken.ugeo"), "not a database");
+
+        GeoIpResolver withoutDatabase = new GeoIpResolver(new SimpleMeterRegistry(), "", 100);
+        GeoIpResolver withBrokenDatabase = new GeoIpResolver(new SimpleMeterRegistry(), broken.toString(), 100);
+
+        assertThat(withoutDatabase.isEnabled()).isFalse();
+        assertThat(withBrokenDatabase.isEnabled()).isFalse();
+        assertThat(withoutDatabase.resolve("203.0.113.7")).isSameAs(GeoLocation.UNKNOWN);
+    }
+}
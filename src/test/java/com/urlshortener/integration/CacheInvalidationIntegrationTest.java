@@ -0,0 +1,114 @@
+package com.urlshortener.integration;
+
+import com.urlshortener.cache.CacheInvalidationBus;
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.cache.LocalUrlCache;
+import com.urlshortener.cache.ShortCodeFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Интеграционный тест инвалидации локального кэша:
+ * два независимых контекста приложения, общий Redis
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CacheInvalidationIntegrationTest {
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    @DisplayName("Инвалидация на одном инстансе удаляет код из локального кэша другого")
+    void publish_InvalidatesOtherNode() {
+        // Given
+        LocalUrlCache cacheA = nodeA.getBean(LocalUrlCache.class);
+        LocalUrlCache cacheB = nodeB.getBean(LocalUrlCache.class);
+        CachedRedirect redirect = redirect("https://example.com");
+        CachedRedirect other = redirect("https://other.com");
+        cacheA.put("abc1234", redirect);
+        cacheB.put("abc1234", redirect);
+        cacheB.put("other", other);
+
+        // When & Then - публикуем, пока подписка второго узла не получит сообщение
+        CacheInvalidationBus busA = nodeA.getBean(CacheInvalidationBus.class);
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            busA.publish("abc1234").block();
+            assertThat(cacheB.get("abc1234")).isNull();
+        });
+
+        assertThat(cacheA.get("abc1234")).isNull();
+        assertThat(cacheB.get("other")).isEqualTo(other);
+    }
+
+    private static CachedRedirect redirect(String location) {
+        return new CachedRedirect(HttpStatus.FOUND, location, "no-store",
+                "Wed, 1 Jan 2025 00:00:00 GMT", "\"302\"", CachedRedirect.NEVER);
+    }
+
+    private ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(NodeConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.data.redis.host=" + redisContainer.getHost(),
+                        "spring.data.redis.port=" + redisContainer.getMappedPort(6379))
+                .run();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({RedisAutoConfiguration.class, RedisReactiveAutoConfiguration.class})
+    @Import({LocalUrlCache.class, CacheInvalidationBus.class})
+    static class NodeConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /**
+         * Фильтр кодов без MongoDB: выключен и пропускает все коды
+         */
+        @Bean
+        ShortCodeFilter shortCodeFilter(MeterRegistry meterRegistry) {
+            return new ShortCodeFilter(null, meterRegistry, false, 1000, 0.01);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.urlshortener.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit тесты для ClickEventCodec и ClickEventMessageConverter
+ */
+class ClickEventCodecTest {
+
+    private static final ClickEventMessage EVENT = new ClickEventMessage("abc1234", "65f1c0a2e4b0a1b2c3d4e5f6",
+            "203.0.113.7", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/120.0.0.0 Safari/537.36",
+            "https://example.com/поиск?q=😀", LocalDateTime.of(2026, 3, 15, 10, 20, 5, 123_456_000),
+            UUID.fromString("0f8e2c1a-9b7d-4e36-a5c4-2d1b0e9f8a7c"));
+
+    @Test
+    @DisplayName("Декодирование восстанавливает все поля, включая null и не-ASCII символы")
+    void decode_RestoresEvent() {
+        // Given
+        ClickEventMessage withNulls = new ClickEventMessage("abc1234", null, null, "", null, EVENT.clickedAt(), null);
+
+        // When & Then
+        assertThat(ClickEventCodec.decode(ClickEventCodec.encode(EVENT))).isEqualTo(EVENT);
+        assertThat(ClickEventCodec.decode(ClickEventCodec.encode(withNulls))).isEqualTo(withNulls);
+    }
+
+    @Test
+    @DisplayName("Двоичное сообщение заметно меньше JSON прежнего формата")
+    void encode_SmallerThanJson() {
+        // When
+        Message binary = new ClickEventMessageConverter().toMessage(EVENT, new MessageProperties());
+        Message json = new Jackson2JsonMessageConverter().toMessage(EVENT.toLegacyMap(), new MessageProperties());
+
+        // Then
+        assertThat(binary.getMessageProperties().getContentType()).isEqualTo(ClickEventMessageConverter.CONTENT_TYPE);
+        assertThat(binary.getBody().length).isLessThan(json.getBody().length * 2 / 3);
+    }
+
+    @Test
+    @DisplayName("Конвертер выбирается по типу содержимого: JSON прежнего формата по-прежнему читается")
+    void fromMessage_NegotiatesContentType() {
+        // Given
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter());
+        converter.addDelegate(ClickEventMessageConverter.CONTENT_TYPE, new ClickEventMessageConverter());
+        Message binary = new ClickEventMessageConverter().toMessage(EVENT, new MessageProperties());
+        Message json = new Jackson2JsonMessageConverter().toMessage(EVENT.toLegacyMap(), new MessageProperties());
+
+        // When
+        Object fromBinary = converter.fromMessage(binary);
+        Object fromJson = converter.fromMessage(json);
+
+        // Then
+        assertThat(fromBinary).isEqualTo(EVENT);
+        assertThat(ClickEventMessage.fromLegacyMap((Map<?, ?>) fromJson)).isEqualTo(EVENT);
+    }
+
+    @Test
+    @DisplayName("Неизвестная версия и обрезанное сообщение отклоняются")
+    void fromMessage_RejectsUnknownVersionAndTruncated() {
+        // Given
+        byte[] body = ClickEventCodec.encode(EVENT);
+        byte[] nextVersion = body.clone();
+        nextVersion[0] = ClickEventCodec.FORMAT_VERSION + 1;
+        byte[] truncated = Arrays.copyOf(body, body.length - 3);
+        ClickEventMessageConverter converter = new ClickEventMessageConverter();
+
+        // When & Then
+        assertThatThrownBy(() -> converter.fromMessage(new Message(nextVersion)))
+                .isInstanceOf(MessageConversionException.class)
+                .hasRootCauseMessage("Неизвестная версия формата события клика: " + (ClickEventCodec.FORMAT_VERSION + 1));
+        assertThatThrownBy(() -> converter.fromMessage(new Message(truncated)))
+                .isInstanceOf(MessageConversionException.class);
+    }
+
+    @Test
+    @DisplayName("Сообщение версии 1 без идентификатора читается, eventId считается по содержимому")
+    void decode_ReadsFormatVersion1() {
+        // Given
+        ClickEventMessage legacy = new ClickEventMessage(EVENT.shortCode(), EVENT.shortUrlId(), EVENT.ipAddress(),
+                EVENT.userAgent(), EVENT.referer(), EVENT.clickedAt());
+        byte[] current = ClickEventCodec.encode(legacy);
+        byte[] version1 = Arrays.copyOf(current, current.length - 1);
+        version1[0] = 1;
+
+        // When
+        ClickEventMessage decoded = ClickEventCodec.decode(version1);
+
+        // Then
+        assertThat(decoded).isEqualTo(legacy);
+        assertThat(decoded.eventId()).isEqualTo(legacy.eventId());
+    }
+
+    @Test
+    @DisplayName("Одинаковые клики в одну микросекунду получают разные eventId, повторная доставка - тот же")
+    void eventId_DistinguishesIdenticalClicks() {
+        // Given
+        ClickEventMessage first = ClickEventMessage.create("abc1234", "id", "203.0.113.7", "agent", null, EVENT.clickedAt());
+        ClickEventMessage second = ClickEventMessage.create("abc1234", "id", "203.0.113.7", "agent", null, EVENT.clickedAt());
+        ClickEventMessage redelivered = ClickEventCodec.decode(ClickEventCodec.encode(first));
+        ClickEventMessage fromJson = ClickEventMessage.fromLegacyMap(first.toLegacyMap());
+
+        // When & Then
+        assertThat(first.eventId()).isNotEqualTo(second.eventId());
+        assertThat(redelivered.eventId()).isEqualTo(first.eventId());
+        assertThat(fromJson.eventId()).isEqualTo(first.eventId());
+    }
+}
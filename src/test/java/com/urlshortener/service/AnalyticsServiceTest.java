@@ -0,0 +1,376 @@
+package com.urlshortener.service;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.propagation.TraceContext;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.urlshortener.entity.ClickEvent;
+import com.urlshortener.entity.ClickEventReceipt;
+import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.geoip.GeoIpResolver;
+import com.urlshortener.geoip.GeoLocation;
+import com.urlshortener.messaging.ClickEventMessage;
+import com.urlshortener.repository.ShortUrlRepository;
+import com.urlshortener.useragent.UserAgentClassifier;
+import com.urlshortener.useragent.UserAgentInfo;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BravePropagator;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import io.micrometer.tracing.brave.bridge.W3CPropagation;
+import io.micrometer.tracing.handler.PropagatingReceiverTracingObservationHandler;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.MatchOperation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для AnalyticsService
+ */
+@ExtendWith(MockitoExtension.class)
+class AnalyticsServiceTest {
+
+    @Mock
+    private ShortUrlRepository shortUrlRepository;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    @Mock
+    private ReactiveBulkOperations receiptOperations;
+
+    @Mock
+    private ClickRollupService clickRollupService;
+
+    @Mock
+    private UserAgentClassifier userAgentClassifier;
+
+    @Mock
+    private GeoIpResolver geoIpResolver;
+
+    @Mock
+    private ClickArchiveService clickArchiveService;
+
+    private final Set<String> receipts = new HashSet<>();
+    private final List<MutableSpan> spans = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private Tracing tracing;
+    private AnalyticsService analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Brave с W3C-распространением, как в приложении; завершённые спаны собираются в spans
+        CurrentTraceContext currentTraceContext = ThreadLocalCurrentTraceContext.create();
+        tracing = Tracing.newBuilder()
+                .currentTraceContext(currentTraceContext)
+                .propagationFactory(new W3CPropagation())
+                .addSpanHandler(new SpanHandler() {
+                    @Override
+                    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                        spans.add(span);
+                        return true;
+                    }
+                })
+                .build();
+        Tracer tracer = new BraveTracer(tracing.tracer(), new BraveCurrentTraceContext(currentTraceContext));
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+                .observationHandler(new PropagatingReceiverTracingObservationHandler<>(tracer, new BravePropagator(tracing)));
+        analyticsService = new AnalyticsService(shortUrlRepository, mongoTemplate, clickRollupService,
+                userAgentClassifier, geoIpResolver, clickArchiveService, observationRegistry, meterRegistry);
+        ReflectionTestUtils.setField(analyticsService, "insertTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(analyticsService, "dedupWindow", Duration.ofHours(24));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracing.close();
+    }
+
+    @Test
+    @DisplayName("Пачка событий наблюдается целиком, возраст событий измеряется от времени клика")
+    void processClickEvents_RecordsBatchAndEventAge() {
+        // Given: два клика, сделанных 3 секунды назад, в двоичном и прежнем JSON-формате
+        LocalDateTime clickedAt = LocalDateTime.now().minusSeconds(3);
+        ClickEventMessage event = new ClickEventMessage("abc1234", null, "203.0.113.7", "Mozilla/5.0", null, clickedAt);
+        List<Message<?>> messages = List.of(
+                message(event),
+                message(new ClickEventMessage("xyz7890", null, "203.0.113.7", "Mozilla/5.0", null, clickedAt).toLegacyMap()),
+                message(Map.of("type", "URL_CREATED", "shortCode", "new1234")));
+
+        when(userAgentClassifier.classify(any())).thenReturn(new UserAgentInfo("DESKTOP", "Chrome", "Windows"));
+        when(geoIpResolver.resolve(any())).thenReturn(GeoLocation.UNKNOWN);
+        stubReceiptStore();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEvent.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+        when(clickRollupService.record(anyList())).thenReturn(Mono.empty());
+
+        // When
+        analyticsService.processClickEvents(messages);
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ClickEvent>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).insert(inserted.capture());
+        assertThat(inserted.getValue()).extracting(ClickEvent::getShortCode).containsExactly("abc1234", "xyz7890");
+        assertThat(inserted.getValue()).extracting(ClickEvent::getClickedAt).containsOnly(clickedAt);
+        assertThat(meterRegistry.get("clicks.consumer.batch").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("clicks.consumer.insert.latency").timer().count()).isEqualTo(1);
+        Timer persisted = meterRegistry.get("clicks.event.age").tag("stage", "persisted").timer();
+        assertThat(persisted.count()).isEqualTo(2);
+        assertThat(persisted.max(TimeUnit.SECONDS)).isBetween(3.0, 10.0);
+        // Спан пачки продолжает трассу производителя из заголовка traceparent первого сообщения
+        assertThat(spans).singleElement().satisfies(span -> {
+            assertThat(span.name()).isEqualTo("clicks batch receive");
+            assertThat(span.kind()).isEqualTo(brave.Span.Kind.CONSUMER);
+            assertThat(span.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+            assertThat(span.parentId()).isEqualTo("00f067aa0ba902b7");
+            assertThat(span.remoteServiceName()).isEqualTo("RabbitMQ");
+        });
+    }
+
+    @Test
+    @DisplayName("Повторная доставка пачки не меняет число событий и агрегаты")
+    void processClickEvents_RedeliveredBatchCountedOnce() {
+        // Given
+        LocalDateTime clickedAt = LocalDateTime.now().minusSeconds(3);
+        List<Message<?>> batch = List.of(
+                message(new ClickEventMessage("abc1234", null, "203.0.113.7", "Mozilla/5.0", null, clickedAt)),
+                message(new ClickEventMessage("abc1234", null, "203.0.113.8", "Mozilla/5.0", null, clickedAt).toLegacyMap()));
+        List<Message<?>> batchWithNewEvent = new ArrayList<>(batch);
+        batchWithNewEvent.add(message(new ClickEventMessage("abc1234", null, "203.0.113.9", "Mozilla/5.0", null, clickedAt)));
+
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger counted = new AtomicInteger();
+        when(userAgentClassifier.classify(any())).thenReturn(new UserAgentInfo("DESKTOP", "Chrome", "Windows"));
+        when(geoIpResolver.resolve(any())).thenReturn(GeoLocation.UNKNOWN);
+        stubReceiptStore();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEvent.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            stored.addAndGet(invocation.<List<?>>getArgument(0).size());
+            return bulkOperations;
+        });
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of())));
+        when(clickRollupService.record(anyList())).thenAnswer(invocation -> {
+            counted.addAndGet(invocation.<List<?>>getArgument(0).size());
+            return Mono.empty();
+        });
+
+        // When: пачка доставлена, затем доставлена повторно (подтверждение не дошло до брокера)
+        analyticsService.processClickEvents(batch);
+        analyticsService.processClickEvents(batch);
+
+        // Then
+        assertThat(stored).hasValue(2);
+        assertThat(counted).hasValue(2);
+
+        // When: повторная доставка вместе с новым событием
+        analyticsService.processClickEvents(batchWithNewEvent);
+
+        // Then: учитывается только новое
+        assertThat(stored).hasValue(3);
+        assertThat(counted).hasValue(3);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ClickEvent>> recorded = ArgumentCaptor.forClass(List.class);
+        verify(clickRollupService, times(2)).record(recorded.capture());
+        assertThat(recorded.getValue()).extracting(ClickEvent::getIpAddress).containsExactly("203.0.113.9");
+    }
+
+    @Test
+    @DisplayName("Ошибка записи снимает отметки о событиях, чтобы повторная доставка их учла")
+    void processClickEvents_ReleasesReceiptsOnFailure() {
+        // Given
+        List<Message<?>> batch = List.of(
+                message(new ClickEventMessage("abc1234", null, "203.0.113.7", "Mozilla/5.0", null, LocalDateTime.now())));
+        when(userAgentClassifier.classify(any())).thenReturn(new UserAgentInfo("DESKTOP", "Chrome", "Windows"));
+        when(geoIpResolver.resolve(any())).thenReturn(GeoLocation.UNKNOWN);
+        stubReceiptStore();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEvent.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of())));
+        when(clickRollupService.record(anyList())).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+        when(mongoTemplate.remove(any(Query.class), eq(ClickEventReceipt.class)))
+                .thenAnswer(invocation -> {
+                    receipts.clear();
+                    return Mono.just(DeleteResult.acknowledged(1));
+                });
+
+        // When & Then
+        assertThatThrownBy(() -> analyticsService.processClickEvents(batch))
+                .hasMessage("connection refused");
+        assertThat(receipts).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Распределения ссылки, созданной после начала их учёта, читаются только из агрегатов")
+    void getUrlStats_BreakdownFromRollups() {
+        // Given
+        LocalDateTime countedSince = LocalDateTime.of(2026, 3, 1, 0, 0);
+        stubStats(LocalDateTime.of(2026, 3, 10, 12, 0), countedSince, Map.of("US", 5L));
+
+        // When & Then
+        StepVerifier.create(analyticsService.getUrlStats("abc1234"))
+                .assertNext(stats -> {
+                    assertThat(stats.getClicksByCountry()).containsOnly(Map.entry("US", 5L));
+                    assertThat(stats.getOsStats()).containsOnly(Map.entry("iOS", 5L));
+                })
+                .verifyComplete();
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(ClickEvent.class), eq(Document.class));
+        verifyNoInteractions(clickArchiveService);
+    }
+
+    @Test
+    @DisplayName("Клики до начала учёта распределений досчитываются по событиям и архиву за тот же период")
+    void getUrlStats_BreakdownAddsUncountedClicks() {
+        // Given
+        LocalDateTime countedSince = LocalDateTime.of(2026, 3, 1, 0, 0);
+        stubStats(LocalDateTime.of(2026, 1, 10, 12, 0), countedSince, Map.of("US", 5L));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ClickEvent.class), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("countries", List.of(new Document("_id", "US").append("count", 2L)))
+                        .append("hours", List.of(new Document("_id", 9).append("count", 2L)))));
+        ClickBreakdown archived = ClickBreakdown.empty();
+        archived.byCountry().put("DE", 4L);
+        when(clickArchiveService.getArchivedBreakdown("abc1234", countedSince)).thenReturn(Mono.just(archived));
+
+        // When & Then
+        StepVerifier.create(analyticsService.getUrlStats("abc1234"))
+                .assertNext(stats -> {
+                    assertThat(stats.getClicksByCountry()).containsOnly(Map.entry("US", 7L), Map.entry("DE", 4L));
+                    assertThat(stats.getClicksByHour()).containsOnly(Map.entry("09", 2L));
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(ClickEvent.class), eq(Document.class));
+        Document match = ((MatchOperation) aggregation.getValue().getPipeline().getOperations().get(0))
+                .toDocument(Aggregation.DEFAULT_CONTEXT);
+        assertThat((Document) ((Document) match.get("$match")).get("clickedAt")).containsEntry("$lt", countedSince);
+    }
+
+    private void stubStats(LocalDateTime createdAt, LocalDateTime countedSince, Map<String, Long> countries) {
+        ShortUrl shortUrl = ShortUrl.builder().shortCode("abc1234").originalUrl("https://example.com")
+                .clickCount(5L).createdAt(createdAt).build();
+        ClickBreakdown counted = ClickBreakdown.empty();
+        counted.byCountry().putAll(countries);
+        counted.byOs().put("iOS", 5L);
+        when(shortUrlRepository.findByShortCode("abc1234")).thenReturn(Mono.just(shortUrl));
+        when(clickRollupService.countSince(anyString(), any())).thenReturn(Mono.just(5L));
+        when(clickRollupService.getBreakdown("abc1234"))
+                .thenReturn(Mono.just(new ClickRollupService.CountedBreakdown(counted, countedSince)));
+    }
+
+    /**
+     * Коллекция отметок в памяти: повторная вставка _id даёт ошибку дубликата ключа, как в MongoDB
+     */
+    @Test
+    @DisplayName("Зависшая вставка прерывается по тайм-ауту и снимает отметки: повтор пачки учтёт её события")
+    void processClickEvents_ReleasesReceiptsOnStalledInsert() {
+        // Given
+        ReflectionTestUtils.setField(analyticsService, "insertTimeout", Duration.ofMillis(200));
+        List<Message<?>> batch = List.of(
+                message(new ClickEventMessage("abc1234", null, "203.0.113.7", "Mozilla/5.0", null, LocalDateTime.now())));
+        when(userAgentClassifier.classify(any())).thenReturn(new UserAgentInfo("DESKTOP", "Chrome", "Windows"));
+        when(geoIpResolver.resolve(any())).thenReturn(GeoLocation.UNKNOWN);
+        stubReceiptStore();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEvent.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.never());
+        when(clickRollupService.record(anyList())).thenReturn(Mono.empty());
+        when(mongoTemplate.remove(any(Query.class), eq(ClickEventReceipt.class)))
+                .thenAnswer(invocation -> {
+                    receipts.clear();
+                    return Mono.just(DeleteResult.acknowledged(1));
+                });
+
+        // When & Then
+        assertThatThrownBy(() -> analyticsService.processClickEvents(batch))
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(receipts).isEmpty();
+    }
+
+    private void stubReceiptStore() {
+        List<ClickEventReceipt> pending = new ArrayList<>();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickEventReceipt.class)).thenReturn(receiptOperations);
+        when(receiptOperations.insert(anyList())).thenAnswer(invocation -> {
+            pending.clear();
+            pending.addAll(invocation.getArgument(0));
+            return receiptOperations;
+        });
+        when(receiptOperations.execute()).thenAnswer(invocation -> Mono.defer(() -> {
+            List<BulkWriteError> duplicates = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                if (!receipts.add(pending.get(i).getId())) {
+                    duplicates.add(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), i));
+                }
+            }
+            BulkWriteResult result = BulkWriteResult.acknowledged(
+                    pending.size() - duplicates.size(), 0, 0, 0, List.of(), List.of());
+            return duplicates.isEmpty()
+                    ? Mono.just(result)
+                    : Mono.error(new DuplicateKeyException("E11000 duplicate key error",
+                            new MongoBulkWriteException(result, duplicates, null, new ServerAddress(), Set.of())));
+        }));
+    }
+
+    private static Message<?> message(Object payload) {
+        return MessageBuilder.withPayload(payload)
+                .setHeader("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")
+                .build();
+    }
+}
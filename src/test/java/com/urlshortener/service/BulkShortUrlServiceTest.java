@@ -0,0 +1,180 @@
+package com.urlshortener.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.urlshortener.dto.BulkCreateResult;
+import com.urlshortener.dto.CreateShortUrlRequest;
+import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.shortcode.ShortCodeGenerator;
+import jakarta.validation.Validation;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для BulkShortUrlService
+ */
+@ExtendWith(MockitoExtension.class)
+class BulkShortUrlServiceTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    @Mock
+    private ShortUrlService shortUrlService;
+
+    @Mock
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Mock
+    private RabbitMQService rabbitMQService;
+
+    private BulkShortUrlService bulkShortUrlService;
+
+    @BeforeEach
+    void setUp() {
+        bulkShortUrlService = new BulkShortUrlService(mongoTemplate, shortUrlService, shortCodeGenerator,
+                rabbitMQService, Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(bulkShortUrlService, "baseUrl", "http://localhost:8090");
+        ReflectionTestUtils.setField(bulkShortUrlService, "chunkSize", 10);
+        ReflectionTestUtils.setField(bulkShortUrlService, "maxWait", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(bulkShortUrlService, "cacheConcurrency", 4);
+    }
+
+    @Test
+    @DisplayName("Одна bulk-вставка на порцию, ошибки отдельных строк не прерывают импорт")
+    void createShortUrls_ReportsPerLine() {
+        // Given
+        Flux<CreateShortUrlRequest> requests = Flux.just(
+                new CreateShortUrlRequest("https://example.com/a", null, null),
+                new CreateShortUrlRequest("not-a-url", null, null),
+                new CreateShortUrlRequest("https://example.com/b", "taken", null));
+
+        when(shortCodeGenerator.nextCode()).thenReturn(Mono.just("abc1234"));
+        when(shortUrlService.buildShortUrl(anyString(), any(CreateShortUrlRequest.class), eq("user1")))
+                .thenAnswer(invocation -> ShortUrl.builder()
+                        .shortCode(invocation.getArgument(0))
+                        .originalUrl(invocation.<CreateShortUrlRequest>getArgument(1).getOriginalUrl())
+                        .build());
+        when(shortUrlService.announceCreated(any(ShortUrl.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        // Вторая из вставляемых ссылок (алиас "taken") нарушает уникальный индекс
+        MongoBulkWriteException bulkError = new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of());
+        when(bulkOperations.execute()).thenReturn(Mono.error(new DuplicateKeyException("duplicate", bulkError)));
+
+        // When & Then
+        StepVerifier.create(bulkShortUrlService.createShortUrls(requests, "user1")
+                        .sort(Comparator.comparingLong(BulkCreateResult::getIndex)))
+                .assertNext(result -> {
+                    assertThat(result.isSuccess()).isTrue();
+                    assertThat(result.getUrl().getShortUrl()).isEqualTo("http://localhost:8090/abc1234");
+                    assertThat(result.getUrl().getId()).isNotNull();
+                })
+                .assertNext(result -> assertThat(result.getError()).isEqualTo("Некорректный формат URL"))
+                .assertNext(result -> assertThat(result.getError()).isEqualTo("Алиас уже занят: taken"))
+                .verifyComplete();
+
+        verify(bulkOperations, times(1)).execute();
+        verify(shortUrlService, times(1)).announceCreated(argThat(shortUrl -> "abc1234".equals(shortUrl.getShortCode())));
+        verify(rabbitMQService, timeout(1000)).sendUrlCreatedEvent(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("URL, который пропускает @URL, но не разбирает URI.create, отклоняется до вставки")
+    void createShortUrls_RejectsUnparsableUrls() {
+        // Given
+        Flux<CreateShortUrlRequest> requests = Flux.just(
+                new CreateShortUrlRequest("https://example.com/a b", null, null),
+                new CreateShortUrlRequest("https://example.com/a|b", null, null),
+                new CreateShortUrlRequest("https://example.com/{x}", null, null),
+                new CreateShortUrlRequest("https://example.com/?q=a^b", null, null));
+
+        // When & Then
+        StepVerifier.create(bulkShortUrlService.createShortUrls(requests, "user1").collectList())
+                .assertNext(results -> assertThat(results)
+                        .hasSize(4)
+                        .allSatisfy(result -> {
+                            assertThat(result.isSuccess()).isFalse();
+                            assertThat(result.getError()).contains("URL содержит недопустимые символы");
+                        }))
+                .verifyComplete();
+
+        verifyNoInteractions(shortCodeGenerator, mongoTemplate, rabbitMQService);
+    }
+
+    @Test
+    @DisplayName("Ссылка, код которой не разослан по инстансам, удаляется и возвращается ошибкой строки")
+    void createShortUrls_WithdrawsUnannouncedLinks() {
+        // Given
+        Flux<CreateShortUrlRequest> requests = Flux.just(
+                new CreateShortUrlRequest("https://example.com/a", "first", null),
+                new CreateShortUrlRequest("https://example.com/b", "second", null));
+
+        when(shortUrlService.buildShortUrl(anyString(), any(CreateShortUrlRequest.class), eq("user1")))
+                .thenAnswer(invocation -> ShortUrl.builder()
+                        .shortCode(invocation.getArgument(0))
+                        .originalUrl(invocation.<CreateShortUrlRequest>getArgument(1).getOriginalUrl())
+                        .build());
+        when(shortUrlService.announceCreated(any(ShortUrl.class)))
+                .thenAnswer(invocation -> "second".equals(invocation.<ShortUrl>getArgument(0).getShortCode())
+                        ? Mono.error(new IllegalStateException("connection refused"))
+                        : Mono.empty());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+        when(mongoTemplate.remove(any(Query.class), eq(ShortUrl.class))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        // When & Then
+        StepVerifier.create(bulkShortUrlService.createShortUrls(requests, "user1")
+                        .sort(Comparator.comparingLong(BulkCreateResult::getIndex)))
+                .assertNext(result -> assertThat(result.getUrl().getShortCode()).isEqualTo("first"))
+                .assertNext(result -> {
+                    assertThat(result.isSuccess()).isFalse();
+                    assertThat(result.getError()).isEqualTo("Ошибка рассылки нового кода: connection refused");
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(ShortUrl.class));
+        assertThat(removed.getValue().getQueryObject().get("_id", Document.class).getList("$in", String.class)).hasSize(1);
+        verify(rabbitMQService, timeout(1000)).sendUrlCreatedEvent(argThat(shortUrl -> "first".equals(shortUrl.getShortCode())));
+        verify(rabbitMQService, never()).sendUrlCreatedEvent(argThat(shortUrl -> "second".equals(shortUrl.getShortCode())));
+    }
+}
@@ -0,0 +1,93 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.entity.ShortUrl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для CacheWarmer
+ */
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ShortUrlService shortUrlService;
+
+    private CacheWarmer cacheWarmer;
+
+    @BeforeEach
+    void setUp() {
+        cacheWarmer = new CacheWarmer(mongoTemplate, shortUrlService);
+        ReflectionTestUtils.setField(cacheWarmer, "size", 2);
+        ReflectionTestUtils.setField(cacheWarmer, "timeBudget", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(cacheWarmer, "concurrency", 4);
+    }
+
+    @Test
+    @DisplayName("Прогрев загружает топ ссылок по кликам в L1 и Redis")
+    void warmUp_LoadsTopLinks() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        ShortUrl popular = link("abc1234", "https://example.com/popular", now);
+        ShortUrl second = link("xyz9876", "https://example.com/second", now);
+        when(mongoTemplate.find(any(Query.class), eq(ShortUrl.class))).thenReturn(Flux.just(popular, second));
+        when(shortUrlService.redirectFor(any(ShortUrl.class)))
+                .thenAnswer(invocation -> redirect(invocation.<ShortUrl>getArgument(0).getOriginalUrl()));
+        when(shortUrlService.cacheRedirect(anyString(), any(CachedRedirect.class))).thenReturn(Mono.just(true));
+
+        // When & Then
+        StepVerifier.create(cacheWarmer.warmUp(now))
+                .expectNext(2L)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(ShortUrl.class));
+        assertThat(query.getValue().getLimit()).isEqualTo(2);
+        assertThat(query.getValue().getSortObject()).containsEntry("clickCount", -1);
+        CachedRedirect popularRedirect = redirect("https://example.com/popular");
+        CachedRedirect secondRedirect = redirect("https://example.com/second");
+        verify(shortUrlService).cacheLocally("abc1234", popularRedirect);
+        verify(shortUrlService).cacheLocally("xyz9876", secondRedirect);
+        verify(shortUrlService).cacheRedirect("abc1234", popularRedirect);
+        verify(shortUrlService).cacheRedirect("xyz9876", secondRedirect);
+    }
+
+    private static CachedRedirect redirect(String originalUrl) {
+        return new CachedRedirect(HttpStatus.FOUND, originalUrl, "no-store",
+                "Wed, 1 Jan 2025 00:00:00 GMT", "\"302\"", CachedRedirect.NEVER);
+    }
+
+    private static ShortUrl link(String shortCode, String originalUrl, LocalDateTime now) {
+        return ShortUrl.builder()
+                .shortCode(shortCode)
+                .originalUrl(originalUrl)
+                .active(true)
+                .expiresAt(now.plusDays(1))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.urlshortener.service;
+
+import com.mongodb.client.result.DeleteResult;
+import com.urlshortener.entity.ClickArchiveSegment;
+import com.urlshortener.entity.ClickEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для ClickArchiveService
+ */
+@ExtendWith(MockitoExtension.class)
+class ClickArchiveServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 2, 1, 0, 0);
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private final Map<String, ClickEvent> events = new TreeMap<>();
+    private final Map<String, ClickArchiveSegment> segments = new TreeMap<>();
+    private ClickArchiveService clickArchiveService;
+
+    @BeforeEach
+    void setUp() {
+        clickArchiveService = new ClickArchiveService(mongoTemplate);
+        ReflectionTestUtils.setField(clickArchiveService, "maxSegmentEvents", 2);
+        for (int i = 1; i <= 5; i++) {
+            ClickEvent event = ClickEvent.builder().id("e" + i).shortCode("abc1234")
+                    .clickedAt(DAY.plusHours(i)).country("US").build();
+            events.put(event.getId(), event);
+        }
+
+        // События и сегменты в памяти: поиск, сохранение сегмента и удаление событий по _id
+        when(mongoTemplate.find(any(Query.class), eq(ClickEvent.class)))
+                .thenAnswer(invocation -> Flux.defer(() -> Flux.fromIterable(new ArrayList<>(events.values()))));
+        when(mongoTemplate.find(any(Query.class), eq(ClickArchiveSegment.class)))
+                .thenAnswer(invocation -> Flux.defer(() -> Flux.fromIterable(new ArrayList<>(segments.values()))));
+        when(mongoTemplate.save(any(ClickArchiveSegment.class))).thenAnswer(invocation -> {
+            ClickArchiveSegment segment = invocation.getArgument(0);
+            segments.put(segment.getId(), segment);
+            return Mono.just(segment);
+        });
+    }
+
+    @Test
+    @DisplayName("Повторный запуск после частичного удаления не архивирует события второй раз")
+    void archiveBefore_RerunAfterPartialDelete() {
+        // Given: второй сегмент [e3, e4] записан, но из событий успело удалиться только e3
+        AtomicInteger removals = new AtomicInteger();
+        when(mongoTemplate.remove(any(Query.class), eq(ClickEvent.class))).thenAnswer(invocation -> {
+            List<String> ids = ids(invocation.getArgument(0));
+            if (removals.incrementAndGet() == 2) {
+                events.remove(ids.get(0));
+                return Mono.error(new IllegalStateException("connection reset"));
+            }
+            ids.forEach(events::remove);
+            return Mono.just(DeleteResult.acknowledged(ids.size()));
+        });
+
+        // When
+        StepVerifier.create(clickArchiveService.archiveBefore(DAY.plusDays(1)))
+                .verifyErrorMessage("connection reset");
+        StepVerifier.create(clickArchiveService.archiveBefore(DAY.plusDays(1)))
+                .expectNext(1L)
+                .verifyComplete();
+
+        // Then: e4 только удалён, из e5 записан новый сегмент
+        assertThat(events).isEmpty();
+        assertThat(segments.values()).extracting(ClickArchiveSegment::getCount).containsExactly(2L, 2L, 1L);
+        assertThat(segments.values().stream().mapToLong(ClickArchiveSegment::getCount).sum()).isEqualTo(5);
+        assertThat(segments).containsKey("abc1234:" + DAY.plusHours(5));
+    }
+
+    @Test
+    @DisplayName("Сегменты одних суток не делятся внутри одного времени клика")
+    void archiveBefore_DoesNotSplitEqualTimestamps() {
+        // Given: e2 и e3 кликнуты в одну миллисекунду
+        events.get("e3").setClickedAt(events.get("e2").getClickedAt());
+        when(mongoTemplate.remove(any(Query.class), eq(ClickEvent.class))).thenAnswer(invocation -> {
+            List<String> ids = ids(invocation.getArgument(0));
+            ids.forEach(events::remove);
+            return Mono.just(DeleteResult.acknowledged(ids.size()));
+        });
+
+        // When
+        StepVerifier.create(clickArchiveService.archiveBefore(DAY.plusDays(1)))
+                .expectNext(2L)
+                .verifyComplete();
+
+        // Then
+        assertThat(segments.values()).extracting(ClickArchiveSegment::getCount).containsExactly(3L, 2L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> ids(Query query) {
+        return (List<String>) ((Document) query.getQueryObject().get("_id")).get("$in");
+    }
+}
@@ -0,0 +1,59 @@
+package com.urlshortener.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit тесты для ClickBreakdown
+ */
+class ClickBreakdownTest {
+
+    @Test
+    @DisplayName("Часы дополняются нулём и упорядочены, пустое значение - Unknown, нет группы - пусто")
+    void fromFacets_PadsHoursAndMapsUnknown() {
+        // Given: результат $facet без группы os, как у архивных сегментов
+        Document result = new Document()
+                .append("countries", List.of(bucket("US", 3), bucket(null, 2)))
+                .append("devices", List.of(bucket("DESKTOP", 5)))
+                .append("browsers", List.of())
+                .append("hours", List.of(bucket(14, 1), bucket(7, 3), bucket(0, 1)));
+
+        // When
+        ClickBreakdown breakdown = ClickBreakdown.fromFacets(result);
+
+        // Then
+        assertThat(breakdown.byCountry()).containsOnly(Map.entry("US", 3L), Map.entry("Unknown", 2L));
+        assertThat(breakdown.byDevice()).containsOnly(Map.entry("DESKTOP", 5L));
+        assertThat(breakdown.byBrowser()).isEmpty();
+        assertThat(breakdown.byOs()).isEmpty();
+        assertThat(breakdown.byHour()).containsExactly(
+                Map.entry("00", 1L), Map.entry("07", 3L), Map.entry("14", 1L));
+    }
+
+    @Test
+    @DisplayName("Числовой ключ часа и строковый ключ из агрегатов сводятся в один")
+    void merge_SumsPaddedAndStringHours() {
+        // Given
+        ClickBreakdown fromEvents = ClickBreakdown.fromFacets(new Document("hours", List.of(bucket(9, 2))));
+        ClickBreakdown fromRollups = ClickBreakdown.empty();
+        fromRollups.byHour().put("09", 5L);
+        fromRollups.byOs().put("iOS", 1L);
+
+        // When
+        ClickBreakdown merged = fromEvents.merge(fromRollups);
+
+        // Then
+        assertThat(merged.byHour()).containsOnly(Map.entry("09", 7L));
+        assertThat(merged.byOs()).containsOnly(Map.entry("iOS", 1L));
+    }
+
+    private static Document bucket(Object key, long count) {
+        return new Document("_id", key).append("count", count);
+    }
+}
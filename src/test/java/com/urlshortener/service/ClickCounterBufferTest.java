@@ -0,0 +1,155 @@
+package com.urlshortener.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.urlshortener.entity.ShortUrl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для ClickCounterBuffer
+ */
+@ExtendWith(MockitoExtension.class)
+class ClickCounterBufferTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    private ClickCounterBuffer clickCounterBuffer;
+
+    @BeforeEach
+    void setUp() {
+        clickCounterBuffer = new ClickCounterBuffer(mongoTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Клики по одному коду сбрасываются одной операцией $inc")
+    void flush_CoalescesIncrements() {
+        // Given
+        for (int i = 0; i < 1000; i++) {
+            clickCounterBuffer.increment("abc1234");
+        }
+        clickCounterBuffer.increment("xyz5678");
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        // When
+        StepVerifier.create(clickCounterBuffer.flush()).verifyComplete();
+
+        // Then
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(queries.capture(), updates.capture());
+
+        List<Query> capturedQueries = queries.getAllValues();
+        int hotIndex = capturedQueries.get(0).getQueryObject().get("shortCode").equals("abc1234") ? 0 : 1;
+        assertThat(updates.getAllValues().get(hotIndex).getUpdateObject().toJson()).contains("\"clickCount\": 1000");
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    @DisplayName("Клики не теряются, когда сброс удаляет простаивающие счётчики параллельно с инкрементами")
+    void flush_ConcurrentIncrementsNotLost() throws Exception {
+        // Given: сброс в цикле, пока 4 потока кликают по 1000 кодам (многие коды простаивают между сбросами)
+        AtomicLong flushed = new AtomicLong();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            Document inc = (Document) invocation.<Update>getArgument(1).getUpdateObject().get("$inc");
+            flushed.addAndGet(((Number) inc.get("clickCount")).longValue());
+            return bulkOperations;
+        });
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        int threads = 4;
+        int clicksPerThread = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                clickCounterBuffer.flush().block();
+            }
+        });
+        flusher.start();
+
+        // When
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                for (int i = 0; i < clicksPerThread; i++) {
+                    clickCounterBuffer.increment("code" + ThreadLocalRandom.current().nextInt(1000));
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        running.set(false);
+        flusher.join();
+        clickCounterBuffer.flush().block();
+
+        // Then
+        assertThat(flushed.get()).isEqualTo((long) threads * clicksPerThread);
+    }
+
+    @Test
+    @DisplayName("Пустой буфер не обращается к БД")
+    void flush_NothingPending() {
+        StepVerifier.create(clickCounterBuffer.flush()).verifyComplete();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("При ошибке записи клики остаются в буфере до следующего сброса")
+    void flush_RestoresOnError() {
+        // Given
+        clickCounterBuffer.increment("abc1234");
+        clickCounterBuffer.increment("abc1234");
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortUrl.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute())
+                .thenReturn(Mono.error(new IllegalStateException("connection refused")))
+                .thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        // When
+        StepVerifier.create(clickCounterBuffer.flush()).verifyComplete();
+        StepVerifier.create(clickCounterBuffer.flush()).verifyComplete();
+
+        // Then
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), updates.capture());
+        assertThat(updates.getAllValues().get(1).getUpdateObject().toJson()).contains("\"clickCount\": 2");
+    }
+}
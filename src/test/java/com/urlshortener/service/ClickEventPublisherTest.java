@@ -0,0 +1,181 @@
+package com.urlshortener.service;
+
+import com.urlshortener.messaging.ClickEventMessage;
+import com.urlshortener.messaging.ClickEventMessageConverter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для ClickEventPublisher
+ */
+@ExtendWith(MockitoExtension.class)
+class ClickEventPublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("События отправляются пачками с ожиданием подтверждений")
+    void drain_PublishesInBatches() {
+        // Given
+        ClickEventPublisher publisher = createPublisher(16, ClickEventPublisher.OverflowPolicy.DROP_NEWEST);
+        stubInvoke();
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(click("code" + i));
+        }
+
+        // When
+        publisher.drain();
+
+        // Then - 10 событий при размере пачки 4 = 3 вызова invoke
+        verify(rabbitTemplate, times(3)).invoke(any());
+        verify(rabbitOperations, times(10)).convertAndSend(any(), any(), any(Object.class));
+        verify(rabbitOperations, times(3)).waitForConfirmsOrDie(anyLong());
+        assertThat(meterRegistry.get("clicks.publisher.published").counter().count()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Для подтверждённых событий измеряется возраст от времени клика")
+    void drain_RecordsPublishedAge() {
+        // Given
+        ClickEventPublisher publisher = createPublisher(16, ClickEventPublisher.OverflowPolicy.DROP_NEWEST);
+        stubInvoke();
+        publisher.publish(new ClickEventMessage("abc1234", null, null, null, null, LocalDateTime.now().minusSeconds(2)));
+
+        // When
+        publisher.drain();
+
+        // Then
+        Timer publishedAge = meterRegistry.get("clicks.event.age").tag("stage", "published").timer();
+        assertThat(publishedAge.count()).isEqualTo(1);
+        assertThat(publishedAge.max(TimeUnit.SECONDS)).isBetween(2.0, 10.0);
+    }
+
+    @Test
+    @DisplayName("В формате JSON события отправляются словарём прежнего формата")
+    void drain_PublishesLegacyJson() {
+        // Given
+        ClickEventPublisher publisher = new ClickEventPublisher(rabbitTemplate, meterRegistry, 16,
+                ClickEventPublisher.OverflowPolicy.DROP_NEWEST, 10, 4, Duration.ofMillis(50), Duration.ofSeconds(1),
+                ClickEventPublisher.Format.JSON);
+        stubInvoke();
+        publisher.publish(click("abc1234"));
+
+        // When
+        publisher.drain();
+
+        // Then
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitOperations).convertAndSend(any(), any(), events.capture());
+        assertThat(events.getValue()).asInstanceOf(InstanceOfAssertFactories.MAP)
+                .containsEntry("type", "CLICK")
+                .containsEntry("shortCode", "abc1234")
+                .containsKey("timestamp");
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST вытесняет самые старые события")
+    void publish_DropOldest() {
+        // Given
+        ClickEventPublisher publisher = createPublisher(4, ClickEventPublisher.OverflowPolicy.DROP_OLDEST);
+        stubInvoke();
+        for (int i = 0; i < 6; i++) {
+            publisher.publish(click("code" + i));
+        }
+
+        // When
+        publisher.drain();
+
+        // Then
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitOperations, times(4)).convertAndSend(any(), any(), events.capture());
+        assertThat(shortCode(events.getAllValues().get(0))).isEqualTo("code2");
+        assertThat(meterRegistry.get("clicks.publisher.dropped").tag("reason", "overflow").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("DROP_NEWEST отбрасывает события, не поместившиеся в буфер")
+    void publish_DropNewest() {
+        // Given
+        ClickEventPublisher publisher = createPublisher(4, ClickEventPublisher.OverflowPolicy.DROP_NEWEST);
+        stubInvoke();
+        for (int i = 0; i < 6; i++) {
+            publisher.publish(click("code" + i));
+        }
+
+        // When
+        publisher.drain();
+
+        // Then
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitOperations, times(4)).convertAndSend(any(), any(), events.capture());
+        assertThat(shortCode(events.getAllValues().get(3))).isEqualTo("code3");
+    }
+
+    @Test
+    @DisplayName("При недоступности брокера события возвращаются в буфер")
+    void drain_RequeuesOnFailure() {
+        // Given
+        ClickEventPublisher publisher = createPublisher(16, ClickEventPublisher.OverflowPolicy.DROP_NEWEST);
+        when(rabbitTemplate.invoke(any())).thenThrow(new AmqpException("connection refused"));
+        publisher.publish(click("abc1234"));
+
+        // When
+        publisher.drain();
+
+        // Then
+        assertThat(meterRegistry.get("clicks.publisher.buffer.depth").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("clicks.publisher.failed").counter().count()).isEqualTo(1);
+    }
+
+    private ClickEventPublisher createPublisher(int capacity, ClickEventPublisher.OverflowPolicy policy) {
+        return new ClickEventPublisher(rabbitTemplate, meterRegistry, capacity, policy, 10, 4,
+                Duration.ofMillis(50), Duration.ofSeconds(1), ClickEventPublisher.Format.BINARY);
+    }
+
+    private static ClickEventMessage click(String shortCode) {
+        return new ClickEventMessage(shortCode, null, "127.0.0.1", "Mozilla/5.0", null, LocalDateTime.now());
+    }
+
+    private static String shortCode(Object message) {
+        return ((ClickEventMessage) new ClickEventMessageConverter().fromMessage((Message) message)).shortCode();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubInvoke() {
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<Object>>getArgument(0).doInRabbit(rabbitOperations));
+    }
+}
@@ -0,0 +1,284 @@
+package com.urlshortener.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.urlshortener.entity.ClickEvent;
+import com.urlshortener.entity.ClickRollup;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.MatchOperation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для ClickRollupService
+ */
+@ExtendWith(MockitoExtension.class)
+class ClickRollupServiceTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+
+    private ClickRollupService clickRollupService;
+
+    @BeforeEach
+    void setUp() {
+        clickRollupService = new ClickRollupService(mongoTemplate);
+        ReflectionTestUtils.setField(clickRollupService, "fineRetention", Duration.ofDays(32));
+        ReflectionTestUtils.setField(clickRollupService, "appliedBatches", 64);
+    }
+
+    @Test
+    @DisplayName("Клики одной минуты сводятся в один upsert на каждый интервал")
+    void record_CoalescesBuckets() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2026, 3, 15, 10, 20, 5);
+        List<ClickEvent> events = List.of(
+                ClickEvent.builder().shortCode("abc1234").clickedAt(time).build(),
+                ClickEvent.builder().shortCode("abc1234").clickedAt(time.plusSeconds(30)).build(),
+                ClickEvent.builder().shortCode("abc1234").clickedAt(time.plusMinutes(1)).build());
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        // When
+        StepVerifier.create(clickRollupService.record(events)).verifyComplete();
+
+        // Then - две минуты, один час, одни сутки и итог ссылки
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations, times(5)).upsert(queries.capture(), any(Update.class));
+        Set<Object> ids = queries.getAllValues().stream()
+                .map(query -> query.getQueryObject().get("_id"))
+                .collect(Collectors.toSet());
+        assertThat(ids).containsExactlyInAnyOrder(
+                "abc1234:MINUTE:2026-03-15T10:20",
+                "abc1234:MINUTE:2026-03-15T10:21",
+                "abc1234:HOUR:2026-03-15T10:00",
+                "abc1234:DAY:2026-03-15T00:00",
+                "abc1234:TOTAL");
+    }
+
+    @Test
+    @DisplayName("Итог ссылки увеличивает счётчики стран, устройств, браузеров, ОС и часов")
+    void record_CountsDimensionsInTotal() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2026, 3, 15, 10, 20, 5);
+        List<ClickEvent> events = List.of(
+                ClickEvent.builder().shortCode("abc1234").clickedAt(time)
+                        .country("US").deviceType("DESKTOP").browser("Chrome").os("Windows").build(),
+                ClickEvent.builder().shortCode("abc1234").clickedAt(time.plusMinutes(1))
+                        .country("St. Lucia").deviceType("MOBILE").browser("Chrome").os("iOS").build(),
+                ClickEvent.builder().shortCode("abc1234").clickedAt(time.plusMinutes(2)).build());
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        // When
+        StepVerifier.create(clickRollupService.record(events)).verifyComplete();
+
+        // Then
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(6)).upsert(queries.capture(), updates.capture());
+        Document totalIncrements = null;
+        Document totalMin = null;
+        for (int i = 0; i < queries.getAllValues().size(); i++) {
+            Document update = updates.getAllValues().get(i).getUpdateObject();
+            Document increments = (Document) update.get("$inc");
+            if ("abc1234:TOTAL".equals(queries.getAllValues().get(i).getQueryObject().get("_id"))) {
+                totalIncrements = increments;
+                totalMin = (Document) update.get("$min");
+            } else {
+                assertThat(increments).containsOnlyKeys("count");
+            }
+        }
+        assertThat(totalMin).containsEntry("bucketStart", LocalDateTime.of(2026, 3, 15, 0, 0));
+        String hour = String.format("%02d", ClickSegmentCodec.utcHour(time));
+        assertThat(totalIncrements).containsExactlyInAnyOrderEntriesOf(Map.ofEntries(
+                Map.entry("count", 3L),
+                Map.entry("countries.US", 1L),
+                Map.entry("countries.St\uFF0E Lucia", 1L),
+                Map.entry("countries.Unknown", 1L),
+                Map.entry("devices.DESKTOP", 1L),
+                Map.entry("devices.MOBILE", 1L),
+                Map.entry("devices.Unknown", 1L),
+                Map.entry("browsers.Chrome", 2L),
+                Map.entry("browsers.Unknown", 1L),
+                Map.entry("os.Windows", 1L),
+                Map.entry("os.iOS", 1L),
+                Map.entry("os.Unknown", 1L),
+                Map.entry("hours." + hour, 3L)));
+    }
+
+    @Test
+    @DisplayName("Upsert интервала помечен хешем событий и не применяется повторно с той же меткой")
+    void record_TagsUpsertWithBatchId() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2026, 3, 15, 10, 20, 5);
+        ClickEvent first = ClickEvent.builder().id("e1").shortCode("abc1234").clickedAt(time).build();
+        ClickEvent second = ClickEvent.builder().id("e2").shortCode("abc1234").clickedAt(time).build();
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+
+        // When - та же пачка в другом порядке
+        StepVerifier.create(clickRollupService.record(List.of(first, second))).verifyComplete();
+        StepVerifier.create(clickRollupService.record(List.of(second, first))).verifyComplete();
+
+        // Then
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(8)).upsert(queries.capture(), updates.capture());
+        Set<Object> batches = queries.getAllValues().stream()
+                .map(query -> query.getQueryObject().get("applied", Document.class).get("$ne"))
+                .collect(Collectors.toSet());
+        assertThat(batches).hasSize(1);
+        Update.Modifiers push = (Update.Modifiers) updates.getValue().getUpdateObject().get("$push", Document.class).get("applied");
+        Map<String, Object> modifiers = push.getModifiers().stream()
+                .collect(Collectors.toMap(Update.Modifier::getKey, Update.Modifier::getValue));
+        assertThat((Object[]) modifiers.get("$each")).containsExactlyElementsOf(batches);
+        assertThat(modifiers.get("$slice")).isEqualTo(-64);
+    }
+
+    @Test
+    @DisplayName("Дубликат ключа при upsert - интервал уже учёл пачку, запись завершается без ошибки")
+    void record_SkipsAlreadyAppliedBuckets() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2026, 3, 15, 10, 20, 5);
+        MongoBulkWriteException bulkError = new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(0, 0, 0, 2, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 0)),
+                null, new ServerAddress(), Set.of());
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(new DuplicateKeyException("E11000", bulkError)));
+
+        // When & Then
+        StepVerifier.create(clickRollupService.record(List.of(
+                        ClickEvent.builder().id("e1").shortCode("abc1234").clickedAt(time).build())))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Распределения читаются одним документом - итогом ссылки, имена полей раскодируются")
+    void getBreakdown_ReadsTotal() {
+        // Given
+        ClickRollup total = totalBucket(LocalDateTime.of(2026, 3, 14, 0, 0),
+                Map.of("US", 3L, "St\uFF0E Lucia", 1L), Map.of("09", 4L));
+        when(mongoTemplate.findOne(any(Query.class), eq(ClickRollup.class))).thenReturn(Mono.just(total));
+
+        // When & Then
+        StepVerifier.create(clickRollupService.getBreakdown("abc1234"))
+                .assertNext(counted -> {
+                    assertThat(counted.countedSince()).isEqualTo(LocalDateTime.of(2026, 3, 14, 0, 0));
+                    assertThat(counted.breakdown().byCountry()).containsOnly(
+                            Map.entry("US", 3L), Map.entry("St. Lucia", 1L));
+                    assertThat(counted.breakdown().byHour()).containsOnly(Map.entry("09", 4L));
+                    assertThat(counted.breakdown().byOs()).isEmpty();
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findOne(query.capture(), eq(ClickRollup.class));
+        assertThat(query.getValue().getQueryObject()).containsOnly(Map.entry("_id", "abc1234:TOTAL"));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(ClickRollup.class));
+    }
+
+    @Test
+    @DisplayName("Итог ещё не вёлся - пусто, без начала отсчёта")
+    void getBreakdown_NoTotal() {
+        when(mongoTemplate.findOne(any(Query.class), eq(ClickRollup.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(clickRollupService.getBreakdown("abc1234"))
+                .assertNext(counted -> {
+                    assertThat(counted.countedSince()).isNull();
+                    assertThat(counted.breakdown().byCountry()).isEmpty();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Период раскладывается на минутные, часовые и суточные интервалы")
+    void countSince_SplitsPeriodIntoBuckets() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2026, 3, 8, 22, 45, 30);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ClickRollup.class), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("total", 42L)));
+
+        // When & Then
+        StepVerifier.create(clickRollupService.countSince("abc1234", from))
+                .expectNext(42L)
+                .verifyComplete();
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(ClickRollup.class), eq(Document.class));
+        Document match = ((MatchOperation) aggregation.getValue().getPipeline().getOperations().get(0))
+                .toDocument(Aggregation.DEFAULT_CONTEXT);
+        @SuppressWarnings("unchecked")
+        List<Document> ranges = (List<Document>) ((Document) match.get("$match")).get("$or");
+
+        assertThat(ranges).hasSize(3);
+        assertThat(((Document) ranges.get(0).get("bucketStart")))
+                .containsEntry("$gte", LocalDateTime.of(2026, 3, 8, 22, 45))
+                .containsEntry("$lt", LocalDateTime.of(2026, 3, 8, 23, 0));
+        assertThat(((Document) ranges.get(1).get("bucketStart")))
+                .containsEntry("$gte", LocalDateTime.of(2026, 3, 8, 23, 0))
+                .containsEntry("$lt", LocalDateTime.of(2026, 3, 9, 0, 0));
+        assertThat(((Document) ranges.get(2).get("bucketStart")))
+                .containsEntry("$gte", LocalDateTime.of(2026, 3, 9, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Нет агрегатов за период - ноль")
+    void countSince_NoBuckets() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ClickRollup.class), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(clickRollupService.countSince("abc1234", LocalDateTime.now().minusDays(7)))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    private static ClickRollup totalBucket(LocalDateTime bucketStart, Map<String, Long> countries, Map<String, Long> hours) {
+        ClickRollup rollup = new ClickRollup();
+        rollup.setId(ClickRollup.totalIdOf("abc1234"));
+        rollup.setShortCode("abc1234");
+        rollup.setBucketStart(bucketStart);
+        rollup.setCountries(countries);
+        rollup.setHours(hours);
+        return rollup;
+    }
+}
@@ -0,0 +1,149 @@
+package com.urlshortener.service;
+
+import com.urlshortener.entity.ClickArchiveSegment;
+import com.urlshortener.entity.ClickEvent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit тесты для ClickSegmentCodec
+ */
+class ClickSegmentCodecTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 10, 0, 0);
+    private static final String[] COUNTRIES = {"RU", "DE", "US", null};
+    private static final String[] DEVICES = {"Desktop", "Mobile", "Tablet"};
+    private static final String[] BROWSERS = {"Chrome", "Firefox", "Safari", "Edge"};
+
+    @Test
+    @DisplayName("Декодирование восстанавливает все поля событий, кроме IP и User-Agent")
+    void decode_RestoresEvents() {
+        // Given
+        List<ClickEvent> events = events(1_000);
+        ClickSegmentCodec.Encoder encoder = new ClickSegmentCodec.Encoder("abc123", DAY);
+        events.forEach(encoder::add);
+
+        // When
+        List<ClickEvent> decoded = ClickSegmentCodec.decode(encoder.toSegment());
+
+        // Then
+        assertThat(decoded).hasSize(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            ClickEvent expected = events.get(i);
+            ClickEvent actual = decoded.get(i);
+            assertThat(actual.getShortCode()).isEqualTo("abc123");
+            assertThat(actual.getShortUrlId()).isEqualTo(expected.getShortUrlId());
+            assertThat(actual.getCountry()).isEqualTo(expected.getCountry());
+            assertThat(actual.getCity()).isEqualTo(expected.getCity());
+            assertThat(actual.getDeviceType()).isEqualTo(expected.getDeviceType());
+            assertThat(actual.getBrowser()).isEqualTo(expected.getBrowser());
+            assertThat(actual.getOs()).isEqualTo(expected.getOs());
+            assertThat(actual.getReferer()).isEqualTo(expected.getReferer());
+            assertThat(actual.getClickedAt()).isEqualTo(expected.getClickedAt());
+            assertThat(actual.getIpAddress()).isNull();
+            assertThat(actual.getUserAgent()).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("Сводки сегмента совпадают с подсчётом по исходным событиям")
+    void toSegment_PrecomputesSummaries() {
+        // Given
+        List<ClickEvent> events = events(500);
+        ClickSegmentCodec.Encoder encoder = new ClickSegmentCodec.Encoder("abc123", DAY);
+        events.forEach(encoder::add);
+
+        // When
+        ClickArchiveSegment segment = encoder.toSegment();
+
+        // Then
+        assertThat(segment.getCount()).isEqualTo(500);
+        assertThat(segment.getFirstClickAt()).isEqualTo(events.get(0).getClickedAt());
+        assertThat(segment.getLastClickAt()).isEqualTo(events.get(499).getClickedAt());
+        assertThat(segment.getId()).isEqualTo("abc123:" + events.get(0).getClickedAt());
+        assertThat(segment.getBrowsers().stream().mapToLong(ClickArchiveSegment.Count::getCount).sum()).isEqualTo(500);
+        assertThat(segment.getCountries())
+                .filteredOn(count -> count.getValue() == null)
+                .singleElement()
+                .extracting(ClickArchiveSegment.Count::getCount)
+                .isEqualTo(events.stream().filter(event -> event.getCountry() == null).count());
+        assertThat(segment.getDevices().stream()
+                .collect(Collectors.toMap(ClickArchiveSegment.Count::getValue, ClickArchiveSegment.Count::getCount)))
+                .isEqualTo(events.stream()
+                        .collect(Collectors.groupingBy(ClickEvent::getDeviceType, Collectors.counting())));
+    }
+
+    @Test
+    @DisplayName("Сегмент в разы компактнее документов исходных событий")
+    void toSegment_IsCompact() {
+        // Given
+        List<ClickEvent> events = events(10_000);
+        ClickSegmentCodec.Encoder encoder = new ClickSegmentCodec.Encoder("abc123", DAY);
+        events.forEach(encoder::add);
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        long documentSize = events.stream()
+                .mapToLong(event -> {
+                    Document document = new Document();
+                    converter.write(event, document);
+                    return document.toJson().length();
+                })
+                .sum();
+
+        // When
+        ClickArchiveSegment segment = encoder.toSegment();
+
+        // Then
+        assertThat((long) segment.getColumns().length).isLessThan(documentSize / 20);
+    }
+
+    @Test
+    @DisplayName("События не по возрастанию времени отклоняются")
+    void add_RejectsOutOfOrderEvents() {
+        ClickSegmentCodec.Encoder encoder = new ClickSegmentCodec.Encoder("abc123", DAY);
+        encoder.add(ClickEvent.builder().shortCode("abc123").clickedAt(DAY.plusHours(2)).build());
+
+        assertThatThrownBy(() -> encoder.add(ClickEvent.builder().shortCode("abc123").clickedAt(DAY.plusHours(1)).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<ClickEvent> events(int count) {
+        List<ClickEvent> events = new ArrayList<>(count);
+        long step = 86_400_000L / count;
+        for (int i = 0; i < count; i++) {
+            events.add(ClickEvent.builder()
+                    .id(new ObjectId().toHexString())
+                    .shortCode("abc123")
+                    .shortUrlId("65f1c0a2e4b0a1b2c3d4e5f6")
+                    .ipAddress("203.0.113." + (i % 250))
+                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/120.0." + (i % 40) + " Safari/537.36")
+                    .referer(i % 3 == 0 ? null : "https://news.example.com/post/" + (i % 17))
+                    .country(COUNTRIES[i % COUNTRIES.length])
+                    .city(COUNTRIES[i % COUNTRIES.length] == null ? null : "City" + (i % 7))
+                    .deviceType(DEVICES[i % DEVICES.length])
+                    .browser(BROWSERS[i % BROWSERS.length])
+                    .os(i % 2 == 0 ? "Windows" : "Android")
+                    .clickedAt(DAY.plusNanos((i * step + i % 13) * 1_000_000L))
+                    .build());
+        }
+        return events;
+    }
+}
@@ -0,0 +1,93 @@
+package com.urlshortener.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.urlshortener.entity.ShortUrl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для ExpiredUrlSweeper
+ */
+@ExtendWith(MockitoExtension.class)
+class ExpiredUrlSweeperTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ShortUrlService shortUrlService;
+
+    private ExpiredUrlSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new ExpiredUrlSweeper(mongoTemplate, shortUrlService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        ReflectionTestUtils.setField(sweeper, "batchPause", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 10);
+    }
+
+    @Test
+    @DisplayName("Истёкшие ссылки деактивируются пачками до первой неполной и удаляются из кэшей")
+    void deactivateExpired_ProcessesBatchesUntilPartial() {
+        // Given
+        when(mongoTemplate.find(any(Query.class), eq(ShortUrl.class)))
+                .thenReturn(Flux.just(expired("aaa1111"), expired("bbb2222")))
+                .thenReturn(Flux.just(expired("ccc3333")));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(ShortUrl.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(shortUrlService.evictFromCache(any())).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(sweeper.deactivateExpired(LocalDateTime.now()))
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(ShortUrl.class));
+        verify(shortUrlService).evictFromCache(List.of("aaa1111", "bbb2222"));
+        verify(shortUrlService).evictFromCache(List.of("ccc3333"));
+    }
+
+    @Test
+    @DisplayName("За один запуск обрабатывается не больше max-batches пачек")
+    void deactivateExpired_StopsAtMaxBatches() {
+        // Given
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 3);
+        when(mongoTemplate.find(any(Query.class), eq(ShortUrl.class)))
+                .thenAnswer(invocation -> Flux.just(expired("aaa1111"), expired("bbb2222")));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(ShortUrl.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(2, 2L, null)));
+        when(shortUrlService.evictFromCache(any())).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(sweeper.deactivateExpired(LocalDateTime.now()))
+                .expectNext(6L)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(3)).updateMulti(any(Query.class), any(Update.class), eq(ShortUrl.class));
+    }
+
+    private static ShortUrl expired(String shortCode) {
+        return ShortUrl.builder().shortCode(shortCode).build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.cache.LocalUrlCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit тесты для HotKeyTracker
+ */
+class HotKeyTrackerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocalUrlCache localUrlCache;
+    private HotKeyTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        localUrlCache = new LocalUrlCache(meterRegistry, 10, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        tracker = new HotKeyTracker(localUrlCache, meterRegistry, true, 3, 1, 1024, 65536, Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("Горячие коды находятся среди длинного хвоста редких и публикуются в метрике")
+    void refresh_FindsHeavyHitters() {
+        // Given: три горячих кода вперемешку с 20000 кодами по одному переходу
+        for (int i = 0; i < 20_000; i++) {
+            tracker.record("cold" + i);
+            if (i % 10 == 0) {
+                tracker.record("hot1");
+            }
+            if (i % 20 == 0) {
+                tracker.record("hot2");
+            }
+            if (i % 40 == 0) {
+                tracker.record("hot3");
+            }
+        }
+
+        // When
+        tracker.refresh();
+
+        // Then
+        assertThat(tracker.hotKeys()).extracting(HotKeyTracker.HotKey::shortCode)
+                .containsExactly("hot1", "hot2", "hot3");
+        assertThat(tracker.hotKeys().get(0).hits()).isBetween(2000L, 2100L);
+        assertThat(tracker.estimate("hot2")).isGreaterThanOrEqualTo(1000L);
+        assertThat(meterRegistry.get("url.hotkeys.hits").tag("shortCode", "hot1").gauge().value())
+                .isEqualTo(tracker.hotKeys().get(0).hits());
+    }
+
+    @Test
+    @DisplayName("Горячий код закрепляется в локальном кэше и не вытесняется потоком редких")
+    void refresh_PinsHotKeysInLocalCache() {
+        // Given
+        localUrlCache.put("hot1", redirect());
+        for (int i = 0; i < 100; i++) {
+            tracker.record("hot1");
+        }
+        tracker.refresh();
+
+        // When: в кэш на 10 записей попадает 1000 других кодов
+        for (int i = 0; i < 1000; i++) {
+            localUrlCache.put("cold" + i, redirect());
+        }
+
+        // Then
+        assertThat(localUrlCache.get("hot1")).isNotNull();
+    }
+
+    private static CachedRedirect redirect() {
+        return new CachedRedirect(HttpStatus.FOUND, "https://example.com", "no-store",
+                "Wed, 1 Jan 2025 00:00:00 GMT", "\"302\"", CachedRedirect.NEVER);
+    }
+}
@@ -0,0 +1,107 @@
+package com.urlshortener.service;
+
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.entity.ShortUrl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit тесты для RedirectPolicy
+ */
+class RedirectPolicyTest {
+
+    private final RedirectPolicy policy = new RedirectPolicy(302, Duration.ZERO, Duration.ofMinutes(10));
+
+    @Test
+    @DisplayName("Глобальный код по умолчанию, CDN кэширует, браузер - нет; Location кодируется один раз")
+    void redirectFor_DefaultPolicy() {
+        // Given
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+        ShortUrl shortUrl = shortUrl("https://example.com/путь?q=1", now.plusDays(30), null);
+
+        // When
+        CachedRedirect redirect = policy.redirectFor(shortUrl, millis(now));
+
+        // Then
+        assertThat(redirect.status()).isEqualTo(HttpStatus.FOUND);
+        assertThat(redirect.location()).isEqualTo("https://example.com/%D0%BF%D1%83%D1%82%D1%8C?q=1");
+        assertThat(redirect.cacheControl()).isEqualTo("public, max-age=0, s-maxage=600");
+        assertThat(redirect.etag()).startsWith("\"302-");
+        assertThat(redirect.expiresAt()).isEqualTo(millis(now.plusDays(30)));
+    }
+
+    @Test
+    @DisplayName("Код ссылки важнее глобального, сроки кэширования не выходят за срок действия ссылки")
+    void redirectFor_PerLinkStatusAndExpiryBound() {
+        // Given
+        RedirectPolicy cacheable = new RedirectPolicy(302, Duration.ofHours(1), Duration.ofHours(1));
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+        ShortUrl shortUrl = shortUrl("https://example.com", now.plusSeconds(90), 301);
+
+        // When
+        CachedRedirect redirect = cacheable.redirectFor(shortUrl, millis(now));
+
+        // Then
+        assertThat(redirect.status()).isEqualTo(HttpStatus.MOVED_PERMANENTLY);
+        assertThat(redirect.cacheControl()).isEqualTo("public, max-age=90, s-maxage=90");
+        assertThat(redirect.expires()).isEqualTo("Wed, 1 Jan 2025 00:01:30 GMT");
+        assertThat(redirect.etag()).isNotEqualTo(cacheable.redirectFor(
+                shortUrl("https://example.com", now.plusSeconds(90), 308), millis(now)).etag());
+    }
+
+    @Test
+    @DisplayName("Без сроков кэширования - no-store, иначе браузер кэширует 301 бессрочно")
+    void redirectFor_NoStoreWithoutMaxAge() {
+        RedirectPolicy noCache = new RedirectPolicy(301, Duration.ZERO, Duration.ZERO);
+
+        CachedRedirect redirect = noCache.redirectFor(shortUrl("https://example.com", null, null), 0);
+
+        assertThat(redirect.cacheControl()).isEqualTo("no-store");
+        assertThat(redirect.expiresAt()).isEqualTo(CachedRedirect.NEVER);
+    }
+
+    @Test
+    @DisplayName("Кэши сервиса держат ответ не дольше срока ссылки за вычетом большего из max-age и s-maxage")
+    void cacheableUntil_LeavesRoomForDownstreamCaches() {
+        // Given
+        RedirectPolicy browserCached = new RedirectPolicy(302, Duration.ofMinutes(30), Duration.ofMinutes(10));
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+        CachedRedirect expiring = policy.redirectFor(shortUrl("https://example.com", now.plusDays(1), null), millis(now));
+        CachedRedirect permanent = policy.redirectFor(shortUrl("https://example.com", null, null), millis(now));
+
+        // When & Then
+        assertThat(policy.cacheableUntil(expiring)).isEqualTo(millis(now.plusDays(1).minusMinutes(10)));
+        assertThat(browserCached.cacheableUntil(expiring)).isEqualTo(millis(now.plusDays(1).minusMinutes(30)));
+        assertThat(policy.cacheableUntil(permanent)).isEqualTo(CachedRedirect.NEVER);
+    }
+
+    @Test
+    @DisplayName("Поддерживаются только коды 301, 302, 307 и 308")
+    void isSupported() {
+        assertThat(RedirectPolicy.isSupported(307)).isTrue();
+        assertThat(RedirectPolicy.isSupported(303)).isFalse();
+        assertThatThrownBy(() -> new RedirectPolicy(200, Duration.ZERO, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ShortUrl shortUrl(String originalUrl, LocalDateTime expiresAt, Integer redirectStatus) {
+        return ShortUrl.builder()
+                .shortCode("abc1234")
+                .originalUrl(originalUrl)
+                .expiresAt(expiresAt)
+                .redirectStatus(redirectStatus)
+                .build();
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
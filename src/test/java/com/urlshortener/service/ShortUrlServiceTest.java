@@ -1,26 +1,48 @@
 package com.urlshortener.service;
 
+import com.urlshortener.cache.CacheInvalidationBus;
+import com.urlshortener.cache.CachedRedirect;
+import com.urlshortener.cache.LocalUrlCache;
+import com.urlshortener.cache.ShortCodeFilter;
+import com.urlshortener.cdn.CdnPurgeClient;
 import com.urlshortener.dto.CreateShortUrlRequest;
 import com.urlshortener.dto.ShortUrlResponse;
 import com.urlshortener.entity.ShortUrl;
+import com.urlshortener.exception.BusinessException;
 import com.urlshortener.exception.ResourceNotFoundException;
 import com.urlshortener.repository.ShortUrlRepository;
+import com.urlshortener.shortcode.ShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -41,15 +63,50 @@ class ShortUrlServiceTest {
     @Mock
     private RabbitMQService rabbitMQService;
 
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Mock
+    private ClickCounterBuffer clickCounterBuffer;
+
+    @Mock
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Mock
+    private CdnPurgeClient cdnPurgeClient;
+
+    @Mock
+    private HotKeyTracker hotKeyTracker;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LocalUrlCache localUrlCache;
+
+    private ShortCodeFilter shortCodeFilter;
+
     private ShortUrlService shortUrlService;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        localUrlCache = new LocalUrlCache(meterRegistry, 100, Duration.ofMinutes(1), Duration.ofSeconds(30));
+        shortCodeFilter = new ShortCodeFilter(null, new SimpleMeterRegistry(), true, 1000, 0.01);
         shortUrlService = new ShortUrlService(
                 shortUrlRepository,
                 redisTemplate,
-                rabbitMQService
+                rabbitMQService,
+                localUrlCache,
+                cacheInvalidationBus,
+                clickCounterBuffer,
+                shortCodeGenerator,
+                shortCodeFilter,
+                new RedirectPolicy(302, Duration.ZERO, Duration.ofMinutes(10)),
+                cdnPurgeClient,
+                hotKeyTracker,
+                meterRegistry
         );
+        ReflectionTestUtils.setField(shortUrlService, "localTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(shortUrlService, "negativeTtl", Duration.ofSeconds(30));
     }
 
     @Test
@@ -70,10 +127,11 @@ class ShortUrlServiceTest {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        when(shortUrlRepository.existsByShortCode(anyString())).thenReturn(Mono.just(false));
+        when(shortCodeGenerator.nextCode()).thenReturn(Mono.just("abc1234"));
         when(shortUrlRepository.save(any(ShortUrl.class))).thenReturn(Mono.just(savedUrl));
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(cacheInvalidationBus.publish("abc1234")).thenReturn(Mono.empty());
         doNothing().when(rabbitMQService).sendUrlCreatedEvent(any(ShortUrl.class));
 
         // When & Then
@@ -84,29 +142,183 @@ class ShortUrlServiceTest {
                 .verifyComplete();
 
         verify(shortUrlRepository).save(any(ShortUrl.class));
+        // Ответ возвращается после записи в кэш и рассылки кода по инстансам
+        verify(valueOperations).set(eq("url:abc1234"),
+                argThat(value -> value.startsWith("v2|302|") && value.endsWith("|https://example.com/very/long/url")),
+                any(Duration.class));
+        verify(cacheInvalidationBus).publish("abc1234");
+    }
+
+    @Test
+    @DisplayName("Создание короткой ссылки - ошибка записи в Redis не отменяет рассылку кода")
+    void createShortUrl_PublishesWhenCacheWriteFails() {
+        // Given
+        CreateShortUrlRequest request = new CreateShortUrlRequest();
+        request.setOriginalUrl("https://example.com");
+        ShortUrl savedUrl = createdUrl();
+
+        when(shortCodeGenerator.nextCode()).thenReturn(Mono.just("abc1234"));
+        when(shortUrlRepository.save(any(ShortUrl.class))).thenReturn(Mono.just(savedUrl));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.set(anyString(), anyString(), any(Duration.class)))
+                .thenReturn(Mono.error(new IllegalStateException("redis timeout")));
+        when(cacheInvalidationBus.publish("abc1234")).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(shortUrlService.createShortUrl(request, "user1"))
+                .expectNextMatches(response -> response.getShortCode().equals("abc1234"))
+                .verifyComplete();
+
+        verify(cacheInvalidationBus).publish("abc1234");
+        verify(rabbitMQService).sendUrlCreatedEvent(savedUrl);
+    }
+
+    @Test
+    @DisplayName("Рассылка нового кода - URL, который не разбирает URI.create, приходит ошибкой кэширования, а не исключением")
+    void announceCreated_UnparsableUrlFailsReactively() {
+        // Given
+        ShortUrl savedUrl = createdUrl();
+        savedUrl.setOriginalUrl("https://example.com/a b");
+        when(cacheInvalidationBus.publish("abc1234")).thenReturn(Mono.empty());
+
+        // When
+        Mono<Boolean> cached = shortUrlService.cacheUrl(savedUrl);
+        Mono<Void> announced = shortUrlService.announceCreated(savedUrl);
+
+        // Then
+        StepVerifier.create(cached)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(announced)
+                .verifyComplete();
+        verify(cacheInvalidationBus).publish("abc1234");
+        verify(redisTemplate, never()).opsForValue();
     }
 
     @Test
-    @DisplayName("Получение оригинального URL из кэша")
-    void getOriginalUrl_FromCache() {
+    @DisplayName("Создание короткой ссылки - код не разослан после повторов: ссылка удаляется, создание завершается ошибкой")
+    void createShortUrl_FailsWhenPublishFails() {
+        // Given
+        CreateShortUrlRequest request = new CreateShortUrlRequest();
+        request.setOriginalUrl("https://example.com");
+        ShortUrl savedUrl = createdUrl();
+
+        when(shortCodeGenerator.nextCode()).thenReturn(Mono.just("abc1234"));
+        when(shortUrlRepository.save(any(ShortUrl.class))).thenReturn(Mono.just(savedUrl));
+        when(shortUrlRepository.deleteById("123")).thenReturn(Mono.empty());
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(cacheInvalidationBus.publish("abc1234")).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.createShortUrl(request, "user1"))
+                .expectErrorMessage("connection refused")
+                .verify();
+
+        verify(cacheInvalidationBus, times(3)).publish("abc1234");
+        verify(shortUrlRepository).deleteById("123");
+        verify(rabbitMQService, never()).sendUrlCreatedEvent(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("Создание короткой ссылки - занятый алиас")
+    void createShortUrl_AliasTaken() {
+        // Given
+        CreateShortUrlRequest request = new CreateShortUrlRequest();
+        request.setOriginalUrl("https://example.com");
+        request.setCustomAlias("promo");
+
+        when(shortUrlRepository.save(any(ShortUrl.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key")));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.createShortUrl(request, "user1"))
+                .expectErrorMatches(error -> error instanceof BusinessException &&
+                        error.getMessage().contains("Алиас уже занят"))
+                .verify();
+
+        verifyNoInteractions(shortCodeGenerator);
+    }
+
+    @Test
+    @DisplayName("Создание короткой ссылки - повтор при коллизии сгенерированного кода")
+    void createShortUrl_RetriesOnGeneratedCollision() {
+        // Given
+        CreateShortUrlRequest request = new CreateShortUrlRequest();
+        request.setOriginalUrl("https://example.com");
+
+        ShortUrl savedUrl = ShortUrl.builder()
+                .shortCode("xyz9876")
+                .originalUrl("https://example.com")
+                .userId("user1")
+                .build();
+
+        when(shortCodeGenerator.nextCode())
+                .thenReturn(Mono.just("abc1234"))
+                .thenReturn(Mono.just("xyz9876"));
+        when(shortUrlRepository.save(any(ShortUrl.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key")))
+                .thenReturn(Mono.just(savedUrl));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(cacheInvalidationBus.publish("xyz9876")).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(shortUrlService.createShortUrl(request, "user1"))
+                .expectNextMatches(response -> response.getShortCode().equals("xyz9876"))
+                .verifyComplete();
+
+        verify(shortUrlRepository, times(2)).save(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("Получение готового редиректа из Redis")
+    void getRedirect_FromCache() {
         // Given
         String shortCode = "abc1234";
         String originalUrl = "https://example.com";
+        CachedRedirect cached = new CachedRedirect(HttpStatus.TEMPORARY_REDIRECT, originalUrl,
+                "public, max-age=0, s-maxage=600", "Wed, 1 Jan 2025 00:00:00 GMT", "\"307-1-2\"", CachedRedirect.NEVER);
         
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get("url:" + shortCode)).thenReturn(Mono.just(originalUrl));
+        when(valueOperations.get("url:" + shortCode)).thenReturn(Mono.just(cached.encode()));
         // Мок для репозитория на случай если кэш пустой (не должен вызываться)
         when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.empty());
 
         // When & Then
-        StepVerifier.create(shortUrlService.getOriginalUrl(shortCode))
-                .expectNext(originalUrl)
+        StepVerifier.create(shortUrlService.getRedirect(shortCode))
+                .expectNext(cached)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Значение Redis в прежнем формате перечитывается из БД и перезаписывается")
+    void getRedirect_PreviousFormatReloaded() {
+        // Given
+        String shortCode = "abc1234";
+        ShortUrl shortUrl = ShortUrl.builder()
+                .shortCode(shortCode)
+                .originalUrl("https://example.com")
+                .active(true)
+                .expiresAt(LocalDateTime.now().plusDays(30))
+                .redirectStatus(301)
+                .build();
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("url:" + shortCode)).thenReturn(Mono.just("https://example.com"));
+        when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.just(shortUrl));
+        when(valueOperations.set(eq("url:" + shortCode), startsWith("v2|301|"), any(Duration.class)))
+                .thenReturn(Mono.just(true));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getRedirect(shortCode).map(CachedRedirect::status))
+                .expectNext(HttpStatus.MOVED_PERMANENTLY)
                 .verifyComplete();
     }
 
     @Test
     @DisplayName("Получение оригинального URL из БД при отсутствии в кэше")
-    void getOriginalUrl_FromDatabase() {
+    void getRedirect_FromDatabase() {
         // Given
         String shortCode = "abc1234";
         ShortUrl shortUrl = ShortUrl.builder()
@@ -122,7 +334,7 @@ class ShortUrlServiceTest {
         when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
 
         // When & Then
-        StepVerifier.create(shortUrlService.getOriginalUrl(shortCode))
+        StepVerifier.create(shortUrlService.getRedirect(shortCode).map(CachedRedirect::location))
                 .expectNext("https://example.com")
                 .verifyComplete();
 
@@ -130,19 +342,131 @@ class ShortUrlServiceTest {
     }
 
     @Test
-    @DisplayName("Ошибка при получении несуществующей ссылки")
-    void getOriginalUrl_NotFound() {
+    @DisplayName("Одновременные промахи по одному коду выполняют одну загрузку")
+    void getRedirect_CoalescesConcurrentMisses() {
+        // Given
+        String shortCode = "abc1234";
+        Sinks.One<String> redisResponse = Sinks.one();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("url:" + shortCode)).thenReturn(redisResponse.asMono());
+        when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.empty());
+
+        // When: три запроса подписываются до ответа Redis
+        Mono<List<String>> requests = Flux.range(0, 3)
+                .flatMap(i -> shortUrlService.getRedirect(shortCode).map(CachedRedirect::location))
+                .collectList();
+
+        // Then
+        StepVerifier.create(requests)
+                .then(() -> redisResponse.tryEmitValue(new CachedRedirect(HttpStatus.FOUND, "https://example.com",
+                        "no-store", "Wed, 1 Jan 2025 00:00:00 GMT", "\"302-1-2\"", CachedRedirect.NEVER).encode()))
+                .expectNext(List.of("https://example.com", "https://example.com", "https://example.com"))
+                .verifyComplete();
+
+        verify(valueOperations, times(1)).get("url:" + shortCode);
+        assertThat(meterRegistry.counter("url.redirect.coalesced").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Получение оригинального URL из локального кэша без обращения к Redis")
+    void getRedirect_FromLocalCache() {
+        // Given
+        String shortCode = "abc1234";
+        localUrlCache.put(shortCode, new CachedRedirect(HttpStatus.FOUND, "https://example.com",
+                "no-store", "Wed, 1 Jan 2025 00:00:00 GMT", "\"302-1-2\"", CachedRedirect.NEVER));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getRedirect(shortCode).map(CachedRedirect::location))
+                .expectNext("https://example.com")
+                .verifyComplete();
+
+        verifyNoInteractions(redisTemplate, shortUrlRepository);
+    }
+
+    @Test
+    @DisplayName("Ошибка при получении несуществующей ссылки - промах запоминается надгробием")
+    void getRedirect_NotFound() {
         // Given
         String shortCode = "notexist";
         
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         when(valueOperations.get("url:" + shortCode)).thenReturn(Mono.empty());
         when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.empty());
+        when(valueOperations.set("url:" + shortCode, "!not-found", Duration.ofSeconds(30))).thenReturn(Mono.just(true));
 
         // When & Then
-        StepVerifier.create(shortUrlService.getOriginalUrl(shortCode))
+        StepVerifier.create(shortUrlService.getRedirect(shortCode).map(CachedRedirect::location))
                 .expectError(ResourceNotFoundException.class)
                 .verify();
+        // Повторный запрос отклоняется из L1 без обращения к Redis и MongoDB
+        StepVerifier.create(shortUrlService.getRedirect(shortCode).map(CachedRedirect::location))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        verify(shortUrlRepository, times(1)).findByShortCode(shortCode);
+        verify(valueOperations, times(1)).get("url:" + shortCode);
+    }
+
+    @Test
+    @DisplayName("Надгробие деактивированной ссылки из Redis - ошибка без обращения к БД")
+    void getRedirect_InactiveTombstoneFromRedis() {
+        // Given
+        String shortCode = "abc1234";
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("url:" + shortCode)).thenReturn(Mono.just("!inactive"));
+        when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getRedirect(shortCode).map(CachedRedirect::location))
+                .expectError(BusinessException.class)
+                .verify();
+
+        assertThat(localUrlCache.get(shortCode)).isEqualTo(CachedRedirect.tombstone("!inactive"));
+    }
+
+    @Test
+    @DisplayName("Ссылка, истёкшая после кэширования, не отдаётся из L1")
+    void getRedirect_ExpiredInLocalCache() {
+        // Given
+        String shortCode = "abc1234";
+        localUrlCache.put(shortCode, new CachedRedirect(HttpStatus.MOVED_PERMANENTLY, "https://example.com",
+                "private, max-age=60", "Wed, 1 Jan 2025 00:00:00 GMT", "\"301-1-2\"", System.currentTimeMillis() - 1));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getRedirect(shortCode))
+                .expectError(BusinessException.class)
+                .verify();
+
+        verifyNoInteractions(redisTemplate, shortUrlRepository);
+    }
+
+    @Test
+    @DisplayName("Код, отсутствующий в построенном фильтре, отклоняется без обращения к хранилищам")
+    void getRedirect_RejectedByFilter() {
+        // Given
+        ShortCodeFilter filter = mock(ShortCodeFilter.class);
+        when(filter.mightContain("notexist")).thenReturn(false);
+        ReflectionTestUtils.setField(shortUrlService, "shortCodeFilter", filter);
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getRedirect("notexist"))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        verifyNoInteractions(redisTemplate, shortUrlRepository);
+    }
+
+    @Test
+    @DisplayName("Регистрация клика - без обращения к БД")
+    void recordClick_BuffersCounter() {
+        // When & Then
+        StepVerifier.create(shortUrlService.recordClick("abc1234", "127.0.0.1", "Mozilla/5.0", null))
+                .verifyComplete();
+
+        verify(clickCounterBuffer).increment("abc1234");
+        verify(hotKeyTracker).record("abc1234");
+        verify(rabbitMQService).sendClickEvent("abc1234", null, "127.0.0.1", "Mozilla/5.0", null);
+        verifyNoInteractions(shortUrlRepository);
     }
 
     @Test
@@ -169,11 +493,233 @@ class ShortUrlServiceTest {
         when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.just(shortUrl));
         when(shortUrlRepository.save(any(ShortUrl.class))).thenReturn(Mono.just(deactivatedUrl));
         when(redisTemplate.delete("url:" + shortCode)).thenReturn(Mono.just(1L));
+        when(cacheInvalidationBus.publish(shortCode)).thenReturn(Mono.empty());
+        when(cdnPurgeClient.purge(shortCode)).thenReturn(Mono.empty());
 
         // When & Then
         StepVerifier.create(shortUrlService.deactivateUrl(shortCode, userId))
                 .verifyComplete();
 
         verify(shortUrlRepository).save(any(ShortUrl.class));
+        verify(cacheInvalidationBus).publish(shortCode);
+        verify(cdnPurgeClient).purge(shortCode);
+    }
+
+    @Test
+    @DisplayName("Деактивация ссылки - инвалидация и очистка CDN только после удаления ключа из Redis")
+    void deactivateUrl_BroadcastsAfterRedisDelete() {
+        // Given: DEL в Redis ещё не завершён
+        String shortCode = "abc1234";
+        ShortUrl shortUrl = ShortUrl.builder()
+                .id("123")
+                .shortCode(shortCode)
+                .userId("user1")
+                .active(true)
+                .build();
+        Sinks.One<Long> delete = Sinks.one();
+
+        when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.just(shortUrl));
+        when(shortUrlRepository.save(any(ShortUrl.class))).thenReturn(Mono.just(shortUrl));
+        when(redisTemplate.delete("url:" + shortCode)).thenReturn(delete.asMono());
+        when(cacheInvalidationBus.publish(shortCode)).thenReturn(Mono.empty());
+        when(cdnPurgeClient.purge(shortCode)).thenReturn(Mono.empty());
+
+        // When
+        StepVerifier.create(shortUrlService.deactivateUrl(shortCode, "user1")).verifyComplete();
+
+        // Then
+        verify(cacheInvalidationBus, never()).publish(shortCode);
+        verify(cdnPurgeClient, never()).purge(shortCode);
+
+        delete.tryEmitValue(1L);
+        InOrder inOrder = inOrder(redisTemplate, cacheInvalidationBus, cdnPurgeClient);
+        inOrder.verify(redisTemplate).delete("url:" + shortCode);
+        inOrder.verify(cacheInvalidationBus).publish(shortCode);
+        inOrder.verify(cdnPurgeClient).purge(shortCode);
+    }
+
+    @Test
+    @DisplayName("Ссылки пользователя - следующая страница запрашивается по курсору")
+    void getUserUrls_KeysetPagination() {
+        // Given
+        ReflectionTestUtils.setField(shortUrlService, "maxPageSize", 1000);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 10, 12, 0, 0, 123_000_000);
+        ShortUrl newest = userUrl("65f1c0a2e4b0a1b2c3d4e5f3", "new1234", createdAt.plusMinutes(1));
+        ShortUrl middle = userUrl("65f1c0a2e4b0a1b2c3d4e5f2", "mid1234", createdAt);
+        ShortUrl oldest = userUrl("65f1c0a2e4b0a1b2c3d4e5f1", "old1234", createdAt);
+        oldest.setRedirectStatus(301);
+
+        // Репозиторий отдаёт только поля из USER_PAGE_FIELDS, как проекция в MongoDB
+        when(shortUrlRepository.findUserPage("user1", PageRequest.of(0, 3)))
+                .thenReturn(Flux.just(newest, middle, oldest).map(ShortUrlServiceTest::projected));
+        when(shortUrlRepository.findUserPageAfter("user1", createdAt, new ObjectId(middle.getId()), PageRequest.of(0, 3)))
+                .thenReturn(Flux.just(oldest).map(ShortUrlServiceTest::projected));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getUserUrls("user1", null, 2)
+                        .flatMap(page -> {
+                            assertThat(page.items()).extracting(ShortUrlResponse::getShortCode)
+                                    .containsExactly("new1234", "mid1234");
+                            assertThat(page.nextCursor()).isNotNull();
+                            return shortUrlService.getUserUrls("user1", page.nextCursor(), 2);
+                        }))
+                .assertNext(page -> {
+                    assertThat(page.items()).extracting(ShortUrlResponse::getShortCode).containsExactly("old1234");
+                    assertThat(page.items()).extracting(ShortUrlResponse::getRedirectStatus).containsExactly(301);
+                    assertThat(page.items()).extracting(ShortUrlResponse::getOriginalUrl)
+                            .containsExactly("https://example.com/old1234");
+                    assertThat(page.nextCursor()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Ссылки пользователя - некорректный курсор и размер страницы")
+    void getUserUrls_InvalidArguments() {
+        ReflectionTestUtils.setField(shortUrlService, "maxPageSize", 1000);
+
+        StepVerifier.create(shortUrlService.getUserUrls("user1", "not-a-cursor", 10))
+                .expectError(BusinessException.class)
+                .verify();
+        StepVerifier.create(shortUrlService.getUserUrls("user1", null, 5000))
+                .expectError(BusinessException.class)
+                .verify();
+        verifyNoInteractions(shortUrlRepository);
+    }
+
+    @Test
+    @DisplayName("Потоковая выдача ссылок пользователя проходит все страницы, включая ссылки без даты создания")
+    void streamUserUrls_WalksAllPages() {
+        // Given
+        ReflectionTestUtils.setField(shortUrlService, "streamPageSize", 1);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 10, 12, 0);
+        ShortUrl dated = userUrl("65f1c0a2e4b0a1b2c3d4e5f3", "new1234", createdAt);
+        ShortUrl undated = userUrl("65f1c0a2e4b0a1b2c3d4e5f2", "old1234", null);
+        ShortUrl undatedOldest = userUrl("65f1c0a2e4b0a1b2c3d4e5f1", "old5678", null);
+
+        when(shortUrlRepository.findUserPage("user1", PageRequest.of(0, 2)))
+                .thenReturn(Flux.just(dated, undated));
+        when(shortUrlRepository.findUserPageAfter("user1", createdAt, new ObjectId(dated.getId()), PageRequest.of(0, 2)))
+                .thenReturn(Flux.just(undated, undatedOldest));
+        when(shortUrlRepository.findUndatedUserPageAfter("user1", new ObjectId(undated.getId()), PageRequest.of(0, 2)))
+                .thenReturn(Flux.just(undatedOldest));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.streamUserUrls("user1", null).map(ShortUrlResponse::getShortCode))
+                .expectNext("new1234", "old1234", "old5678")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Кэширование - TTL в Redis заканчивается до срока действия ссылки за вычетом s-maxage")
+    void cacheUrl_TtlBoundedByExpiry() {
+        // Given
+        ShortUrl soonExpiring = ShortUrl.builder()
+                .shortCode("abc1234")
+                .originalUrl("https://example.com")
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        ShortUrl lastMinutes = ShortUrl.builder()
+                .shortCode("end1234")
+                .originalUrl("https://example.com")
+                .expiresAt(LocalDateTime.now().plusMinutes(5))
+                .build();
+        ShortUrl expired = ShortUrl.builder()
+                .shortCode("old1234")
+                .originalUrl("https://example.com")
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.cacheUrl(soonExpiring)).expectNext(true).verifyComplete();
+        StepVerifier.create(shortUrlService.cacheUrl(lastMinutes)).expectNext(false).verifyComplete();
+        StepVerifier.create(shortUrlService.cacheUrl(expired)).expectNext(false).verifyComplete();
+
+        // edge-max-age 10 минут: ответ с s-maxage=600 хранится не дольше 20 из 30 оставшихся минут
+        verify(valueOperations).set(eq("url:abc1234"), argThat(value -> value.endsWith("|https://example.com")),
+                argThat(ttl -> ttl.compareTo(Duration.ofMinutes(20)) <= 0 && ttl.compareTo(Duration.ofMinutes(19)) > 0));
+        verify(valueOperations, never()).set(eq("url:end1234"), anyString(), any(Duration.class));
+        verify(valueOperations, never()).set(eq("url:old1234"), anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Ссылка в последние минуты не кэшируется сервисом: s-maxage считается на каждый запрос")
+    void getRedirect_NearExpiryNotCached() {
+        // Given
+        String shortCode = "end1234";
+        ShortUrl shortUrl = ShortUrl.builder()
+                .shortCode(shortCode)
+                .originalUrl("https://example.com")
+                .active(true)
+                .expiresAt(LocalDateTime.now().plusMinutes(5))
+                .build();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("url:" + shortCode)).thenReturn(Mono.empty());
+        when(shortUrlRepository.findByShortCode(shortCode)).thenReturn(Mono.just(shortUrl));
+
+        // When & Then
+        StepVerifier.create(shortUrlService.getRedirect(shortCode))
+                .assertNext(redirect -> {
+                    long sMaxAge = Long.parseLong(redirect.cacheControl().replaceAll(".*s-maxage=", ""));
+                    assertThat(sMaxAge).isBetween(290L, 300L);
+                })
+                .verifyComplete();
+
+        assertThat(localUrlCache.get(shortCode)).isNull();
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Пакетное удаление из кэша - DEL, инвалидация L1 и очистка CDN для каждого кода")
+    void evictFromCache_BatchPurgesCdn() {
+        // Given
+        when(redisTemplate.delete("url:aaa1111", "url:bbb2222")).thenReturn(Mono.just(2L));
+        when(cacheInvalidationBus.publish(anyString())).thenReturn(Mono.empty());
+        when(cdnPurgeClient.purge(anyString())).thenReturn(Mono.empty());
+
+        // When
+        StepVerifier.create(shortUrlService.evictFromCache(List.of("aaa1111", "bbb2222"))).verifyComplete();
+
+        // Then
+        InOrder inOrder = inOrder(redisTemplate, cacheInvalidationBus, cdnPurgeClient);
+        inOrder.verify(redisTemplate).delete("url:aaa1111", "url:bbb2222");
+        inOrder.verify(cacheInvalidationBus).publish("aaa1111");
+        inOrder.verify(cacheInvalidationBus).publish("bbb2222");
+        inOrder.verify(cdnPurgeClient).purge("aaa1111");
+        inOrder.verify(cdnPurgeClient).purge("bbb2222");
+    }
+
+    private static ShortUrl createdUrl() {
+        return ShortUrl.builder()
+                .id("123")
+                .shortCode("abc1234")
+                .originalUrl("https://example.com")
+                .userId("user1")
+                .active(true)
+                .expiresAt(LocalDateTime.now().plusDays(30))
+                .build();
+    }
+
+    private static ShortUrl projected(ShortUrl shortUrl) {
+        BeanWrapper source = new BeanWrapperImpl(shortUrl);
+        BeanWrapper target = new BeanWrapperImpl(new ShortUrl());
+        target.setPropertyValue("id", source.getPropertyValue("id"));
+        for (String field : Document.parse(ShortUrlRepository.USER_PAGE_FIELDS).keySet()) {
+            target.setPropertyValue(field, source.getPropertyValue(field));
+        }
+        return (ShortUrl) target.getWrappedInstance();
+    }
+
+    private static ShortUrl userUrl(String id, String shortCode, LocalDateTime createdAt) {
+        return ShortUrl.builder()
+                .id(id)
+                .shortCode(shortCode)
+                .originalUrl("https://example.com/" + shortCode)
+                .userId("user1")
+                .active(true)
+                .createdAt(createdAt)
+                .build();
     }
 }
@@ -0,0 +1,113 @@
+package com.urlshortener.shortcode;
+
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для CounterShortCodeGenerator
+ */
+@ExtendWith(MockitoExtension.class)
+class CounterShortCodeGeneratorTest {
+
+    private static final String KEY = "test-scramble-key-0123";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Test
+    @DisplayName("Перемешивание - биекция: все коды пространства различны")
+    void encode_ScrambleIsBijective() {
+        // 62^3 = 238328 кодов длины 3
+        CounterShortCodeGenerator generator = new CounterShortCodeGenerator(mongoTemplate, 3, 100, true, KEY);
+
+        Set<String> codes = new HashSet<>();
+        for (long id = 0; id < 238_328; id++) {
+            codes.add(generator.encode(id));
+        }
+
+        assertThat(codes).hasSize(238_328);
+        assertThatThrownBy(() -> generator.encode(238_328)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Без перемешивания идентификатор кодируется в base62 фиксированной длины")
+    void encode_Plain() {
+        CounterShortCodeGenerator generator = new CounterShortCodeGenerator(mongoTemplate, 7, 100, false, null);
+
+        assertThat(generator.encode(0)).isEqualTo("aaaaaaa");
+        assertThat(generator.encode(63)).isEqualTo("aaaaabb");
+    }
+
+    @Test
+    @DisplayName("Один запрос к MongoDB на блок идентификаторов")
+    void nextCode_LeasesBlocks() {
+        // Given
+        CounterShortCodeGenerator generator = new CounterShortCodeGenerator(mongoTemplate, 7, 3, false, null);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq("sequences")))
+                .thenReturn(Mono.just(new Document("value", 3L)))
+                .thenReturn(Mono.just(new Document("value", 6L)));
+
+        // When & Then
+        StepVerifier.create(generator.nextCodes(5))
+                .expectNext("aaaaaaa", "aaaaaab", "aaaaaac", "aaaaaad", "aaaaaae")
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq("sequences"));
+    }
+
+    @Test
+    @DisplayName("Перемешивание не аффинно и зависит от ключа")
+    void permute_IsKeyedAndNotAffine() {
+        // Given
+        CounterShortCodeGenerator generator = new CounterShortCodeGenerator(mongoTemplate, 7, 100, true, KEY);
+        CounterShortCodeGenerator otherKey = new CounterShortCodeGenerator(mongoTemplate, 7, 100, true, KEY + "!");
+        long space = 3_521_614_606_208L;
+
+        // When
+        Set<Long> steps = new HashSet<>();
+        int sameCodes = 0;
+        for (long id = 0; id < 100; id++) {
+            steps.add(Math.floorMod(generator.permute(id + 1) - generator.permute(id), space));
+            if (generator.encode(id).equals(otherKey.encode(id))) {
+                sameCodes++;
+            }
+        }
+
+        // Then: у аффинной перестановки шаг между соседними идентификаторами постоянен
+        assertThat(steps).hasSizeGreaterThan(90);
+        assertThat(sameCodes).isZero();
+        assertThat(generator.permute(space - 1)).isBetween(0L, space - 1);
+    }
+
+    @Test
+    @DisplayName("Перемешивание без ключа или с коротким ключом не запускается")
+    void constructor_RequiresScrambleKey() {
+        assertThatThrownBy(() -> new CounterShortCodeGenerator(mongoTemplate, 7, 100, true, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CounterShortCodeGenerator(mongoTemplate, 7, 100, true, ""))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CounterShortCodeGenerator(mongoTemplate, 7, 100, true, "short"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
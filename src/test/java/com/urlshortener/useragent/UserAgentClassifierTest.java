@@ -0,0 +1,54 @@
+package com.urlshortener.useragent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты классификации User-Agent на корпусе реальных строк
+ */
+class UserAgentClassifierTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserAgentClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        classifier = new UserAgentClassifier(meterRegistry, 100);
+    }
+
+    @ParameterizedTest(name = "{1} / {2} / {0}")
+    @CsvFileSource(resources = "/useragent/corpus.csv", numLinesToSkip = 1)
+    @DisplayName("Классификация строк корпуса")
+    void classify_Corpus(String deviceType, String browser, String os, String userAgent) {
+        assertThat(classifier.classify(userAgent)).isEqualTo(new UserAgentInfo(deviceType, browser, os));
+    }
+
+    @Test
+    @DisplayName("Пустой User-Agent - Unknown")
+    void classify_Missing() {
+        UserAgentInfo unknown = new UserAgentInfo("Unknown", "Unknown", "Unknown");
+
+        assertThat(classifier.classify(null)).isEqualTo(unknown);
+        assertThat(classifier.classify("")).isEqualTo(unknown);
+    }
+
+    @Test
+    @DisplayName("Повторная строка обслуживается из кэша тем же экземпляром")
+    void classify_Cached() {
+        String userAgent = "Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0";
+
+        UserAgentInfo first = classifier.classify(userAgent);
+        UserAgentInfo second = classifier.classify(new String(userAgent));
+
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "user-agent").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+}